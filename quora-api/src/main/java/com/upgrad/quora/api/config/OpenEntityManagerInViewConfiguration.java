@@ -0,0 +1,31 @@
+package com.upgrad.quora.api.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Keeps an EntityManager open for the whole request, as spring.jpa.open-in-view does, except for sign up and sign in.
+ * The request's EntityManager holds its connection from the first statement until the response is written, so those two
+ * would hold a connection while they wait for the password hashing pool; they run in short transactions of their own instead.
+ * spring.jpa.open-in-view is off so that this registration replaces the one of Spring Boot.
+ */
+@Configuration
+public class OpenEntityManagerInViewConfiguration implements WebMvcConfigurer {
+
+    static final String[] EXCLUDED_PATHS = {"/user/signup", "/user/signin"};
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        final OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor).excludePathPatterns(EXCLUDED_PATHS);
+    }
+}
@@ -0,0 +1,33 @@
+package com.upgrad.quora.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Keeps the Tomcat workers in step with the connection pool, as nearly every request holds a connection for most of its time.
+ * The startup fails when server.tomcat.threads.max is below spring.datasource.hikari.maximum-pool-size, which would leave
+ * connections unused, or above quora.datasource.max-threads-per-connection times the pool, where the extra workers would
+ * only queue on the pool and time out with 503 instead of waiting in the accept queue. Change both settings together.
+ */
+@Component
+public class PoolSizeCheck {
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int maxThreads;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int maximumPoolSize;
+
+    @Value("${quora.datasource.max-threads-per-connection:4}")
+    private int maxThreadsPerConnection;
+
+    @PostConstruct
+    public void check() {
+        if (maxThreads < maximumPoolSize || maxThreads > maximumPoolSize * maxThreadsPerConnection)
+            throw new IllegalStateException("server.tomcat.threads.max=" + maxThreads + " must be between "
+                    + "spring.datasource.hikari.maximum-pool-size=" + maximumPoolSize + " and " + maxThreadsPerConnection
+                    + " times it (quora.datasource.max-threads-per-connection)");
+    }
+}
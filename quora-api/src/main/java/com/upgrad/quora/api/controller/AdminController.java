@@ -1,7 +1,13 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.model.SlowLogResponse;
+import com.upgrad.quora.api.model.SlowQueryDetails;
+import com.upgrad.quora.api.model.SlowRequestDetails;
 import com.upgrad.quora.api.model.UserDeleteResponse;
 import com.upgrad.quora.service.business.AdminBusinessService;
+import com.upgrad.quora.service.common.SlowLogSnapshot;
+import com.upgrad.quora.service.common.SlowQuery;
+import com.upgrad.quora.service.common.SlowRequest;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +16,9 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @RestController
 @RequestMapping("/admin")
 public class AdminController {
@@ -36,4 +45,39 @@ public class AdminController {
        userDeleteResponse.status("USER SUCCESSFULLY DELETED");
        return new ResponseEntity<>(userDeleteResponse, HttpStatus.OK);
     }
+
+    /**
+     * Controller function to read the slowest requests and statement executions
+     * @param authorization: HTTP Header authorization
+     * @param reset : true to empty the slow log once read
+     * @return SlowLogResponse : slowest requests and statements, slowest first
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/slow-log", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SlowLogResponse> getSlowLog(
+            @RequestHeader("authorization") final String authorization,
+            @RequestParam(value = "reset", required = false, defaultValue = "false") final boolean reset)
+    throws AuthorizationFailedException {
+        SlowLogSnapshot slowLog = adminBusinessService.getSlowLog(authorization, reset);
+
+        List<SlowRequestDetails> requests = new ArrayList<>(slowLog.getRequests().size());
+        for(SlowRequest slowRequest : slowLog.getRequests()){
+            requests.add(new SlowRequestDetails()
+                    .completedAt(slowRequest.getCompletedAt().toString())
+                    .method(slowRequest.getMethod())
+                    .path(slowRequest.getPath())
+                    .query(slowRequest.getQuery())
+                    .status(slowRequest.getStatus())
+                    .durationMs(slowRequest.getDurationMillis()));
+        }
+        List<SlowQueryDetails> queries = new ArrayList<>(slowLog.getQueries().size());
+        for(SlowQuery slowQuery : slowLog.getQueries()){
+            queries.add(new SlowQueryDetails()
+                    .completedAt(slowQuery.getCompletedAt().toString())
+                    .name(slowQuery.getName())
+                    .query(slowQuery.getQuery())
+                    .rows(slowQuery.getRows())
+                    .durationMs(slowQuery.getDurationMillis()));
+        }
+        return new ResponseEntity<>(new SlowLogResponse().requests(requests).queries(queries), HttpStatus.OK);
+    }
 }
@@ -1,18 +1,29 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerBusinessService;
+import com.upgrad.quora.service.business.ExportLimiter;
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.common.QuestionAnswers;
 import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.LinkedList;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -22,6 +33,12 @@ public class AnswerController {
     @Autowired
     private AnswerBusinessService answerBusinessService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ExportLimiter exportLimiter;
+
     /**
      * Controller function for creating new Answer
      * @param questionId : Question Id against which the answer is created
@@ -44,6 +61,47 @@ public class AnswerController {
         return new ResponseEntity<>(answerResponse, HttpStatus.OK);
     }
 
+    /**
+     * Controller function for creating many answers to a question in one request, the token and the question being checked once
+     * The body is read as JSON, as a list of answers doesn't fit in request parameters
+     * @param questionId : Question Id against which the answers are created
+     * @param accessToken: Bearer Token
+     * @param answerBulkRequest : HTTP Request with the answers
+     * @return AnswerBulkResponse : HTTP Response with the result of each answer, in the request order
+     * @throws AuthorizationFailedException : For invalid Access tokens
+     * @throws  InvalidQuestionException : For invalid Question ids
+     * @throws InvalidBulkRequestException : if there are no answers or more than the maximum
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "/question/{questionId}/answer/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AnswerBulkResponse> createAnswers(
+            @RequestHeader("authorization") final String accessToken,
+            @PathVariable("questionId") final String questionId,
+            @RequestBody final AnswerBulkRequest answerBulkRequest) throws AuthorizationFailedException, InvalidQuestionException, InvalidBulkRequestException{
+
+        List<String> answerContents = null;
+        if(answerBulkRequest.getAnswers() != null){
+            answerContents = new ArrayList<>(answerBulkRequest.getAnswers().size());
+            for(AnswerRequest answerRequest : answerBulkRequest.getAnswers())
+                answerContents.add(answerRequest == null ? null : answerRequest.getAnswer());
+        }
+        List<BulkItemResult> results = answerBusinessService.createAnswers(accessToken, questionId, answerContents);
+
+        AnswerBulkResponse answerBulkResponse = new AnswerBulkResponse().created(0).rejected(0).results(new ArrayList<>(results.size()));
+        for(BulkItemResult result : results){
+            AnswerBulkItemResponse item = new AnswerBulkItemResponse().index(result.getIndex());
+            if(result.isCreated()){
+                item.id(result.getUuid()).status("ANSWER CREATED");
+                answerBulkResponse.created(answerBulkResponse.getCreated() + 1);
+            }
+            else{
+                item.status("ANSWER REJECTED").code(result.getCode()).message(result.getErrorMessage());
+                answerBulkResponse.rejected(answerBulkResponse.getRejected() + 1);
+            }
+            answerBulkResponse.addResultsItem(item);
+        }
+        return new ResponseEntity<>(answerBulkResponse, HttpStatus.OK);
+    }
+
     /**
      * Controller function for editing an answer
      * @param answerId : Answer UUID that needs to be updated
@@ -98,19 +156,45 @@ public class AnswerController {
     public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswers(
             @RequestHeader("authorization") final String accessToken, @PathVariable("questionId") final String questionId)
         throws AuthorizationFailedException, InvalidQuestionException{
-        List<AnswerEntity> answerEntities = answerBusinessService.getAllAnswer(accessToken, questionId);
+        QuestionAnswers questionAnswers = answerBusinessService.getAllAnswer(accessToken, questionId);
 
-        List<AnswerDetailsResponse> answerDetailsResponses = new LinkedList<>();
-        if(!answerEntities.isEmpty()){
-            for(AnswerEntity answerEntity : answerEntities){
-                AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse();
-                answerDetailsResponse.id(answerEntity.getUuid());
-                answerDetailsResponse.answerContent(answerEntity.getAnswer());
-                answerDetailsResponse.questionContent(answerEntity.getQuestion().getContent());
+        return new ResponseEntity<>(ResponseMapper.buildAnswerDetailsResponseList(questionAnswers), HttpStatus.OK);
+    }
 
-                answerDetailsResponses.add(answerDetailsResponse);
+    /**
+     * Controller function to export all answers of a question as one JSON array
+     * The answers are written to the response as they are read from a database cursor, so memory use doesn't grow with the answers
+     * @param questionId : Part of HHTP Request for the selected question
+     * @param accessToken: Bearer Token
+     * @param request : HTTP Request, which gives the export permit back once it completes
+     * @return StreamingResponseBody : JSON array of AnswerDetailsResponse
+     * @throws AuthorizationFailedException : For invalid Access tokens
+     * @throws  InvalidQuestionException : For invalid Question UUID
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/answer/all/{questionId}/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllAnswers(
+            @RequestHeader("authorization") final String accessToken, @PathVariable("questionId") final String questionId,
+            final HttpServletRequest request)
+        throws AuthorizationFailedException, InvalidQuestionException{
+        //Check the token and the question before the response is committed
+        QuestionEntity questionEntity = answerBusinessService.getQuestionToListAnswers(accessToken, questionId);
+        final int id = questionEntity.getId();
+        final String questionContent = questionEntity.getContent();
+
+        final ObjectWriter writer = objectMapper.writerFor(AnswerDetailsResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                final AnswerDetailsResponse answerDetails = new AnswerDetailsResponse().questionContent(questionContent);
+                answerBusinessService.streamAllAnswers(id, (uuid, answer) -> {
+                    answerDetails.id(uuid).answerContent(answer);
+                    writer.writeValue(generator, answerDetails);
+                });
+                generator.writeEndArray();
             }
-        }
-        return new ResponseEntity<>(answerDetailsResponses, HttpStatus.OK);
+        };
+        //Refused with 503 while too many exports hold a connection, the permit is given back when the stream or the request ends
+        return ExportResponses.stream(exportLimiter, request, body);
     }
 }
@@ -0,0 +1,55 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.service.business.ExportLimiter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.Callable;
+
+/**
+ * Streams the exports under a permit of the ExportLimiter. The permit is taken on the request thread, so a refusal is
+ * still answered 503, and given back when the body ends, or when the async request completes if the body never ran:
+ * the task rejected by the executor, timed out before it started or the client gone first.
+ */
+final class ExportResponses {
+
+    private static final String PERMIT_INTERCEPTOR = ExportResponses.class.getName() + ".permit";
+
+    private ExportResponses() {
+    }
+
+    /**
+     * @param exportLimiter : limiter of the exports
+     * @param request : current request
+     * @param body : writes the export
+     * @return ResponseEntity<StreamingResponseBody> : the body, run under the permit
+     */
+    static ResponseEntity<StreamingResponseBody> stream(final ExportLimiter exportLimiter, final HttpServletRequest request,
+                                                        final StreamingResponseBody body) {
+        final ExportLimiter.Permit permit = exportLimiter.acquire();
+        try {
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(PERMIT_INTERCEPTOR, new CallableProcessingInterceptor() {
+                @Override
+                public <T> void afterCompletion(final NativeWebRequest request, final Callable<T> task) {
+                    permit.release();
+                }
+            });
+            final StreamingResponseBody permitted = outputStream -> {
+                try {
+                    body.writeTo(outputStream);
+                } finally {
+                    permit.release();
+                }
+            };
+            return new ResponseEntity<>(permitted, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+    }
+}
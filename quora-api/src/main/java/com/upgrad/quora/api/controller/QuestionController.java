@@ -1,22 +1,37 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.CommonService;
+import com.upgrad.quora.service.business.ExportLimiter;
 import com.upgrad.quora.service.business.QuestionBusinessService;
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.common.QuestionFeedItem;
+import com.upgrad.quora.service.common.QuestionSearchResult;
+import com.upgrad.quora.service.common.ResultPage;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.DuplicateQuestionException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import java.time.ZonedDateTime;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -24,48 +39,36 @@ import java.util.UUID;
 @RequestMapping("/question")
 public class QuestionController {
 
+    private static final String NEXT_CURSOR_HEADER = "next-cursor";
+
     @Autowired
     private CommonService commonService;
 
     @Autowired
     private QuestionBusinessService questionBusinessService;
 
-    /**
-     * Support Function to generate the List of QuestionDetailResponse
-     * TO provide code Reusability
-     * @param allQuestions : A List of Question Entity
-     * @return List<QuestionDetailsResponse> : A linked list of HTTP Response
-     * @author : Govardhan K
-     */
-    private List<QuestionDetailsResponse> buildQuestionDetailsResponseList(List<QuestionEntity> allQuestions){
-        //Create a LinkedList to save all the questions
-        List<QuestionDetailsResponse> questionList = new LinkedList<>();
-
-        for(QuestionEntity question: allQuestions){
-            //Create a single Question Response
-            QuestionDetailsResponse questionDetails = new QuestionDetailsResponse();
-            questionDetails.setId(question.getUuid());
-            questionDetails.setContent(question.getContent());
-            //Add the Question response to the Linked List
-            questionList.add(questionDetails);
-        }
-        return  questionList;
-    }
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ExportLimiter exportLimiter;
 
     /**
      * Controller to create new Question
      * @param questionRequest : HTTP Request
      * @param accessToken : Bearer Authentication
-     * @return QuestionResponse : HTTP Response
+     * @return QuestionResponse : HTTP Response, with the existing questions it nearly repeats
      * @throws AuthorizationFailedException : if AUTh token is invalid or not active
+     * @throws DuplicateQuestionException : if it nearly repeats an existing question and near duplicates are rejected
      * @author : Govardhan K
      */
     @RequestMapping(method = RequestMethod.POST, path = "/create", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<QuestionResponse> createQuestion(
             @RequestHeader("authorization") final String accessToken,
-            final QuestionRequest questionRequest) throws AuthorizationFailedException{
+            final QuestionRequest questionRequest) throws AuthorizationFailedException, DuplicateQuestionException{
 
         UserAuthEntity userAuthEntity = commonService.commonProfiles(accessToken);
+        List<QuestionEntity> duplicates = questionBusinessService.checkDuplicates(questionRequest.getContent());
         //Create a blank QuestionEntity object to persist in DB
         QuestionEntity questionEntity = new QuestionEntity();
         questionEntity.setUuid(UUID.randomUUID().toString());
@@ -78,27 +81,174 @@ public class QuestionController {
         QuestionResponse questionResponse = new QuestionResponse();
         questionResponse.id(question.getUuid());
         questionResponse.status("QUESTION CREATED");
+        for(QuestionEntity duplicate : duplicates)
+            questionResponse.addDuplicatesItem(new QuestionDetailsResponse().id(duplicate.getUuid()).content(duplicate.getContent()));
 
         return new ResponseEntity<>(questionResponse, HttpStatus.CREATED);
     }
 
     /**
-     * Controller to get all questions
+     * Controller to create many questions in one request, the token being checked once
+     * The body is read as JSON, as a list of questions doesn't fit in request parameters
+     * @param questionBulkRequest : HTTP Request with the questions
      * @param accessToken : Bearer Authentication
+     * @return QuestionBulkResponse : HTTP Response with the result of each question, in the request order
+     * @throws AuthorizationFailedException : if AUTh token is invalid or not active
+     * @throws InvalidBulkRequestException : if there are no questions or more than the maximum
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<QuestionBulkResponse> createQuestions(
+            @RequestHeader("authorization") final String accessToken,
+            @RequestBody final QuestionBulkRequest questionBulkRequest) throws AuthorizationFailedException, InvalidBulkRequestException{
+
+        UserAuthEntity userAuthEntity = commonService.commonProfiles(accessToken);
+        List<String> contents = null;
+        if(questionBulkRequest.getQuestions() != null){
+            contents = new ArrayList<>(questionBulkRequest.getQuestions().size());
+            for(QuestionRequest questionRequest : questionBulkRequest.getQuestions())
+                contents.add(questionRequest == null ? null : questionRequest.getContent());
+        }
+        List<BulkItemResult> results = questionBusinessService.createQuestions(userAuthEntity.getUserid(), contents);
+
+        QuestionBulkResponse questionBulkResponse = new QuestionBulkResponse().created(0).rejected(0).results(new ArrayList<>(results.size()));
+        for(BulkItemResult result : results){
+            QuestionBulkItemResponse item = new QuestionBulkItemResponse().index(result.getIndex());
+            if(result.isCreated()){
+                item.id(result.getUuid()).status("QUESTION CREATED");
+                questionBulkResponse.created(questionBulkResponse.getCreated() + 1);
+            }
+            else{
+                item.status("QUESTION REJECTED").code(result.getCode()).message(result.getErrorMessage());
+                questionBulkResponse.rejected(questionBulkResponse.getRejected() + 1);
+            }
+            questionBulkResponse.addResultsItem(item);
+        }
+        return new ResponseEntity<>(questionBulkResponse, HttpStatus.OK);
+    }
+
+    /**
+     * Builds the HTTP Response of one page of questions, with the cursor of the next page in the next-cursor header
+     * @param page : Page of QuestionEntity
+     * @return ResponseEntity<List<QuestionDetailsResponse>> : HTTP Response
+     */
+    private ResponseEntity<List<QuestionDetailsResponse>> buildQuestionPageResponse(ResultPage<QuestionEntity> page){
+        HttpHeaders headers = new HttpHeaders();
+        if(page.getNextCursor() != null)
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        return new ResponseEntity<>(ResponseMapper.buildQuestionDetailsResponseList(page.getItems()), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Controller to get all questions, newest first, one page at a time
+     * @param accessToken : Bearer Authentication
+     * @param cursor : next-cursor header of the previous page, absent for the first page
+     * @param limit : Page size
      * @return QuestionResponse : List of HTTP Response
      * @throws AuthorizationFailedException : if AUTh token is invalid or not active
+     * @throws InvalidCursorException : if the cursor is malformed
      * @author : Govardhan K
      */
     @RequestMapping(method = RequestMethod.GET, path = "/all" , produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(@RequestHeader("authorization") final String accessToken)throws AuthorizationFailedException{
+    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(@RequestHeader("authorization") final String accessToken,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit)throws AuthorizationFailedException, InvalidCursorException{
 
         //Check the validity of the BearerToken
         commonService.commonProfiles(accessToken);
-        //Retrieve the collections and build a Linked List of QuestionDetailsResponse
-        List<QuestionEntity> allQuestions = questionBusinessService.getAllQuestions();
-        List<QuestionDetailsResponse> questionDetailsResponses = buildQuestionDetailsResponseList(allQuestions);
+        //Retrieve one page of the collection and build a Linked List of QuestionDetailsResponse
+        ResultPage<QuestionEntity> page = questionBusinessService.getAllQuestions(cursor, limit);
+
+        return buildQuestionPageResponse(page);
+    }
+
+    /**
+     * Controller to get the question feed, most recently asked or answered first, one page at a time
+     * @param accessToken : Bearer Authentication
+     * @param cursor : next-cursor header of the previous page, absent for the first page
+     * @param limit : Page size
+     * @return QuestionFeedResponse : List of HTTP Response
+     * @throws AuthorizationFailedException : if AUTh token is invalid or not active
+     * @throws InvalidCursorException : if the cursor is malformed
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/feed", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<QuestionFeedResponse>> getQuestionFeed(@RequestHeader("authorization") final String accessToken,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit) throws AuthorizationFailedException, InvalidCursorException{
+
+        commonService.commonProfiles(accessToken);
+        ResultPage<QuestionFeedItem> page = questionBusinessService.getQuestionFeed(cursor, limit);
+
+        List<QuestionFeedResponse> feed = new ArrayList<>(page.getItems().size());
+        for(QuestionFeedItem item : page.getItems()){
+            feed.add(new QuestionFeedResponse().id(item.getUuid()).content(item.getContent())
+                    .answerCount(item.getAnswerCount()).viewCount(item.getViewCount())
+                    .lastAnswerAt(item.getLastAnswerAt() == null ? null : item.getLastAnswerAt().toOffsetDateTime())
+                    .lastActivityAt(item.getLastActivityAt().toOffsetDateTime()));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if(page.getNextCursor() != null)
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        return new ResponseEntity<>(feed, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Controller to search the questions by their content and the content of their answers, most relevant first, one page at a time
+     * @param accessToken : Bearer Authentication
+     * @param terms : Words to search for
+     * @param cursor : next-cursor header of the previous page, absent for the first page
+     * @param limit : Page size
+     * @return QuestionDetailsResponse : List of HTTP Response
+     * @throws AuthorizationFailedException : if AUTh token is invalid or not active
+     * @throws InvalidCursorException : if the cursor is malformed
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<QuestionDetailsResponse>> searchQuestions(@RequestHeader("authorization") final String accessToken,
+            @RequestParam("q") final String terms,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit) throws AuthorizationFailedException, InvalidCursorException{
+
+        commonService.commonProfiles(accessToken);
+        ResultPage<QuestionSearchResult> page = questionBusinessService.searchQuestions(terms, cursor, limit);
+
+        List<QuestionDetailsResponse> questionList = new ArrayList<>(page.getItems().size());
+        for(QuestionSearchResult result : page.getItems())
+            questionList.add(new QuestionDetailsResponse().id(result.getUuid()).content(result.getContent()));
+        HttpHeaders headers = new HttpHeaders();
+        if(page.getNextCursor() != null)
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        return new ResponseEntity<>(questionList, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Controller to export all questions, newest first, as one JSON array
+     * The questions are written to the response as they are read from a database cursor, so memory use doesn't grow with the table
+     * @param accessToken : Bearer Authentication
+     * @param request : HTTP Request, which gives the export permit back once it completes
+     * @return StreamingResponseBody : JSON array of QuestionDetailsResponse
+     * @throws AuthorizationFailedException : if AUTh token is invalid or not active
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/all/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllQuestions(@RequestHeader("authorization") final String accessToken,
+                                                                    final HttpServletRequest request) throws AuthorizationFailedException{
+
+        //Check the validity of the BearerToken before the response is committed
+        commonService.commonProfiles(accessToken);
 
-        return new ResponseEntity<>(questionDetailsResponses,HttpStatus.OK);
+        final ObjectWriter writer = objectMapper.writerFor(QuestionDetailsResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                final QuestionDetailsResponse questionDetails = new QuestionDetailsResponse();
+                questionBusinessService.streamAllQuestions((uuid, content) -> {
+                    questionDetails.id(uuid).content(content);
+                    writer.writeValue(generator, questionDetails);
+                });
+                generator.writeEndArray();
+            }
+        };
+        //Refused with 503 while too many exports hold a connection, the permit is given back when the stream or the request ends
+        return ExportResponses.stream(exportLimiter, request, body);
     }
 
     /**
@@ -149,20 +299,24 @@ public class QuestionController {
      * Controller to get all questions
      * @param accessToken : Bearer Authentication
      * @param userId : UUID of the user whose Questions to be fetched
+     * @param cursor : next-cursor header of the previous page, absent for the first page
+     * @param limit : Page size
      * @return QuestionResponse : List of HTTP Response
      * @throws AuthorizationFailedException : if AUTh token is invalid or not active
+     * @throws InvalidCursorException : if the cursor is malformed
      */
     @RequestMapping(method = RequestMethod.GET ,  path = "/all/{userId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<List<QuestionDetailsResponse>> getQuestionByUser(
             @RequestHeader("authorization") final String accessToken,
-            @PathVariable("userId") final String userId) throws AuthorizationFailedException, UserNotFoundException{
+            @PathVariable("userId") final String userId,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit) throws AuthorizationFailedException, UserNotFoundException, InvalidCursorException{
 
         UserEntity userEntity = commonService.getUserById(userId);
         commonService.commonProfiles(accessToken);
 
-        List<QuestionEntity> allQuestions = questionBusinessService.getAllQuestionsByUser(userEntity);
-        List<QuestionDetailsResponse> questionDetailsResponses = buildQuestionDetailsResponseList(allQuestions);
+        ResultPage<QuestionEntity> page = questionBusinessService.getAllQuestionsByUser(userEntity, cursor, limit);
 
-        return new ResponseEntity<>(questionDetailsResponses,HttpStatus.OK);
+        return buildQuestionPageResponse(page);
     }
 }
@@ -0,0 +1,60 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import com.upgrad.quora.api.model.QuestionDetailsResponse;
+import com.upgrad.quora.service.common.AnswerDetails;
+import com.upgrad.quora.service.common.QuestionAnswers;
+import com.upgrad.quora.service.entity.QuestionEntity;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Copies the results of the business services into the generated response models of the listings
+ */
+public final class ResponseMapper {
+
+    private ResponseMapper() {
+    }
+
+    /**
+     * Support Function to generate the List of QuestionDetailResponse
+     * TO provide code Reusability
+     * @param allQuestions : A List of Question Entity
+     * @return List<QuestionDetailsResponse> : A linked list of HTTP Response
+     * @author : Govardhan K
+     */
+    public static List<QuestionDetailsResponse> buildQuestionDetailsResponseList(List<QuestionEntity> allQuestions){
+        //Create a LinkedList to save all the questions
+        List<QuestionDetailsResponse> questionList = new LinkedList<>();
+
+        for(QuestionEntity question: allQuestions){
+            //Create a single Question Response
+            QuestionDetailsResponse questionDetails = new QuestionDetailsResponse();
+            questionDetails.setId(question.getUuid());
+            questionDetails.setContent(question.getContent());
+            //Add the Question response to the Linked List
+            questionList.add(questionDetails);
+        }
+        return  questionList;
+    }
+
+    /**
+     * Support Function to generate the List of AnswerDetailsResponse
+     * @param questionAnswers : the answers of a question and the question content
+     * @return List<AnswerDetailsResponse> : List of HTTP Response
+     */
+    public static List<AnswerDetailsResponse> buildAnswerDetailsResponseList(QuestionAnswers questionAnswers){
+        List<AnswerDetailsResponse> answerDetailsResponses = new ArrayList<>(questionAnswers.getAnswers().size());
+        for(AnswerDetails answerDetails : questionAnswers.getAnswers()){
+            AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse();
+            answerDetailsResponse.id(answerDetails.getUuid());
+            answerDetailsResponse.answerContent(answerDetails.getAnswer());
+            answerDetailsResponse.questionContent(questionAnswers.getQuestionContent());
+
+            answerDetailsResponses.add(answerDetailsResponse);
+        }
+        return answerDetailsResponses;
+    }
+}
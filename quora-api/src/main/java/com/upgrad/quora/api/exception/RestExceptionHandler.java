@@ -1,15 +1,28 @@
 package com.upgrad.quora.api.exception;
 
 import com.upgrad.quora.api.model.ErrorResponse;
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
 import com.upgrad.quora.service.exception.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 
+import java.sql.SQLTransientConnectionException;
+
 @ControllerAdvice
 public class RestExceptionHandler {
+
+    @Value("${quora.retry-after-seconds:5}")
+    private String retryAfterSeconds;
+
     @ExceptionHandler(SignUpRestrictedException.class)
     public ResponseEntity<ErrorResponse> singnUpRestrictedException(SignUpRestrictedException exe, WebRequest req){
         return new ResponseEntity<>(
@@ -52,4 +65,59 @@ public class RestExceptionHandler {
                 new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()),HttpStatus.NOT_FOUND
         );
     }
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> invalidCursorException(InvalidCursorException exe, WebRequest req){
+        return new ResponseEntity<>(
+                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()),HttpStatus.BAD_REQUEST
+        );
+    }
+    @ExceptionHandler(InvalidBulkRequestException.class)
+    public ResponseEntity<ErrorResponse> invalidBulkRequestException(InvalidBulkRequestException exe, WebRequest req){
+        return new ResponseEntity<>(
+                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()),HttpStatus.BAD_REQUEST
+        );
+    }
+    @ExceptionHandler(DuplicateQuestionException.class)
+    public ResponseEntity<ErrorResponse> duplicateQuestionException(DuplicateQuestionException exe, WebRequest req){
+        return new ResponseEntity<>(
+                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()),HttpStatus.CONFLICT
+        );
+    }
+    @ExceptionHandler(UnexpectedException.class)
+    public ResponseEntity<ErrorResponse> unexpectedException(UnexpectedException exe, WebRequest req){
+        ErrorResponse errorResponse = new ErrorResponse().code(exe.getErrorCode().getCode()).message(exe.getMessage());
+        if(exe.getErrorCode() == GenericErrorCode.GEN_002){
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return new ResponseEntity<>(errorResponse, headers, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if(exe.getErrorCode() == GenericErrorCode.GEN_003)
+            return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+    /**
+     * No database connection could be had within spring.datasource.hikari.connection-timeout, either when a transaction
+     * starts or on the first query outside of one: the pool is saturated, shed the request with GEN-002.
+     * Hikari reports the timeout as a SQLTransientConnectionException; any other failure to reach the database is a GEN-001
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ErrorResponse> connectionUnavailableException(RuntimeException exe, WebRequest req){
+        return unexpectedException(new UnexpectedException(
+                isConnectionTimeout(exe) ? GenericErrorCode.GEN_002 : GenericErrorCode.GEN_001, exe), req);
+    }
+    /**
+     * The versioned row was changed or deleted by another transaction between the read and the write, answer 409 with GEN-003
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> optimisticLockingFailureException(OptimisticLockingFailureException exe, WebRequest req){
+        return unexpectedException(new UnexpectedException(GenericErrorCode.GEN_003, exe), req);
+    }
+
+    private static boolean isConnectionTimeout(final Throwable exe){
+        for(Throwable cause = exe; cause != null; cause = cause.getCause()){
+            if(cause instanceof SQLTransientConnectionException)
+                return true;
+        }
+        return false;
+    }
 }
@@ -0,0 +1,88 @@
+package com.upgrad.quora.api.filter;
+
+import com.upgrad.quora.service.business.SlowLog;
+import com.upgrad.quora.service.common.SlowRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offers the duration of every request to the slow log. Streamed responses are timed until the stream completes.
+ * Only the URI template and the names of the query parameters are kept: path variables, parameter values and headers are redacted.
+ */
+@Component
+public class SlowRequestFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private SlowLog slowLog;
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        final long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(final AsyncEvent event) {
+                        record(request, response, start);
+                    }
+
+                    @Override
+                    public void onTimeout(final AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(final AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(final AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, response, start);
+            }
+        }
+    }
+
+    private void record(final HttpServletRequest request, final HttpServletResponse response, final long start) {
+        final long durationNanos = System.nanoTime() - start;
+        slowLog.recordRequest(durationNanos, () -> {
+            final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return new SlowRequest(Instant.now(), request.getMethod(), pattern == null ? "UNKNOWN" : pattern.toString(),
+                    parameterNames(request.getQueryString()), response.getStatus(),
+                    durationNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        });
+    }
+
+    /**
+     * @param queryString : raw query string, may be null
+     * @return String : the query string with every value replaced by "?"
+     */
+    private static String parameterNames(final String queryString) {
+        if (queryString == null || queryString.isEmpty())
+            return null;
+        final StringBuilder names = new StringBuilder(queryString.length());
+        for (String parameter : queryString.split("&")) {
+            if (names.length() > 0)
+                names.append('&');
+            final int equals = parameter.indexOf('=');
+            names.append(equals < 0 ? parameter : parameter.substring(0, equals)).append("=?");
+        }
+        return names.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.upgrad.quora.api.config;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.handler.MappedInterceptor;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+//Checks that the request-wide EntityManager is opened for every path but sign up and sign in.
+public class OpenEntityManagerInViewConfigurationTest {
+
+    @Test
+    public void signUpAndSignInAreLeftOut() {
+        OpenEntityManagerInViewConfiguration configuration = new OpenEntityManagerInViewConfiguration();
+        ReflectionTestUtils.setField(configuration, "entityManagerFactory", mock(EntityManagerFactory.class));
+        InterceptorRegistry registry = new InterceptorRegistry();
+        configuration.addInterceptors(registry);
+
+        List<?> interceptors = ReflectionTestUtils.invokeMethod(registry, "getInterceptors");
+        assertEquals(1, interceptors.size());
+        MappedInterceptor interceptor = (MappedInterceptor) interceptors.get(0);
+        AntPathMatcher pathMatcher = new AntPathMatcher();
+        assertFalse(interceptor.matches("/user/signup", pathMatcher));
+        assertFalse(interceptor.matches("/user/signin", pathMatcher));
+        assertTrue(interceptor.matches("/user/signout", pathMatcher));
+        assertTrue(interceptor.matches("/question/all", pathMatcher));
+    }
+}
@@ -0,0 +1,40 @@
+package com.upgrad.quora.api.config;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.fail;
+
+//Checks the bounds the startup puts on the Tomcat workers against the size of the connection pool.
+public class PoolSizeCheckTest {
+
+    @Test
+    public void workersBetweenThePoolAndFourTimesItAreAccepted() {
+        check(10, 10);
+        check(40, 10);
+    }
+
+    @Test
+    public void tooManyOrTooFewWorkersFailTheStartup() {
+        assertRejected(41, 10);
+        assertRejected(200, 10);
+        assertRejected(9, 10);
+    }
+
+    private static void check(final int maxThreads, final int maximumPoolSize) {
+        PoolSizeCheck poolSizeCheck = new PoolSizeCheck();
+        ReflectionTestUtils.setField(poolSizeCheck, "maxThreads", maxThreads);
+        ReflectionTestUtils.setField(poolSizeCheck, "maximumPoolSize", maximumPoolSize);
+        ReflectionTestUtils.setField(poolSizeCheck, "maxThreadsPerConnection", 4);
+        poolSizeCheck.check();
+    }
+
+    private static void assertRejected(final int maxThreads, final int maximumPoolSize) {
+        try {
+            check(maxThreads, maximumPoolSize);
+            fail(maxThreads + " workers were accepted for " + maximumPoolSize + " connections");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
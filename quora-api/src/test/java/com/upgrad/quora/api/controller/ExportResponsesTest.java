@@ -0,0 +1,104 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.service.business.ExportLimiter;
+import com.upgrad.quora.service.common.UnexpectedException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+//Checks that the export permit comes back once the async request completes, whether the body ran or not.
+public class ExportResponsesTest {
+
+    private final ExportLimiter exportLimiter = new ExportLimiter();
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private final AtomicBoolean written = new AtomicBoolean();
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(exportLimiter, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(exportLimiter, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(exportLimiter, "timeout", Duration.ofMinutes(5));
+        exportLimiter.init();
+        request.setAsyncSupported(true);
+    }
+
+    @Test
+    public void permitComesBackWhenTheBodyNeverRuns() throws Exception {
+        ResponseEntity<StreamingResponseBody> entity = ExportResponses.stream(exportLimiter, request, outputStream -> written.set(true));
+        assertRefused();
+
+        try {
+            process(entity, new TaskExecutorAdapter(task -> {
+                throw new TaskRejectedException("Executor is full");
+            }));
+            fail("The task was run");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        request.getAsyncContext().complete();
+
+        assertFalse(written.get());
+        exportLimiter.acquire();
+    }
+
+    @Test
+    public void permitComesBackOnceWhenTheBodyRan() throws Exception {
+        ResponseEntity<StreamingResponseBody> entity = ExportResponses.stream(exportLimiter, request, outputStream -> written.set(true));
+
+        process(entity, new TaskExecutorAdapter(new SyncTaskExecutor()));
+        request.getAsyncContext().complete();
+
+        assertTrue(written.get());
+        exportLimiter.acquire();
+        assertRefused();
+    }
+
+    /**
+     * Starts the body as Spring MVC does for a StreamingResponseBody
+     */
+    private void process(final ResponseEntity<StreamingResponseBody> entity, final AsyncTaskExecutor executor) throws Exception {
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+        asyncManager.setTaskExecutor(executor);
+        asyncManager.startCallableProcessing(() -> {
+            entity.getBody().writeTo(new ByteArrayOutputStream());
+            return null;
+        });
+    }
+
+    private void assertRefused() {
+        try {
+            exportLimiter.acquire();
+            fail("An export was let in beyond the limit");
+        } catch (UnexpectedException e) {
+            assertEquals("GEN-002", e.getErrorCode().getCode());
+        }
+    }
+}
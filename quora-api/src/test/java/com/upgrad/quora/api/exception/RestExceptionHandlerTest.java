@@ -0,0 +1,62 @@
+package com.upgrad.quora.api.exception;
+
+import com.upgrad.quora.api.model.ErrorResponse;
+import org.hibernate.exception.JDBCConnectionException;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.net.ConnectException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+//Checks that only a connection pool timeout sheds the request with 503, other database failures stay a 500.
+public class RestExceptionHandlerTest {
+
+    private final RestExceptionHandler restExceptionHandler = new RestExceptionHandler();
+
+    {
+        ReflectionTestUtils.setField(restExceptionHandler, "retryAfterSeconds", "5");
+    }
+
+    @Test
+    public void poolTimeoutWhenTheTransactionStartsIsShed() {
+        SQLTransientConnectionException timeout =
+                new SQLTransientConnectionException("quora - Connection is not available, request timed out after 2000ms.");
+        CannotCreateTransactionException exe = new CannotCreateTransactionException("Could not open JPA EntityManager for transaction",
+                new JDBCConnectionException("Unable to acquire JDBC Connection", timeout));
+
+        ResponseEntity<ErrorResponse> response = restExceptionHandler.connectionUnavailableException(exe, null);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("GEN-002", response.getBody().getCode());
+        assertEquals("5", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void poolTimeoutOfAQueryIsShed() {
+        DataAccessResourceFailureException exe = new DataAccessResourceFailureException("Unable to acquire JDBC Connection",
+                new SQLTransientConnectionException("quora - Connection is not available, request timed out after 2000ms."));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, restExceptionHandler.connectionUnavailableException(exe, null).getStatusCode());
+    }
+
+    @Test
+    public void otherDatabaseFailuresAreServerErrors() {
+        DataAccessResourceFailureException exe = new DataAccessResourceFailureException("could not execute query",
+                new SQLException("Connection refused", "08001", new ConnectException("Connection refused")));
+
+        ResponseEntity<ErrorResponse> response = restExceptionHandler.connectionUnavailableException(exe, null);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertEquals("GEN-001", response.getBody().getCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+}
@@ -0,0 +1,56 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.CommonService;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token check done at the start of every authenticated request, for each way of resolving a token:
+ * cache - the token cache in front of user_auth, after the first lookup of each token
+ * database - every lookup goes to user_auth (the cache is sized to 0)
+ * stateless - the token signature is verified locally
+ * java -jar quora-bench/target/benchmarks.jar CommonProfilesBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommonProfilesBenchmark {
+
+    private static final int USERS = 256;
+
+    @Param({"cache", "database", "stateless"})
+    public String mode;
+
+    private EmbeddedQuora quora;
+
+    private CommonService commonService;
+
+    private String[] tokens;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        quora = EmbeddedQuora.start(
+                "quora.auth.stateless-verification=" + "stateless".equals(mode),
+                "quora.auth.token-cache.max-size=" + ("database".equals(mode) ? 0 : 10000));
+        commonService = quora.getBean(CommonService.class);
+        tokens = quora.signInUsers(USERS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        quora.close();
+    }
+
+    @Benchmark
+    public UserAuthEntity commonProfiles() throws Exception {
+        next = (next + 1) & (USERS - 1);
+        return commonService.commonProfiles(tokens[next]);
+    }
+}
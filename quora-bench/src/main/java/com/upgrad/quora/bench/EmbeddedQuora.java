@@ -0,0 +1,112 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.ServiceConfiguration;
+import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The service layer on an in-memory H2 database, so the benchmarks that go through the DAOs run the same on any machine.
+ * Each instance gets its own database; data is seeded through the real sign up and sign in paths.
+ */
+final class EmbeddedQuora implements AutoCloseable {
+
+    static final String PASSWORD = "database_password1";
+
+    private static final String[] DEFAULTS = {
+            "spring.datasource.url=jdbc:h2:mem:quora-%s;DB_CLOSE_DELAY=-1",
+            // The application.yaml of quora-api is on the classpath too, replace its PostgreSQL settings
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "spring.jpa.open-in-view=false",
+            "spring.main.banner-mode=off",
+            "logging.level.root=warn",
+            "quora.jwt.active-key-id=k1",
+            "quora.jwt.keys.k1=3F8C5E2A9D4B7F1E6A0C3D8B5E2F9A4C7D1B6E3A0F5C8D2B9E4A7F1C6D3B0E5A",
+            // Seeding signs up every user, keep it quick unless a benchmark asks for the production cost
+            "quora.password.pbkdf2.iterations=1000",
+            // The duplicate question index reads PostgreSQL transaction ids at startup
+            "quora.duplicates.mode=off"
+    };
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @Import(ServiceConfiguration.class)
+    static class BenchConfiguration {
+    }
+
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedQuora(final ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * @param properties - "key=value" overrides of the defaults above
+     */
+    static EmbeddedQuora start(final String... properties) {
+        // Later values replace earlier ones, then everything is passed as command line arguments so it takes precedence over application.yaml
+        final Map<String, String> all = new LinkedHashMap<>();
+        for (String property : DEFAULTS) {
+            all.put(property.substring(0, property.indexOf('=')), property);
+        }
+        all.put("spring.datasource.url", String.format(DEFAULTS[0], UUID.randomUUID()));
+        for (String property : properties) {
+            all.put(property.substring(0, property.indexOf('=')), property);
+        }
+        final List<String> arguments = new ArrayList<>();
+        for (String property : all.values()) {
+            arguments.add("--" + property);
+        }
+        return new EmbeddedQuora(new SpringApplicationBuilder(BenchConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments.toArray(new String[0])));
+    }
+
+    <T> T getBean(final Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Signs up the given number of users and signs each of them in once.
+     * @return - one access token per user
+     */
+    String[] signInUsers(final int count) throws Exception {
+        final UserBusinessService userBusinessService = getBean(UserBusinessService.class);
+        final String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            final UserEntity user = new UserEntity();
+            user.setUuid(UUID.randomUUID().toString());
+            user.setFirstName("bench_firstname");
+            user.setLastName("bench_lastname");
+            user.setUserName("bench_user" + i);
+            user.setEmail("bench_user" + i + "@quora.io");
+            user.setPassword(PASSWORD);
+            user.setRole("nonadmin");
+            userBusinessService.signUp(user);
+            final UserAuthEntity token = userBusinessService.signin(user.getUserName(), PASSWORD);
+            tokens[i] = token.getAccessToken();
+        }
+        return tokens;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.upgrad.quora.bench;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation on the login path, before and after sharing one pre-keyed signer.
+ * Run with the GC profiler to compare allocation per login:
+ * java -jar quora-bench/target/benchmarks.jar JwtTokenProviderBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "3F8C5E2A9D4B7F1E6A0C3D8B5E2F9A4C7D1B6E3A0F5C8D2B9E4A7F1C6D3B0E5A";
+
+    private JwtTokenProvider tokenProvider;
+
+    private UserEntity user;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenProvider = new JwtTokenProvider("k1", Collections.singletonMap("k1", SECRET));
+        user = new UserEntity();
+        user.setId(1024);
+        user.setUuid(UUID.randomUUID().toString());
+        user.setRole("nonadmin");
+        token = tokenProvider.generateToken(UUID.randomUUID().toString(), user, ZonedDateTime.now(), ZonedDateTime.now().plusHours(8));
+    }
+
+    /**
+     * The previous sign in path: a new HMAC512 algorithm keyed with the user's password hash on every login.
+     */
+    @Benchmark
+    public String perLoginAlgorithm() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        final Algorithm algorithm = Algorithm.HMAC512(SECRET);
+        return JWT.create().withIssuer("https://quora.io")
+                .withKeyId(UUID.randomUUID().toString())
+                .withAudience(user.getUuid())
+                .withIssuedAt(Date.from(now.toInstant())).withExpiresAt(Date.from(now.plusHours(8).toInstant()))
+                .sign(algorithm);
+    }
+
+    @Benchmark
+    public String sharedProvider() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        return tokenProvider.generateToken(UUID.randomUUID().toString(), user, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String sharedProviderContended() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        return tokenProvider.generateToken(UUID.randomUUID().toString(), user, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public DecodedJWT verify() {
+        return tokenProvider.verifyToken(token);
+    }
+}
@@ -0,0 +1,56 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign up hashing as the service runs it: a new salt, then the configured hasher on the bounded hashing pool.
+ * Compared with PasswordHashingBenchmark this includes the hand-off to the pool, and with more request threads than
+ * pool threads the time spent queueing for it.
+ * java -jar quora-bench/target/benchmarks.jar PasswordCryptographyProviderBenchmark -p iterations=210000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordCryptographyProviderBenchmark {
+
+    @Param({"210000"})
+    public int iterations;
+
+    @Param({"2"})
+    public int poolThreads;
+
+    private EmbeddedQuora quora;
+
+    private PasswordCryptographyProvider cryptographyProvider;
+
+    @Setup
+    public void setUp() {
+        quora = EmbeddedQuora.start(
+                "quora.password.pbkdf2.iterations=" + iterations,
+                "quora.password.executor.threads=" + poolThreads,
+                "quora.password.executor.wait-timeout-ms=60000");
+        cryptographyProvider = quora.getBean(PasswordCryptographyProvider.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        quora.close();
+    }
+
+    @Benchmark
+    public String[] encrypt() {
+        return cryptographyProvider.encrypt(EmbeddedQuora.PASSWORD);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String[] encryptContended() {
+        return cryptographyProvider.encrypt(EmbeddedQuora.PASSWORD);
+    }
+}
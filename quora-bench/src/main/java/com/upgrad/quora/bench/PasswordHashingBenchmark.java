@@ -0,0 +1,67 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.Argon2PasswordHasher;
+import com.upgrad.quora.service.business.PasswordHasher;
+import com.upgrad.quora.service.business.Pbkdf2PasswordHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one password hash for a range of parameters, used to calibrate quora.password.* for the target hardware:
+ * pick the highest cost whose single-thread latency still fits the sign in budget, then size
+ * quora.password.executor.threads so that threads / latency covers the peak sign in rate.
+ * java -jar quora-bench/target/benchmarks.jar PasswordHashingBenchmark -p iterations=100000,210000,600000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    private static final char[] PASSWORD = "database_password1".toCharArray();
+
+    @State(Scope.Benchmark)
+    public static class Pbkdf2 {
+        @Param({"1000", "210000"})
+        public int iterations;
+
+        private final byte[] salt = new byte[32];
+
+        private PasswordHasher hasher;
+
+        @Setup
+        public void setUp() {
+            new SecureRandom().nextBytes(salt);
+            hasher = new Pbkdf2PasswordHasher(iterations, 512);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Argon2 {
+        @Param({"19456", "65536"})
+        public int memoryKb;
+
+        private final byte[] salt = new byte[32];
+
+        private PasswordHasher hasher;
+
+        @Setup
+        public void setUp() {
+            new SecureRandom().nextBytes(salt);
+            hasher = new Argon2PasswordHasher(memoryKb, 2, 1, 256);
+        }
+    }
+
+    @Benchmark
+    public String pbkdf2(final Pbkdf2 state) {
+        return state.hasher.hash(PASSWORD, state.salt);
+    }
+
+    @Benchmark
+    public String argon2id(final Argon2 state) {
+        return state.hasher.hash(PASSWORD, state.salt);
+    }
+}
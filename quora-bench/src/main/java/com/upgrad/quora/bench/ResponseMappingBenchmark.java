@@ -0,0 +1,61 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.api.controller.ResponseMapper;
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import com.upgrad.quora.api.model.QuestionDetailsResponse;
+import com.upgrad.quora.service.common.AnswerDetails;
+import com.upgrad.quora.service.common.QuestionAnswers;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy of the service results into the generated response models, for a page and for large listings.
+ * java -jar quora-bench/target/benchmarks.jar ResponseMappingBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseMappingBenchmark {
+
+    @Param({"20", "1000", "100000"})
+    public int rows;
+
+    private List<QuestionEntity> questions;
+
+    private QuestionAnswers questionAnswers;
+
+    @Setup
+    public void setUp() {
+        questions = new ArrayList<>(rows);
+        final List<AnswerDetails> answers = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            final QuestionEntity question = new QuestionEntity();
+            question.setId(i);
+            question.setUuid(UUID.randomUUID().toString());
+            question.setContent("bench_question_content_" + i);
+            question.setDate(ZonedDateTime.now());
+            questions.add(question);
+            answers.add(new AnswerDetails(UUID.randomUUID().toString(), "bench_answer_" + i));
+        }
+        questionAnswers = new QuestionAnswers("bench_question_content", answers);
+    }
+
+    @Benchmark
+    public List<QuestionDetailsResponse> questionDetails() {
+        return ResponseMapper.buildQuestionDetailsResponseList(questions);
+    }
+
+    @Benchmark
+    public List<AnswerDetailsResponse> answerDetails() {
+        return ResponseMapper.buildAnswerDetailsResponseList(questionAnswers);
+    }
+}
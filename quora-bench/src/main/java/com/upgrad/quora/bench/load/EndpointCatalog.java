@@ -0,0 +1,79 @@
+package com.upgrad.quora.bench.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The operations declared in the endpoints/*.json specifications of quora-api, each with its own statistics.
+ * Requests are reported against the operation whose method and path template they were sent to.
+ */
+final class EndpointCatalog {
+
+    private final Map<String, EndpointStats> endpoints;
+
+    private EndpointCatalog(final Map<String, EndpointStats> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    static EndpointCatalog load() throws IOException {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final Map<String, EndpointStats> endpoints = new LinkedHashMap<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:endpoints/*.json")) {
+            try (InputStream in = resource.getInputStream()) {
+                final JsonNode paths = objectMapper.readTree(in).path("paths");
+                final Iterator<Map.Entry<String, JsonNode>> pathEntries = paths.fields();
+                while (pathEntries.hasNext()) {
+                    final Map.Entry<String, JsonNode> pathEntry = pathEntries.next();
+                    final Iterator<Map.Entry<String, JsonNode>> operations = pathEntry.getValue().fields();
+                    while (operations.hasNext()) {
+                        final Map.Entry<String, JsonNode> operation = operations.next();
+                        if (!operation.getValue().has("operationId"))
+                            continue;
+                        final String method = operation.getKey().toUpperCase();
+                        endpoints.put(key(method, pathEntry.getKey()), new EndpointStats(method, pathEntry.getKey(),
+                                operation.getValue().get("operationId").asText()));
+                    }
+                }
+            }
+        }
+        if (endpoints.isEmpty())
+            throw new IllegalStateException("No endpoints/*.json specification on the classpath");
+        return new EndpointCatalog(endpoints);
+    }
+
+    /**
+     * @param method - HTTP method
+     * @param path   - path template, as written in the specification
+     * @throws IllegalArgumentException - if the specifications don't declare the operation
+     */
+    EndpointStats get(final String method, final String path) {
+        final EndpointStats endpoint = endpoints.get(key(method, path));
+        if (endpoint == null)
+            throw new IllegalArgumentException(method + " " + path + " is not declared in endpoints/*.json");
+        return endpoint;
+    }
+
+    Collection<EndpointStats> all() {
+        return new ArrayList<>(endpoints.values());
+    }
+
+    void reset() {
+        for (EndpointStats endpoint : endpoints.values()) {
+            endpoint.reset();
+        }
+    }
+
+    private static String key(final String method, final String path) {
+        return method + " " + path;
+    }
+}
@@ -0,0 +1,87 @@
+package com.upgrad.quora.bench.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error count of one endpoint, recorded concurrently by the virtual users.
+ */
+final class EndpointStats {
+
+    private final String method;
+
+    private final String path;
+
+    private final String operationId;
+
+    private final Recorder recorder = new Recorder(3);
+
+    private final LongAdder errors = new LongAdder();
+
+    private final AtomicReference<String> firstError = new AtomicReference<>();
+
+    EndpointStats(final String method, final String path, final String operationId) {
+        this.method = method;
+        this.path = path;
+        this.operationId = operationId;
+    }
+
+    /**
+     * @param latencyNanos - time from sending the request to reading the last byte of the response
+     * @param success      - false for transport errors and unexpected HTTP statuses
+     */
+    void record(final long latencyNanos, final boolean success) {
+        record(latencyNanos, success, null);
+    }
+
+    /**
+     * @param error - status and body of a failed call, the first one is kept to explain the error rate
+     */
+    void record(final long latencyNanos, final boolean success, final String error) {
+        recorder.recordValue(latencyNanos);
+        if (!success) {
+            errors.increment();
+            if (error != null)
+                firstError.compareAndSet(null, error);
+        }
+    }
+
+    /**
+     * Drops everything recorded so far, used at the end of the warm up.
+     */
+    void reset() {
+        recorder.getIntervalHistogram();
+        errors.reset();
+        firstError.set(null);
+    }
+
+    /**
+     * @return - the latencies recorded since the last reset, in nanoseconds
+     */
+    Histogram takeHistogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    long takeErrors() {
+        return errors.sumThenReset();
+    }
+
+    String takeFirstError() {
+        return firstError.getAndSet(null);
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    String getOperationId() {
+        return operationId;
+    }
+}
@@ -0,0 +1,61 @@
+package com.upgrad.quora.bench.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted choice of the next operation of a virtual user.
+ * The weights are percentages, the default favours reads the way a Q&A site does:
+ * "list-questions=25,question-feed=10,list-answers=20,list-questions-by-user=5,search-questions=5,user-profile=10,create-question=8,create-answer=15,sign-in=2"
+ */
+final class LoadMix {
+
+    enum Operation {
+        LIST_QUESTIONS, QUESTION_FEED, LIST_ANSWERS, LIST_QUESTIONS_BY_USER, SEARCH_QUESTIONS, USER_PROFILE, CREATE_QUESTION, CREATE_ANSWER, SIGN_IN
+    }
+
+    static final String DEFAULT = "list-questions=25,question-feed=10,list-answers=20,list-questions-by-user=5,search-questions=5,user-profile=10,"
+            + "create-question=8,create-answer=15,sign-in=2";
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final int[] cumulativeWeights = new int[OPERATIONS.length];
+
+    private final int totalWeight;
+
+    LoadMix(final String weights) {
+        final int[] byOperation = new int[OPERATIONS.length];
+        for (String weight : weights.split(",")) {
+            final String[] pair = weight.trim().split("=");
+            byOperation[Operation.valueOf(pair[0].trim().toUpperCase().replace('-', '_')).ordinal()] = Integer.parseInt(pair[1].trim());
+        }
+        int total = 0;
+        for (int i = 0; i < byOperation.length; i++) {
+            total += byOperation[i];
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0)
+            throw new IllegalArgumentException("The load mix has no operation: " + weights);
+        this.totalWeight = total;
+    }
+
+    Operation next() {
+        final int draw = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i])
+                return OPERATIONS[i];
+        }
+        return OPERATIONS[OPERATIONS.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder description = new StringBuilder();
+        int previous = 0;
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (cumulativeWeights[i] > previous)
+                description.append(description.length() == 0 ? "" : ", ").append(OPERATIONS[i]).append(' ').append(cumulativeWeights[i] - previous);
+            previous = cumulativeWeights[i];
+        }
+        return description.toString();
+    }
+}
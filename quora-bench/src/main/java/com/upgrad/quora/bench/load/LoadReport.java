@@ -0,0 +1,97 @@
+package com.upgrad.quora.bench.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Summary of a run: throughput, error rate and latency percentiles per endpoint, printed and written to
+ * summary.json, with the full distribution of each endpoint in its own .hgrm file (HdrHistogram plotter format).
+ * When the summary of an earlier run is given, the throughput and p99 of each endpoint are compared with it.
+ */
+final class LoadReport {
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private LoadReport() {
+    }
+
+    static void write(final EndpointCatalog catalog, final ObjectNode run, final double seconds, final Path directory,
+                      final Path baseline, final PrintStream out) throws IOException {
+        Files.createDirectories(directory);
+        final JsonNode previous = baseline == null ? null : OBJECT_MAPPER.readTree(baseline.toFile()).path("endpoints");
+        final ArrayNode endpoints = run.putArray("endpoints");
+
+        out.printf("%-28s %8s %9s %7s %9s %9s %9s %9s %9s%s%n", "operation", "count", "req/s", "err%",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", previous == null ? "" : "   vs baseline req/s, p99");
+        for (EndpointStats endpoint : catalog.all()) {
+            final Histogram histogram = endpoint.takeHistogram();
+            final long errors = endpoint.takeErrors();
+            final String firstError = endpoint.takeFirstError();
+            final long count = histogram.getTotalCount();
+            final ObjectNode summary = endpoints.addObject();
+            summary.put("operationId", endpoint.getOperationId());
+            summary.put("method", endpoint.getMethod());
+            summary.put("path", endpoint.getPath());
+            summary.put("count", count);
+            summary.put("errors", errors);
+            if (firstError != null)
+                summary.put("firstError", firstError);
+            if (count == 0)
+                continue;
+            final double throughput = count / seconds;
+            summary.put("throughput", throughput);
+            summary.put("errorRate", (double) errors / count);
+            summary.put("p50", millis(histogram.getValueAtPercentile(50)));
+            summary.put("p90", millis(histogram.getValueAtPercentile(90)));
+            summary.put("p99", millis(histogram.getValueAtPercentile(99)));
+            summary.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+            summary.put("max", millis(histogram.getMaxValue()));
+
+            out.printf("%-28s %8d %9.1f %7.2f %9.2f %9.2f %9.2f %9.2f %9.2f%s%n", endpoint.getOperationId(), count, throughput,
+                    100d * errors / count, summary.get("p50").asDouble(), summary.get("p90").asDouble(), summary.get("p99").asDouble(),
+                    summary.get("p999").asDouble(), summary.get("max").asDouble(), compare(previous, summary));
+
+            try (PrintStream distribution = new PrintStream(directory.resolve(endpoint.getOperationId() + ".hgrm").toFile(), "UTF-8")) {
+                histogram.outputPercentileDistribution(distribution, NANOS_PER_MILLI);
+            }
+        }
+        for (JsonNode summary : endpoints) {
+            if (summary.has("firstError"))
+                out.println(summary.get("operationId").asText() + " failed with " + summary.get("firstError").asText());
+        }
+        OBJECT_MAPPER.writeValue(directory.resolve("summary.json").toFile(), run);
+        out.println("Results written to " + directory.toAbsolutePath());
+    }
+
+    private static String compare(final JsonNode previous, final ObjectNode summary) {
+        if (previous == null)
+            return "";
+        for (JsonNode endpoint : previous) {
+            if (endpoint.path("operationId").asText().equals(summary.get("operationId").asText()) && endpoint.has("p99")) {
+                return String.format("   %+6.1f%%, %+6.1f%%",
+                        change(endpoint.get("throughput").asDouble(), summary.get("throughput").asDouble()),
+                        change(endpoint.get("p99").asDouble(), summary.get("p99").asDouble()));
+            }
+        }
+        return "   (new)";
+    }
+
+    private static double change(final double before, final double after) {
+        return before == 0 ? 0 : 100d * (after - before) / before;
+    }
+
+    private static double millis(final long nanos) {
+        return Math.round(nanos / NANOS_PER_MILLI * 1000d) / 1000d;
+    }
+}
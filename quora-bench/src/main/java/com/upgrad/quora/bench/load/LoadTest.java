@@ -0,0 +1,141 @@
+package com.upgrad.quora.bench.load;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.upgrad.quora.api.QuoraApiApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.flywaydb.core.Flyway;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end load run: the whole application over HTTP on a throwaway PostgreSQL with the schema of quora-db,
+ * driven by a fixed number of virtual users for a warmup period and then a measured period.
+ * The latency of every call is recorded per endpoint declared in endpoints/*.json; the summary is printed and written,
+ * with the full distributions, to load.output/load.label so that runs can be compared with load.baseline.
+ * mvn -B install -DskipTests && mvn -B -pl quora-bench -Pload verify -Dload.users=32 -Dload.duration-seconds=120
+ * Users are closed-loop (each waits for its response before the next call), so latency is measured at the load
+ * the server can take rather than at a fixed arrival rate; raise load.users to find the knee.
+ * Arguments are passed on to the application, e.g. --quora.password.pbkdf2.iterations=1000 to take hashing out of the picture.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final int users = Integer.getInteger("load.users", 16);
+        final int warmupSeconds = Integer.getInteger("load.warmup-seconds", 10);
+        final int durationSeconds = Integer.getInteger("load.duration-seconds", 60);
+        final long thinkMillis = Long.getLong("load.think-ms", 0);
+        final LoadMix mix = new LoadMix(System.getProperty("load.mix", LoadMix.DEFAULT));
+        final String label = System.getProperty("load.label", new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        final Path output = Paths.get(System.getProperty("load.output", "target/load")).resolve(label);
+        final String baseline = System.getProperty("load.baseline");
+
+        // Spring Boot configures logging once the application starts, keep PostgreSQL and Flyway quiet until then
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        final EndpointCatalog catalog = EndpointCatalog.load();
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            final DataSource dataSource = postgres.getPostgresDatabase();
+            createSchema(dataSource);
+
+            final List<String> defaults = Arrays.asList("--server.port=0",
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=",
+                    "--spring.flyway.enabled=false",
+                    // The tokens of a throwaway run don't need a secret key
+                    "--spring.profiles.active=dev",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=warn");
+            // Repeated options are joined with a comma by Spring, let the arguments replace the defaults instead
+            final Map<String, String> arguments = new LinkedHashMap<>();
+            for (String argument : defaults) {
+                arguments.put(argument.substring(0, argument.indexOf('=')), argument);
+            }
+            for (String argument : args) {
+                arguments.put(argument.contains("=") ? argument.substring(0, argument.indexOf('=')) : argument, argument);
+            }
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(QuoraApiApplication.class)
+                    .run(arguments.values().toArray(new String[0]))) {
+                final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                final QuoraClient client = new QuoraClient("http://localhost:" + port + "/api", catalog);
+
+                System.out.printf("%d users, %ds warmup, %ds measured, mix %s%n", users, warmupSeconds, durationSeconds, mix);
+                final RecentIds questions = new RecentIds(1024);
+                final RecentIds userIds = new RecentIds(1024);
+                final List<VirtualUser> virtualUsers = new ArrayList<>();
+                final List<Thread> threads = new ArrayList<>();
+                for (int i = 0; i < users; i++) {
+                    final VirtualUser virtualUser = new VirtualUser(i, client, questions, userIds, mix, thinkMillis);
+                    final Thread thread = new Thread(virtualUser, "load-user-" + i);
+                    thread.setDaemon(true);
+                    virtualUsers.add(virtualUser);
+                    threads.add(thread);
+                    thread.start();
+                }
+
+                TimeUnit.SECONDS.sleep(warmupSeconds);
+                catalog.reset();
+                final long start = System.nanoTime();
+                TimeUnit.SECONDS.sleep(durationSeconds);
+                // Take the results before stopping, the calls in flight at the end are not part of the measured period
+                final double seconds = (System.nanoTime() - start) / 1e9;
+                final ObjectNode run = JsonNodeFactory.instance.objectNode();
+                run.put("label", label);
+                run.put("users", users);
+                run.put("durationSeconds", seconds);
+                run.put("thinkMillis", thinkMillis);
+                run.put("mix", mix.toString());
+                LoadReport.write(catalog, run, seconds, output, baseline == null ? null : Paths.get(baseline), System.out);
+
+                for (VirtualUser virtualUser : virtualUsers) {
+                    virtualUser.stop();
+                }
+                for (Thread thread : threads) {
+                    thread.join(TimeUnit.SECONDS.toMillis(10));
+                }
+            }
+        }
+    }
+
+    /**
+     * The schema the application runs on in production: quora.sql followed by the Flyway migrations of quora-db
+     */
+    private static void createSchema(final DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("sql/quora.sql"));
+            // quora.sql inserts its admin with an explicit id, keep new users clear of it
+            statement.execute("SELECT setval(pg_get_serial_sequence('users', 'id'), 1024)");
+        }
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:sql/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,129 @@
+package com.upgrad.quora.bench.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Minimal HTTP client of the quora API which times every call against its endpoint in the catalog.
+ * Connections are kept alive by the JDK between calls of the same thread.
+ */
+final class QuoraClient {
+
+    /**
+     * Status, body and headers of a response; status is -1 when the request failed before a response was read.
+     */
+    static final class Response {
+        final int status;
+        final String body;
+        final HttpURLConnection connection;
+
+        Response(final int status, final String body, final HttpURLConnection connection) {
+            this.status = status;
+            this.body = body;
+            this.connection = connection;
+        }
+
+        String header(final String name) {
+            return connection == null ? null : connection.getHeaderField(name);
+        }
+    }
+
+    private final String baseUrl;
+
+    private final EndpointCatalog catalog;
+
+    QuoraClient(final String baseUrl, final EndpointCatalog catalog) {
+        this.baseUrl = baseUrl;
+        this.catalog = catalog;
+    }
+
+    /**
+     * @param method         - HTTP method
+     * @param path           - path template from the specification, its {variables} are replaced in order
+     * @param query          - query parameters, may be null
+     * @param authorization  - authorization header, may be null
+     * @param expectedStatus - status counted as a success
+     * @param variables      - values of the path variables
+     */
+    Response call(final String method, final String path, final Map<String, String> query, final String authorization,
+                  final int expectedStatus, final String... variables) {
+        final EndpointStats endpoint = catalog.get(method, path);
+        final String url = baseUrl + expand(path, variables) + queryString(query);
+        final long start = System.nanoTime();
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("Accept", "application/json");
+            // Bodies are bound from query parameters, but POST and PUT endpoints declare a JSON content type
+            connection.setRequestProperty("Content-Type", "application/json");
+            if (authorization != null)
+                connection.setRequestProperty("authorization", authorization);
+            final int status = connection.getResponseCode();
+            final String body = read(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+            endpoint.record(System.nanoTime() - start, status == expectedStatus,
+                    status == expectedStatus ? null : status + " " + body);
+            return new Response(status, body, connection);
+        } catch (IOException e) {
+            endpoint.record(System.nanoTime() - start, false, e.toString());
+            if (connection != null)
+                connection.disconnect();
+            return new Response(-1, null, null);
+        }
+    }
+
+    private static String expand(final String path, final String[] variables) {
+        final StringBuilder expanded = new StringBuilder(path.length() + 64);
+        int variable = 0;
+        int from = 0;
+        int open;
+        while ((open = path.indexOf('{', from)) >= 0) {
+            expanded.append(path, from, open).append(encode(variables[variable++]));
+            from = path.indexOf('}', open) + 1;
+        }
+        return expanded.append(path.substring(from)).toString();
+    }
+
+    private static String queryString(final Map<String, String> query) {
+        if (query == null || query.isEmpty())
+            return "";
+        final StringBuilder queryString = new StringBuilder();
+        for (Map.Entry<String, String> parameter : query.entrySet()) {
+            queryString.append(queryString.length() == 0 ? '?' : '&')
+                    .append(encode(parameter.getKey())).append('=').append(encode(parameter.getValue()));
+        }
+        return queryString.toString();
+    }
+
+    private static String encode(final String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the whole body, which also lets the JDK reuse the connection
+     */
+    private static String read(final InputStream in) throws IOException {
+        if (in == null)
+            return "";
+        try (InputStream body = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.upgrad.quora.bench.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size ring of the latest ids created during the run, shared by the virtual users to pick the targets of their reads.
+ */
+final class RecentIds {
+
+    private final AtomicReferenceArray<String> ids;
+
+    private final AtomicLong added = new AtomicLong();
+
+    RecentIds(final int capacity) {
+        this.ids = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(final String id) {
+        if (id != null)
+            ids.set((int) (added.getAndIncrement() % ids.length()), id);
+    }
+
+    /**
+     * @return - one of the latest ids at random, null if none was added yet
+     */
+    String random() {
+        final long size = Math.min(added.get(), ids.length());
+        if (size == 0)
+            return null;
+        return ids.get(ThreadLocalRandom.current().nextInt((int) size));
+    }
+}
@@ -0,0 +1,177 @@
+package com.upgrad.quora.bench.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One simulated user: signs up and signs in, then loops over a weighted mix of reads and writes until the run stops.
+ * Users don't wait between calls unless a think time is set, so the run measures the throughput at the given concurrency.
+ */
+final class VirtualUser implements Runnable {
+
+    private static final String PASSWORD = "load_password1";
+
+    // Questions and answers are written with these words, and searched for one or two of them
+    private static final String[] WORDS = {"java", "postgres", "index", "query", "cache", "thread", "latency", "memory",
+            "heap", "lock", "transaction", "replica", "batch", "cursor", "token", "hash", "spring", "hibernate", "session",
+            "deadlock", "vacuum", "plan", "join", "keyset", "timeout", "retry", "queue", "metric", "histogram", "percentile"};
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final int index;
+
+    private final QuoraClient client;
+
+    private final RecentIds questions;
+
+    private final RecentIds users;
+
+    private final LoadMix mix;
+
+    private final long thinkMillis;
+
+    private volatile boolean running = true;
+
+    private String userName;
+
+    private String userUuid;
+
+    private String accessToken;
+
+    VirtualUser(final int index, final QuoraClient client, final RecentIds questions, final RecentIds users,
+                final LoadMix mix, final long thinkMillis) {
+        this.index = index;
+        this.client = client;
+        this.questions = questions;
+        this.users = users;
+        this.mix = mix;
+        this.thinkMillis = thinkMillis;
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        int generation = 0;
+        while (running && !signUp(generation++)) {
+            pause();
+        }
+        while (running) {
+            final LoadMix.Operation operation = mix.next();
+            if (accessToken == null || operation == LoadMix.Operation.SIGN_IN)
+                signIn();
+            else
+                step(operation);
+            pause();
+        }
+    }
+
+    private void step(final LoadMix.Operation operation) {
+        final String bearer = accessToken;
+        switch (operation) {
+            case LIST_QUESTIONS:
+                client.call("GET", "/question/all", Collections.singletonMap("limit", "20"), bearer, 200);
+                break;
+            case QUESTION_FEED:
+                client.call("GET", "/question/feed", Collections.singletonMap("limit", "20"), bearer, 200);
+                break;
+            case LIST_QUESTIONS_BY_USER:
+                client.call("GET", "/question/all/{userId}", Collections.singletonMap("limit", "20"), bearer, 200, pick(users, userUuid));
+                break;
+            case LIST_ANSWERS:
+                final String listed = questions.random();
+                if (listed != null)
+                    client.call("GET", "/answer/all/{questionId}", null, bearer, 200, listed);
+                break;
+            case SEARCH_QUESTIONS:
+                final Map<String, String> search = new LinkedHashMap<>();
+                search.put("q", words(1 + ThreadLocalRandom.current().nextInt(2)));
+                search.put("limit", "20");
+                client.call("GET", "/question/search", search, bearer, 200);
+                break;
+            case USER_PROFILE:
+                client.call("GET", "/userprofile/{userId}", null, bearer, 200, pick(users, userUuid));
+                break;
+            case CREATE_QUESTION:
+                questions.add(id(client.call("POST", "/question/create",
+                        Collections.singletonMap("content", "load question about " + words(4)), bearer, 201)));
+                break;
+            case CREATE_ANSWER:
+                final String answered = questions.random();
+                if (answered != null)
+                    // answer.json declares 201, the controller answers 200
+                    client.call("POST", "/question/{questionId}/answer/create",
+                            Collections.singletonMap("answer", "load answer with " + words(4)), bearer, 200, answered);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean signUp(final int generation) {
+        userName = "load_user_" + index + "_" + generation + "_" + System.nanoTime();
+        final Map<String, String> query = new LinkedHashMap<>();
+        query.put("firstName", "load_firstname");
+        query.put("lastName", "load_lastname");
+        query.put("userName", userName);
+        query.put("emailAddress", userName + "@quora.io");
+        query.put("password", PASSWORD);
+        query.put("country", "India");
+        query.put("aboutMe", "load test user");
+        query.put("dob", "01-01-1990");
+        query.put("contactNumber", "1234567890");
+        userUuid = id(client.call("POST", "/user/signup", query, null, 201));
+        users.add(userUuid);
+        return userUuid != null;
+    }
+
+    private void signIn() {
+        final String credentials = Base64.getEncoder().encodeToString((userName + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+        final QuoraClient.Response response = client.call("POST", "/user/signin", null, "Basic " + credentials, 200);
+        if (response.status == 200)
+            accessToken = response.header("access_token");
+    }
+
+    private void pause() {
+        if (thinkMillis <= 0)
+            return;
+        try {
+            Thread.sleep(thinkMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static String words(final int count) {
+        final StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            words.append(i == 0 ? "" : " ").append(WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)]);
+        }
+        return words.toString();
+    }
+
+    private static String pick(final RecentIds ids, final String fallback) {
+        final String id = ids.random();
+        return id == null ? fallback : id;
+    }
+
+    private static String id(final QuoraClient.Response response) {
+        if (response.status < 200 || response.status >= 300)
+            return null;
+        try {
+            return OBJECT_MAPPER.readTree(response.body).path("id").asText(null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
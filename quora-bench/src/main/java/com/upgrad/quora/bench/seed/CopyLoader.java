@@ -0,0 +1,100 @@
+package com.upgrad.quora.bench.seed;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Streams rows into a table with COPY FROM STDIN in CSV format. Rows are read on the calling thread in chunks, each chunk
+ * is turned into CSV (password hashing included) on the worker pool, and the finished chunks are written to the single
+ * COPY stream as they complete, so the row order is not kept. At most two chunks per worker are in flight, which bounds
+ * memory whatever the size of the input.
+ */
+final class CopyLoader {
+
+    private final ExecutorService executor;
+
+    private final int workers;
+
+    private final int chunkSize;
+
+    CopyLoader(final ExecutorService executor, final int workers, final int chunkSize) {
+        this.executor = executor;
+        this.workers = workers;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param connection - connection of the current transaction
+     * @param copySql - COPY ... FROM STDIN (FORMAT csv) statement
+     * @param rows - input rows, consumed once
+     * @param toColumns - values of the COPY columns for one row, null for SQL NULL; called on the workers
+     * @return - number of rows copied
+     */
+    long copy(final Connection connection, final String copySql, final Iterator<Map<String, String>> rows,
+              final Function<Map<String, String>, String[]> toColumns) throws SQLException, InterruptedException {
+        final CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+        final CompletionService<byte[]> chunks = new ExecutorCompletionService<>(executor);
+        int inFlight = 0;
+        try {
+            while (rows.hasNext()) {
+                final List<Map<String, String>> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && rows.hasNext()) {
+                    chunk.add(rows.next());
+                }
+                chunks.submit(() -> encode(chunk, toColumns));
+                if (++inFlight == 2 * workers) {
+                    write(copyIn, chunks);
+                    inFlight--;
+                }
+            }
+            for (; inFlight > 0; inFlight--) {
+                write(copyIn, chunks);
+            }
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive())
+                copyIn.cancelCopy();
+        }
+    }
+
+    private static void write(final CopyIn copyIn, final CompletionService<byte[]> chunks) throws SQLException, InterruptedException {
+        final byte[] chunk;
+        try {
+            chunk = chunks.take().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        copyIn.writeToCopy(chunk, 0, chunk.length);
+    }
+
+    private static byte[] encode(final List<Map<String, String>> chunk, final Function<Map<String, String>, String[]> toColumns) {
+        final StringBuilder csv = new StringBuilder(chunk.size() * 128);
+        for (Map<String, String> row : chunk) {
+            final String[] columns = toColumns.apply(row);
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0)
+                    csv.append(',');
+                // Unquoted empty is NULL in COPY's CSV format, quoted empty is the empty string
+                if (columns[i] != null)
+                    csv.append('"').append(columns[i].replace("\"", "\"\"")).append('"');
+            }
+            csv.append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package com.upgrad.quora.bench.seed;
+
+import com.upgrad.quora.service.business.Argon2PasswordHasher;
+import com.upgrad.quora.service.business.PasswordHasher;
+import com.upgrad.quora.service.business.Pbkdf2PasswordHasher;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Hashes imported passwords the way sign up does: a random 32 byte salt and the hasher of quora.password.algorithm,
+ * configured from the same quora.password.* keys (as system properties) with the same defaults as application.yaml.
+ * Safe to call from any number of threads.
+ */
+final class PasswordPreHasher {
+
+    private final PasswordHasher hasher;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private PasswordPreHasher(final PasswordHasher hasher) {
+        this.hasher = hasher;
+    }
+
+    static PasswordPreHasher fromSystemProperties() {
+        final String algorithm = System.getProperty("quora.password.algorithm", Pbkdf2PasswordHasher.ALGORITHM);
+        if (Argon2PasswordHasher.ALGORITHM.equals(algorithm))
+            return new PasswordPreHasher(new Argon2PasswordHasher(
+                    Integer.getInteger("quora.password.argon2.memory-kb", 19456),
+                    Integer.getInteger("quora.password.argon2.iterations", 2),
+                    Integer.getInteger("quora.password.argon2.parallelism", 1),
+                    Integer.getInteger("quora.password.argon2.key-length", 256)));
+        if (Pbkdf2PasswordHasher.ALGORITHM.equals(algorithm))
+            return new PasswordPreHasher(new Pbkdf2PasswordHasher(
+                    Integer.getInteger("quora.password.pbkdf2.iterations", 210000),
+                    Integer.getInteger("quora.password.pbkdf2.key-length", 512)));
+        throw new IllegalArgumentException("Unknown password hashing algorithm " + algorithm);
+    }
+
+    /**
+     * @param password - raw password
+     * @return - [0] encoded salt, [1] encoded hash, as stored in users.salt and users.password
+     */
+    String[] hash(final String password) {
+        final byte[] salt = new byte[32];
+        random.nextBytes(salt);
+        return new String[]{Base64.getEncoder().encodeToString(salt), hasher.hash(password.toCharArray(), salt)};
+    }
+
+    String getAlgorithm() {
+        return hasher.getAlgorithm();
+    }
+}
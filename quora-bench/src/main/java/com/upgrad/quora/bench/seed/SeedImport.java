@@ -0,0 +1,214 @@
+package com.upgrad.quora.bench.seed;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline bulk load of users, questions and answers into a database with the schema of quora-db, for staging and benchmarks.
+ * Rows go through COPY and one INSERT ... SELECT per table (see {@link SeedTable}) instead of the sign up and create
+ * endpoints; raw passwords are hashed in parallel on seed.threads workers (all cores by default) with the quora.password.*
+ * settings of the application.
+ * Either seed.input names a directory holding users, questions and answers files (.ndjson, .jsonl or .csv with a header
+ * row, each optional), or seed.generate.users asks for a synthetic dataset of that many users, with
+ * seed.generate.questions-per-user questions each and seed.generate.answers-per-question answers per question, all
+ * signing in with seed.generate.password.
+ * mvn -B install -DskipTests && mvn -B -pl quora-bench -Pseed verify -Dseed.url=jdbc:postgresql://localhost:5432/quora
+ * -Dseed.username=postgres -Dseed.password=12345 -Dseed.generate.users=1000000
+ * Each table is loaded in its own transaction, then the question_feed rows are recounted from the answers. Ids are reserved on the sequences up front, so run it while the application
+ * is not writing.
+ */
+public final class SeedImport {
+
+    // Scalars of any JSON type are read as text
+    private static final TypeReference<Map<String, String>> ROW = new TypeReference<Map<String, String>>() {
+    };
+
+    private static final String FEED_RECOUNT = "insert into question_feed (question_id, answer_count, last_answer_at, last_activity_at)"
+            + " select q.id, count(a.id), max(a.date), greatest(q.date, max(a.date)) from question q left join answer a on a.question_id = q.id group by q.id"
+            + " on conflict (question_id) do update set answer_count = excluded.answer_count, last_answer_at = excluded.last_answer_at,"
+            + " last_activity_at = excluded.last_activity_at"
+            + " where (question_feed.answer_count, question_feed.last_answer_at, question_feed.last_activity_at)"
+            + " is distinct from (excluded.answer_count, excluded.last_answer_at, excluded.last_activity_at)";
+
+    private SeedImport() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final String url = System.getProperty("seed.url");
+        final String input = System.getProperty("seed.input");
+        final long generateUsers = Long.getLong("seed.generate.users", 0);
+        if (url == null || (input == null) == (generateUsers == 0))
+            throw new IllegalArgumentException("Set seed.url, and either seed.input or seed.generate.users");
+        final int threads = Integer.getInteger("seed.threads", Runtime.getRuntime().availableProcessors());
+        final int chunkSize = Integer.getInteger("seed.chunk-size", 1000);
+
+        final PasswordPreHasher passwords = PasswordPreHasher.fromSystemProperties();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "seed-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (Connection connection = DriverManager.getConnection(url,
+                System.getProperty("seed.username", "postgres"), System.getProperty("seed.password", ""))) {
+            connection.setAutoCommit(false);
+            final CopyLoader copyLoader = new CopyLoader(executor, threads, chunkSize);
+            if (input == null) {
+                final SyntheticDataset dataset = new SyntheticDataset(generateUsers,
+                        Long.getLong("seed.generate.questions-per-user", 5),
+                        Long.getLong("seed.generate.answers-per-question", 3),
+                        Long.getLong("seed.generate.seed", 42),
+                        hashAll(executor, passwords, System.getProperty("seed.generate.password", "database_password1"),
+                                Integer.getInteger("seed.generate.salts", 64)));
+                load(connection, copyLoader, passwords, SeedTable.USERS, dataset.users());
+                load(connection, copyLoader, passwords, SeedTable.QUESTIONS, dataset.questions());
+                load(connection, copyLoader, passwords, SeedTable.ANSWERS, dataset.answers());
+            } else {
+                for (SeedTable table : SeedTable.values()) {
+                    final Path file = find(Paths.get(input), table.fileName());
+                    if (file == null) {
+                        System.out.printf("%-9s no %s.ndjson, .jsonl or .csv in %s%n", table.table(), table.fileName(), input);
+                        continue;
+                    }
+                    try (MappingIterator<Map<String, String>> rows = read(file)) {
+                        load(connection, copyLoader, passwords, table, rows);
+                    }
+                }
+            }
+            // The answers went in without going through the feed, count them from scratch
+            try (Statement statement = connection.createStatement()) {
+                final long start = System.nanoTime();
+                final long counted = statement.executeLargeUpdate(FEED_RECOUNT);
+                connection.commit();
+                System.out.printf("%-9s %,d questions counted in %.1fs%n", "feed", counted, (System.nanoTime() - start) / 1e9);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            // Fresh statistics for the planner, the tables may have grown by orders of magnitude. A plain analyze would leave
+            // the new rows in the pending lists of the GIN search indexes, which the planner then prices as too slow to use
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                for (SeedTable table : SeedTable.values()) {
+                    statement.execute("vacuum analyze " + table.table());
+                }
+                statement.execute("vacuum analyze question_feed");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void load(final Connection connection, final CopyLoader copyLoader, final PasswordPreHasher passwords,
+                             final SeedTable table, final Iterator<Map<String, String>> rows) throws SQLException, InterruptedException {
+        final long start = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(table.createStaging());
+            final long staged = copyLoader.copy(connection, table.copy(), rows, row -> table.columns(row, passwords));
+            final long inserted;
+            try (PreparedStatement insert = connection.prepareStatement(table.insert())) {
+                insert.setLong(1, reserveIds(connection, table.table(), staged));
+                inserted = insert.executeLargeUpdate();
+            }
+            connection.commit();
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-9s %,d rows read, %,d inserted, %,d skipped in %.1fs (%,.0f rows/s)%n",
+                    table.table(), staged, inserted, staged - inserted, seconds, inserted / seconds);
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes count ids from the table's sequence in one go. The application's pooled generators own the increment_by ids
+     * up to each value nextval returned them, so the block is taken the same way: from the values up to a nextval, on
+     * to a setval. The sequence is first moved past the ids rows were inserted with explicitly.
+     * @return - first id of the block
+     */
+    private static long reserveIds(final Connection connection, final String table, final long count) throws SQLException {
+        final String sequence = queryString(connection, "select pg_get_serial_sequence(?, 'id')", table);
+        queryString(connection, "select setval(?::regclass, greatest((select last_value from " + sequence + "), (select coalesce(max(id), 0) from " + table + ")))", sequence);
+        final long increment = Long.parseLong(queryString(connection, "select seqincrement from pg_sequence where seqrelid = ?::regclass", sequence));
+        final long last = Long.parseLong(queryString(connection, "select nextval(?::regclass)", sequence));
+        final long first = last - increment + 1;
+        final long blocks = (Math.max(0, count - increment) + increment - 1) / increment;
+        if (blocks > 0)
+            queryString(connection, "select setval(?::regclass, " + (last + blocks * increment) + ")", sequence);
+        return first;
+    }
+
+    private static String queryString(final Connection connection, final String sql, final String parameter) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, parameter);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        }
+    }
+
+    /**
+     * The shared password of the synthetic users, hashed with as many salts on the workers
+     */
+    private static List<String[]> hashAll(final ExecutorService executor, final PasswordPreHasher passwords,
+                                          final String password, final int salts) throws Exception {
+        final List<Future<String[]>> hashes = new ArrayList<>(salts);
+        for (int i = 0; i < salts; i++) {
+            hashes.add(executor.submit(() -> passwords.hash(password)));
+        }
+        final List<String[]> hashed = new ArrayList<>(salts);
+        for (Future<String[]> hash : hashes) {
+            hashed.add(hash.get());
+        }
+        System.out.printf("%d %s hashes of the shared password, synthetic users sign in with it%n", salts, passwords.getAlgorithm());
+        return Collections.unmodifiableList(hashed);
+    }
+
+    private static Path find(final Path directory, final String name) {
+        for (String extension : new String[]{".ndjson", ".jsonl", ".csv"}) {
+            final Path file = directory.resolve(name + extension);
+            if (Files.isRegularFile(file))
+                return file;
+        }
+        return null;
+    }
+
+    /**
+     * Streams the rows of one file: one JSON object per line, or CSV named by its header row
+     */
+    private static MappingIterator<Map<String, String>> read(final Path file) throws IOException {
+        final ObjectReader reader;
+        if (file.getFileName().toString().endsWith(".csv")) {
+            final CsvMapper csvMapper = new CsvMapper();
+            reader = csvMapper.readerFor(ROW).with(CsvSchema.emptySchema().withHeader());
+        } else {
+            reader = new ObjectMapper().readerFor(ROW);
+        }
+        return reader.readValues(file.toFile());
+    }
+}
@@ -0,0 +1,128 @@
+package com.upgrad.quora.bench.seed;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The tables an import fills, in load order. Each is copied into a temporary staging table first, then moved with one
+ * INSERT ... SELECT which resolves the uuid references to ids, takes ids from a block reserved on the table's sequence,
+ * and skips rows whose uuid, user name or email already exists or whose user or question is unknown.
+ * Input fields, by file:
+ * users - uuid, first_name, last_name, user_name, email, password, salt, country, about_me, dob, role, contact_number
+ * (password is the raw password, hashed during the import, unless salt is given too: then both are stored as they are)
+ * questions - uuid, content, date, user_uuid
+ * answers - uuid, answer, date, question_uuid, user_uuid
+ * A missing uuid is generated, a missing date is the time of the import, a missing role is nonadmin.
+ */
+enum SeedTable {
+
+    USERS("users",
+            "create temp table users_seed (uuid varchar(200), firstname varchar(30), lastname varchar(30), username varchar(30), " +
+                    "email varchar(50), password varchar(255), salt varchar(200), country varchar(30), aboutme varchar(50), " +
+                    "dob varchar(30), role varchar(30), contactnumber varchar(30)) on commit drop",
+            "copy users_seed from stdin (format csv)",
+            "insert into users (id, uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber) " +
+                    "select ? + row_number() over () - 1, uuid, firstname, lastname, username, email, password, salt, country, aboutme, " +
+                    "dob, role, contactnumber from users_seed on conflict do nothing") {
+        @Override
+        String[] columns(final Map<String, String> row, final PasswordPreHasher passwords) {
+            String salt = value(row, "salt");
+            String password = row.get("password");
+            if (salt == null && password != null) {
+                final String[] hashed = passwords.hash(password);
+                salt = hashed[0];
+                password = hashed[1];
+            }
+            return new String[]{uuid(row), row.get("first_name"), row.get("last_name"), row.get("user_name"), row.get("email"),
+                    password, salt, value(row, "country"), value(row, "about_me"), value(row, "dob"),
+                    value(row, "role") == null ? "nonadmin" : row.get("role"), value(row, "contact_number")};
+        }
+    },
+
+    QUESTIONS("question",
+            "create temp table question_seed (uuid varchar(200), content varchar(500), date timestamptz, user_uuid varchar(200)) on commit drop",
+            "copy question_seed from stdin (format csv)",
+            "insert into question (id, uuid, content, date, user_id) " +
+                    "select ? + row_number() over () - 1, s.uuid, s.content, coalesce(s.date, now()), u.id " +
+                    "from question_seed s join users u on u.uuid = s.user_uuid on conflict do nothing") {
+        @Override
+        String[] columns(final Map<String, String> row, final PasswordPreHasher passwords) {
+            return new String[]{uuid(row), row.get("content"), value(row, "date"), row.get("user_uuid")};
+        }
+    },
+
+    ANSWERS("answer",
+            "create temp table answer_seed (uuid varchar(200), ans varchar(255), date timestamptz, question_uuid varchar(200), " +
+                    "user_uuid varchar(200)) on commit drop",
+            "copy answer_seed from stdin (format csv)",
+            "insert into answer (id, uuid, ans, date, question_id, user_id) " +
+                    "select ? + row_number() over () - 1, s.uuid, s.ans, coalesce(s.date, now()), q.id, u.id " +
+                    "from answer_seed s join question q on q.uuid = s.question_uuid join users u on u.uuid = s.user_uuid " +
+                    "on conflict do nothing") {
+        @Override
+        String[] columns(final Map<String, String> row, final PasswordPreHasher passwords) {
+            return new String[]{uuid(row), row.get("answer"), value(row, "date"), row.get("question_uuid"), row.get("user_uuid")};
+        }
+    };
+
+    private final String table;
+
+    private final String createStaging;
+
+    private final String copy;
+
+    private final String insert;
+
+    SeedTable(final String table, final String createStaging, final String copy, final String insert) {
+        this.table = table;
+        this.createStaging = createStaging;
+        this.copy = copy;
+        this.insert = insert;
+    }
+
+    /**
+     * @param row - input fields
+     * @param passwords - hashes raw passwords
+     * @return - values of the staging table columns
+     */
+    abstract String[] columns(Map<String, String> row, PasswordPreHasher passwords);
+
+    /**
+     * @return - name of the input files of this table, without the extension
+     */
+    String fileName() {
+        return name().toLowerCase();
+    }
+
+    String table() {
+        return table;
+    }
+
+    String createStaging() {
+        return createStaging;
+    }
+
+    String copy() {
+        return copy;
+    }
+
+    /**
+     * @return - INSERT ... SELECT from the staging table, with the first reserved id as its only parameter
+     */
+    String insert() {
+        return insert;
+    }
+
+    /**
+     * Empty CSV fields are read as empty strings, optional fields treat them as absent
+     */
+    private static String value(final Map<String, String> row, final String field) {
+        final String value = row.get(field);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static String uuid(final Map<String, String> row) {
+        final String uuid = value(row, "uuid");
+        return uuid == null ? UUID.randomUUID().toString() : uuid;
+    }
+}
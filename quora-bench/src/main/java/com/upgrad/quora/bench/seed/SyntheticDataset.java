@@ -0,0 +1,182 @@
+package com.upgrad.quora.bench.seed;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generated users, questions and answers in the input format of {@link SeedTable}, produced lazily so any number of rows
+ * takes constant memory. The uuid of the n-th row of a kind is derived from the seed, the kind and n, which lets questions
+ * and answers refer to users and questions without keeping them, and makes a second run with the same seed a no-op.
+ * Questions are spread over the users and dated over the past year, oldest first; answers go to their question in turn,
+ * from random users, within a week of it. Every user shares the same password, hashed with one of a few salts.
+ */
+final class SyntheticDataset {
+
+    private static final String[] WORDS = {"how", "what", "why", "when", "which", "does", "should", "can", "is", "the",
+            "a", "to", "of", "in", "for", "with", "on", "java", "postgres", "index", "query", "cache", "thread", "pool",
+            "latency", "throughput", "memory", "garbage", "collector", "heap", "lock", "transaction", "replica", "batch",
+            "stream", "cursor", "page", "token", "password", "hash", "spring", "hibernate", "entity", "session", "flush",
+            "commit", "rollback", "deadlock", "vacuum", "plan", "scan", "join", "sort", "limit", "offset", "keyset", "json",
+            "http", "server", "client", "timeout", "retry", "queue", "worker", "metric", "histogram", "percentile"};
+
+    private static final String[] NAMES = {"Asha", "Ravi", "Meera", "Arjun", "Priya", "Kiran", "Neha", "Vikram", "Anita",
+            "Rahul", "Divya", "Suresh", "Lakshmi", "Manoj", "Pooja", "Sanjay"};
+
+    private static final String[] COUNTRIES = {"India", "Nepal", "Sri Lanka", "Bangladesh", "Singapore", "Germany", "Canada"};
+
+    private static final long USER = 1;
+    private static final long QUESTION = 2;
+    private static final long ANSWER = 3;
+
+    private final long users;
+
+    private final long questions;
+
+    private final long answersPerQuestion;
+
+    private final long seed;
+
+    private final String tag;
+
+    private final List<String[]> hashedPasswords;
+
+    private final Instant end = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private final Instant start = end.minus(365, ChronoUnit.DAYS);
+
+    /**
+     * @param users - number of users
+     * @param questionsPerUser - questions per user on average
+     * @param answersPerQuestion - answers per question
+     * @param seed - fixes the generated rows, uuids included
+     * @param hashedPasswords - [salt, hash] pairs of the shared password, handed out to the users in turn
+     */
+    SyntheticDataset(final long users, final long questionsPerUser, final long answersPerQuestion, final long seed,
+                     final List<String[]> hashedPasswords) {
+        this.users = users;
+        this.questions = users * questionsPerUser;
+        this.answersPerQuestion = answersPerQuestion;
+        this.seed = seed;
+        // Keeps the user names and emails of datasets with different seeds apart
+        this.tag = Long.toString(new Random(seed).nextLong() & 0xFFFFFL, 36);
+        this.hashedPasswords = hashedPasswords;
+    }
+
+    Iterator<Map<String, String>> users() {
+        return new Rows(users, USER) {
+            @Override
+            Map<String, String> row(final long n, final Random random) {
+                final String[] hashed = hashedPasswords.get((int) (n % hashedPasswords.size()));
+                final Map<String, String> row = new LinkedHashMap<>();
+                row.put("uuid", uuid(USER, n));
+                row.put("first_name", NAMES[random.nextInt(NAMES.length)]);
+                row.put("last_name", NAMES[random.nextInt(NAMES.length)]);
+                row.put("user_name", userName(n));
+                row.put("email", userName(n) + "@seed.quora.io");
+                row.put("salt", hashed[0]);
+                row.put("password", hashed[1]);
+                row.put("country", COUNTRIES[random.nextInt(COUNTRIES.length)]);
+                row.put("about_me", "Generated user " + n);
+                row.put("dob", String.format("%02d-%02d-%d", 1 + random.nextInt(28), 1 + random.nextInt(12), 1960 + random.nextInt(45)));
+                row.put("role", "nonadmin");
+                row.put("contact_number", String.valueOf(9000000000L + n));
+                return row;
+            }
+        };
+    }
+
+    Iterator<Map<String, String>> questions() {
+        return new Rows(questions, QUESTION) {
+            @Override
+            Map<String, String> row(final long n, final Random random) {
+                final Map<String, String> row = new LinkedHashMap<>();
+                row.put("uuid", uuid(QUESTION, n));
+                row.put("content", sentence(random, 6 + random.nextInt(30), 500, '?'));
+                row.put("date", questionDate(n).toString());
+                row.put("user_uuid", uuid(USER, n % users));
+                return row;
+            }
+        };
+    }
+
+    Iterator<Map<String, String>> answers() {
+        return new Rows(questions * answersPerQuestion, ANSWER) {
+            @Override
+            Map<String, String> row(final long n, final Random random) {
+                final long question = n / answersPerQuestion;
+                final Instant date = questionDate(question).plusSeconds(random.nextInt(7 * 24 * 3600));
+                final Map<String, String> row = new LinkedHashMap<>();
+                row.put("uuid", uuid(ANSWER, n));
+                row.put("answer", sentence(random, 4 + random.nextInt(25), 255, '.'));
+                row.put("date", (date.isAfter(end) ? end : date).toString());
+                row.put("question_uuid", uuid(QUESTION, question));
+                row.put("user_uuid", uuid(USER, (long) (random.nextDouble() * users)));
+                return row;
+            }
+        };
+    }
+
+    private String uuid(final long kind, final long n) {
+        return new UUID(seed << 8 | kind, n).toString();
+    }
+
+    private String userName(final long n) {
+        return "s" + tag + "-" + n;
+    }
+
+    private Instant questionDate(final long n) {
+        return start.plusSeconds((long) ((double) n / questions * ChronoUnit.SECONDS.between(start, end)));
+    }
+
+    private static String sentence(final Random random, final int words, final int maxLength, final char end) {
+        final StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            final String word = WORDS[random.nextInt(WORDS.length)];
+            if (sentence.length() + word.length() + 2 > maxLength)
+                break;
+            if (i > 0)
+                sentence.append(' ');
+            sentence.append(word);
+        }
+        sentence.setCharAt(0, Character.toUpperCase(sentence.charAt(0)));
+        return sentence.append(end).toString();
+    }
+
+    /**
+     * Rows 0 to count - 1 of one kind, generated in order with a random sequence of their own
+     */
+    private abstract class Rows implements Iterator<Map<String, String>> {
+
+        private final long count;
+
+        private final Random random;
+
+        private long next;
+
+        Rows(final long count, final long kind) {
+            this.count = count;
+            this.random = new Random(seed * 31 + kind);
+        }
+
+        abstract Map<String, String> row(long n, Random random);
+
+        @Override
+        public boolean hasNext() {
+            return next < count;
+        }
+
+        @Override
+        public Map<String, String> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return row(next++, random);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.upgrad.quora.bench.seed;
+
+import com.upgrad.quora.service.business.EncodedPassword;
+import com.upgrad.quora.service.business.Pbkdf2PasswordHasher;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//Checks on PostgreSQL that the COPY import loads every valid row once, skips duplicates and dangling references,
+//hashes raw passwords, counts the answers into the feed and keeps the sequences ahead of the ids it took.
+public class SeedImportTest {
+
+    private static final String USER_1 = "00000000-0000-0000-0000-000000000001";
+
+    private static final String USER_2 = "00000000-0000-0000-0000-000000000002";
+
+    private static final String QUESTION_1 = "00000000-0000-0000-0000-000000000011";
+
+    private static EmbeddedPostgres postgres;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Properties systemProperties = (Properties) System.getProperties().clone();
+
+    @BeforeClass
+    public static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("sql/quora.sql"));
+        }
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .locations("classpath:sql/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+    }
+
+    @AfterClass
+    public static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @After
+    public void tearDown() {
+        System.setProperties(systemProperties);
+        jdbcTemplate.execute("truncate table user_auth, answer, question_feed, question cascade");
+        // keep the admin of quora.sql
+        jdbcTemplate.execute("delete from users where uuid <> 'rdtrdtdyt'");
+    }
+
+    @Test
+    public void filesAreImportedOnceWithoutTheirBadRows() throws Exception {
+        File input = folder.newFolder("input");
+        write(input, "users.csv",
+                "uuid,first_name,last_name,user_name,email,password,salt,country,about_me,dob,role,contact_number",
+                USER_1 + ",first,last,seed_user1,seed_user1@quora.io,raw_password1,,India,,,,",
+                USER_2 + ",first,last,seed_user2,seed_user2@quora.io,stored-hash,stored-salt,India,,,admin,",
+                // user name of the admin of quora.sql, the rows of one file are not loaded in order
+                ",first,last,abhi,other@quora.io,raw_password1,,India,,,,");
+        write(input, "questions.ndjson",
+                "{\"uuid\":\"" + QUESTION_1 + "\",\"content\":\"First?\",\"date\":\"2020-01-01T00:00:00Z\",\"user_uuid\":\"" + USER_1 + "\"}",
+                "{\"uuid\":\"00000000-0000-0000-0000-000000000012\",\"content\":\"Second?\",\"user_uuid\":\"" + USER_2 + "\"}",
+                "{\"content\":\"Nobody's?\",\"user_uuid\":\"no-such-user\"}");
+        write(input, "answers.ndjson",
+                "{\"uuid\":\"00000000-0000-0000-0000-000000000021\",\"answer\":\"One\",\"date\":\"2020-01-02T00:00:00Z\",\"question_uuid\":\"" + QUESTION_1 + "\",\"user_uuid\":\"" + USER_2 + "\"}",
+                "{\"uuid\":\"00000000-0000-0000-0000-000000000022\",\"answer\":\"Two\",\"date\":\"2020-01-03T00:00:00Z\",\"question_uuid\":\"" + QUESTION_1 + "\",\"user_uuid\":\"" + USER_1 + "\"}",
+                "{\"answer\":\"Lost\",\"question_uuid\":\"no-such-question\",\"user_uuid\":\"" + USER_1 + "\"}");
+        configure("seed.input", input.getPath());
+
+        SeedImport.main(new String[0]);
+
+        assertEquals(2, count("users where role = 'nonadmin' or uuid = '" + USER_2 + "'"));
+        assertEquals(2, count("question"));
+        assertEquals(2, count("answer"));
+        Map<String, Object> first = jdbcTemplate.queryForMap("select password, salt from users where uuid = ?", USER_1);
+        assertTrue(new Pbkdf2PasswordHasher(1000, 512).matches("raw_password1".toCharArray(),
+                Base64.getDecoder().decode((String) first.get("salt")), EncodedPassword.parse((String) first.get("password"))));
+        assertEquals("stored-hash", jdbcTemplate.queryForObject("select password from users where uuid = ?", String.class, USER_2));
+        Map<String, Object> feed = jdbcTemplate.queryForMap("select f.answer_count, f.last_activity_at = (select max(date) from answer) as latest"
+                + " from question_feed f join question q on q.id = f.question_id where q.uuid = ?", QUESTION_1);
+        assertEquals(2, ((Number) feed.get("answer_count")).intValue());
+        assertEquals(Boolean.TRUE, feed.get("latest"));
+        assertEquals(2, count("question_feed"));
+
+        //The rows come back with the same uuids
+        SeedImport.main(new String[0]);
+
+        assertEquals(2, count("question"));
+        assertEquals(2, count("answer"));
+    }
+
+    @Test
+    public void generatedDatasetIsLoadedOnceWithTheSequencesAhead() throws Exception {
+        configure("seed.generate.users", "3");
+        System.setProperty("seed.generate.questions-per-user", "2");
+        System.setProperty("seed.generate.answers-per-question", "2");
+        System.setProperty("seed.generate.salts", "2");
+
+        SeedImport.main(new String[0]);
+        SeedImport.main(new String[0]);
+
+        assertEquals(3, count("users where role = 'nonadmin'"));
+        assertEquals(6, count("question"));
+        assertEquals(12, count("answer"));
+        assertEquals(0, count("question_feed where answer_count <> 2"));
+        for (String table : Arrays.asList("users", "question", "answer")) {
+            assertTrue(table, jdbcTemplate.queryForObject("select nextval(pg_get_serial_sequence('" + table + "', 'id'))"
+                    + " > (select max(id) from " + table + ")", Boolean.class));
+        }
+    }
+
+    private static void configure(final String key, final String value) {
+        System.setProperty("seed.url", postgres.getJdbcUrl("postgres", "postgres"));
+        System.setProperty("seed.threads", "2");
+        // one row per chunk, so that the chunks finish out of order
+        System.setProperty("seed.chunk-size", "1");
+        System.setProperty("quora.password.pbkdf2.iterations", "1000");
+        System.setProperty(key, value);
+    }
+
+    private static long count(final String from) {
+        return jdbcTemplate.queryForObject("select count(*) from " + from, Long.class);
+    }
+
+    private static void write(final File directory, final String name, final String... lines) throws Exception {
+        Files.write(new File(directory, name).toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
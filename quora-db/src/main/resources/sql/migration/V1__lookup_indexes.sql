@@ -0,0 +1,28 @@
+--Indexes for the columns every named query filters, joins or sorts on.
+--The indexes are built CONCURRENTLY so existing tables stay writable, which makes Flyway run this migration outside of a transaction.
+--If a build is interrupted PostgreSQL leaves an INVALID index behind: drop it and run the migration again.
+
+--USERS: getUserByUuid, deleteUserById. userName and email are already covered by their UNIQUE constraints
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS users_uuid_uk ON users (uuid);
+
+--USER_AUTH: authTokenbyAcessToken is an equality lookup on a long token, a hash index keeps it small
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS user_auth_uuid_uk ON user_auth (uuid);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS user_auth_access_token_hash ON user_auth USING hash (access_token);
+--Foreign key, used by the cascade when a user is deleted
+CREATE INDEX CONCURRENTLY IF NOT EXISTS user_auth_user_id_idx ON user_auth (user_id);
+--revokedAccessTokens: only the signed out tokens are indexed
+CREATE INDEX CONCURRENTLY IF NOT EXISTS user_auth_revoked_expires_at_idx ON user_auth (expires_at) WHERE logout_at IS NOT NULL;
+
+--QUESTION: getQuestionById, editQuestionById, deleteQuestionById
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS question_uuid_uk ON question (uuid);
+--getAllQuestions, getQuestionsAfter, streamAllQuestions: newest first keyset pagination
+CREATE INDEX CONCURRENTLY IF NOT EXISTS question_date_id_idx ON question (date DESC, id DESC);
+--getAllQuestionByUser, getQuestionsByUserAfter, and the foreign key
+CREATE INDEX CONCURRENTLY IF NOT EXISTS question_user_id_date_id_idx ON question (user_id, date DESC, id DESC);
+
+--ANSWER: getAnswerForAnswerId
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS answer_uuid_uk ON answer (uuid);
+--getAnswerDetails, streamAllAnswers, and the foreign key
+CREATE INDEX CONCURRENTLY IF NOT EXISTS answer_question_id_date_id_idx ON answer (question_id, date, id);
+--Foreign key, used by the cascade when a user is deleted
+CREATE INDEX CONCURRENTLY IF NOT EXISTS answer_user_id_idx ON answer (user_id);
@@ -0,0 +1,8 @@
+--Row versions for the optimistic locking of question and answer edits and deletes:
+--every UPDATE or DELETE from the API carries "where id = ? and version = ?" and bumps the version,
+--so a change made meanwhile by another request is detected instead of silently overwritten.
+--A constant default only changes the catalog on PostgreSQL 11 and later, existing rows are not rewritten.
+
+ALTER TABLE question ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE answer ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
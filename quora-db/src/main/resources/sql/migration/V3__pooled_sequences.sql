@@ -0,0 +1,8 @@
+--Question and answer ids are taken from their sequences 50 at a time (pooled optimizer, QuestionEntity.ID_ALLOCATION_SIZE
+--and AnswerEntity.ID_ALLOCATION_SIZE): an insert no longer has to read its generated id back, so inserts can be sent in JDBC batches.
+--The sequences must step by the same amount. Ids stay unique but are no longer dense, and rows inserted with the column
+--default (outside of Hibernate) use up 50 ids each.
+
+ALTER SEQUENCE question_id_seq INCREMENT BY 50;
+
+ALTER SEQUENCE answer_id_seq INCREMENT BY 50;
@@ -0,0 +1,21 @@
+--Full-text search over question content and answers (searchQuestions): each row keeps the tsvector of its text.
+--The vectors are computed by PostgreSQL's built-in tsvector_update_trigger in the INSERT or UPDATE that writes the text,
+--so the DAO writes (createQuestion, editQuestion, createAnswer, updateAnswer), the bulk endpoints and the seed import all keep
+--them current without an extra statement. The english configuration stems words and drops stop words.
+
+ALTER TABLE question ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+ALTER TABLE answer ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+DROP TRIGGER IF EXISTS question_search_vector ON question;
+CREATE TRIGGER question_search_vector BEFORE INSERT OR UPDATE OF content ON question
+    FOR EACH ROW EXECUTE PROCEDURE tsvector_update_trigger(search_vector, 'pg_catalog.english', content);
+
+DROP TRIGGER IF EXISTS answer_search_vector ON answer;
+CREATE TRIGGER answer_search_vector BEFORE INSERT OR UPDATE OF ans ON answer
+    FOR EACH ROW EXECUTE PROCEDURE tsvector_update_trigger(search_vector, 'pg_catalog.english', ans);
+
+--Existing rows. This rewrites both tables once: on a large database run it when the application is quiet
+UPDATE question SET search_vector = to_tsvector('pg_catalog.english', content) WHERE search_vector IS NULL;
+
+UPDATE answer SET search_vector = to_tsvector('pg_catalog.english', ans) WHERE search_vector IS NULL;
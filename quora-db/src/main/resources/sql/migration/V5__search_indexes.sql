@@ -0,0 +1,7 @@
+--GIN indexes for the @@ matches of searchQuestions, built CONCURRENTLY (outside of a transaction, see V1) so the tables
+--stay writable. They are kept apart from V4, whose statements need a transaction.
+--If a build is interrupted PostgreSQL leaves an INVALID index behind: drop it and run the migration again.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS question_search_vector_idx ON question USING gin (search_vector);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS answer_search_vector_idx ON answer USING gin (search_vector);
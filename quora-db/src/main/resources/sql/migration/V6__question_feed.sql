@@ -0,0 +1,23 @@
+--Precomputed question feed (getQuestionFeed): one row per question with its number of answers, the date of its latest
+--answer, and its last activity, the later of the two dates, which orders the feed through question_feed_activity_idx.
+--The DAOs keep the rows current in the transactions that write the questions and answers: a row is added with each
+--question, and each answer created or deleted, or deleted with its user, moves the count and the dates of its question.
+--Deleting a question deletes its row by cascade. The seed import recounts the rows of the questions it loaded.
+
+CREATE TABLE IF NOT EXISTS question_feed (
+    question_id INTEGER PRIMARY KEY REFERENCES question (id) ON DELETE CASCADE,
+    answer_count INTEGER NOT NULL DEFAULT 0,
+    last_answer_at TIMESTAMP NULL,
+    last_activity_at TIMESTAMP NOT NULL
+);
+
+--Existing questions, counted once. Questions and answers written by an older version of the application while this runs
+--are not followed: running this statement again adds the missing rows, the counts of existing ones stay as they are
+INSERT INTO question_feed (question_id, answer_count, last_answer_at, last_activity_at)
+SELECT q.id, count(a.id), max(a.date), greatest(q.date, max(a.date))
+FROM question q LEFT JOIN answer a ON a.question_id = q.id
+GROUP BY q.id
+ON CONFLICT (question_id) DO NOTHING;
+
+--The table is new and only read once this version runs, so the index is built in the same transaction
+CREATE INDEX IF NOT EXISTS question_feed_activity_idx ON question_feed (last_activity_at DESC, question_id DESC);
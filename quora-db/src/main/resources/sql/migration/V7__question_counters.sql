@@ -0,0 +1,5 @@
+--Views of the questions, next to their answer count in the feed. The views are added up in memory by the write-behind
+--counters of the application (QuestionCounters), and a flush locks the rows of a batch in question id order and adds their
+--views. The answer counts and dates still move in the transactions which write the answers, as V6 describes.
+
+ALTER TABLE question_feed ADD COLUMN IF NOT EXISTS view_count BIGINT NOT NULL DEFAULT 0;
@@ -1,3 +1,5 @@
+--Flyway migrations (sql/migration) are applied on top of this schema, forget the ones applied to the dropped tables
+DROP TABLE IF EXISTS flyway_schema_history;
 
 --USERS table is created to store the details of all the users
 DROP TABLE IF EXISTS USERS CASCADE;
@@ -0,0 +1,66 @@
+package com.upgrad.quora.service;
+
+import com.upgrad.quora.service.dao.ReadOnlyRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * With "quora.datasource.replica.enabled", read-only transactions read from a replica pool ("quora.datasource.replica",
+ * with the Hikari settings such as jdbc-url, username, password and maximum-pool-size) while the primary keeps spring.datasource.
+ * Replicas lag behind the primary: a read-only transaction right after a write may not see it yet.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quora.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    private HikariDataSource primaryDataSource;
+
+    private HikariDataSource replicaDataSource;
+
+    /**
+     * The pools are not beans of their own: any other DataSource bean would trigger the schema initializer, which
+     * looks up the primary DataSource while it is still being created.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(final DataSourceProperties properties, final Environment environment) {
+        final Binder binder = Binder.get(environment);
+
+        // The pool Spring Boot would have built from spring.datasource and spring.datasource.hikari
+        primaryDataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primaryDataSource));
+
+        replicaDataSource = new HikariDataSource();
+        replicaDataSource.setPoolName("quora-replica");
+        // Start, and fall back to the primary, while the replica is down
+        replicaDataSource.setInitializationFailTimeout(-1);
+        binder.bind("quora.datasource.replica", Bindable.ofInstance(replicaDataSource));
+
+        final LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(new ReadOnlyRoutingDataSource(primaryDataSource, replicaDataSource));
+        // Known up front, so that creating the proxy doesn't take a connection
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return dataSource;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (replicaDataSource != null)
+            replicaDataSource.close();
+        if (primaryDataSource != null)
+            primaryDataSource.close();
+    }
+}
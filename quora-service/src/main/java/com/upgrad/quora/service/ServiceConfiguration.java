@@ -1,9 +1,18 @@
 package com.upgrad.quora.service;
 
 
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Enabling the component scan and entity scan of classes in the below mentioned "com.upgrad.quora.service" and "com.upgrad.quora.service.entity" packages respectively.
@@ -12,4 +21,15 @@ import org.springframework.context.annotation.Configuration;
 @ComponentScan("com.upgrad.quora.service")
 @EntityScan("com.upgrad.quora.service.entity")
 public class ServiceConfiguration {
+
+    /**
+     * A single token provider holding the server signing keys ("quora.jwt.keys", by key id), shared by sign in and token verification.
+     */
+    @Bean
+    public JwtTokenProvider jwtTokenProvider(@Value("${quora.jwt.active-key-id}") final String activeKeyId, final Environment environment) {
+        final Map<String, String> keys = Binder.get(environment)
+                .bind("quora.jwt.keys", Bindable.mapOf(String.class, String.class))
+                .orElse(Collections.emptyMap());
+        return new JwtTokenProvider(activeKeyId, keys);
+    }
 }
@@ -1,8 +1,8 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.SlowLogSnapshot;
 import com.upgrad.quora.service.dao.AdminDao;
 import com.upgrad.quora.service.entity.UserAuthEntity;
-import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +19,15 @@ public class AdminBusinessService {
     @Autowired
     private CommonService commonService;
 
+    @Autowired
+    private AuthTokenCache authTokenCache;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private SlowLog slowLog;
+
     /**
      * To validate if the user is having a role of Admin
      * @param accessToken: JWT token
@@ -42,13 +51,27 @@ public class AdminBusinessService {
      */
     @Transactional
     public String deleteUser(String accessToken, String userId) throws AuthorizationFailedException, UserNotFoundException {
-        UserEntity userEntity = commonService.getUserById(userId);
         if(this.confirmAdmin(accessToken)){
-            if(commonService.getUserById(userId) == null)
+            if(!adminDao.deleteUser(userId))
                 throw new UserNotFoundException("USR-001","User with entered uuid to be deleted does not exist");
-            else
-                adminDao.deleteUser(userId);
+            else {
+                authTokenCache.invalidateUser(userId);
+                tokenRevocationList.revokeUser(userId);
+            }
         }
         return userId;
     }
+
+    /**
+     * Business Logic to read the slow log
+     * @param accessToken : JWT Authorization
+     * @param reset : true to start over once read
+     * @return SlowLogSnapshot : slowest requests and statements
+     * @throws AuthorizationFailedException : the user is not an admin
+     */
+    @Transactional(readOnly = true)
+    public SlowLogSnapshot getSlowLog(final String accessToken, final boolean reset) throws AuthorizationFailedException {
+        this.confirmAdmin(accessToken);
+        return slowLog.snapshot(reset);
+    }
 }
@@ -1,5 +1,8 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.common.QuestionAnswers;
+import com.upgrad.quora.service.common.RowWriter;
 import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.entity.QuestionEntity;
@@ -7,13 +10,17 @@ import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,6 +36,15 @@ public class AnswerBusinessService {
     @Autowired
     private AnswerDao answerDao;
 
+    @Autowired
+    private BulkItems bulkItems;
+
+    @Autowired
+    private ExportLimiter exportLimiter;
+
+    @Value("${quora.export.fetch-size:500}")
+    private int fetchSize;
+
     /**
      * Supporting Method to check User LoggedIn Status
      * @param userAuthEntity : Model of the User Authentication Entity
@@ -48,7 +64,7 @@ public class AnswerBusinessService {
      * @param uuid : Answer UUId whose records needs to be fetched
      * @return AnswerEntity : Model of the User Answer Entity
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public AnswerEntity getAnswerForAnswerId(String uuid) {
         return answerDao.getAnswerForAnswerId(uuid);
     }
@@ -113,6 +129,52 @@ public class AnswerBusinessService {
         return answerEntity;
     }
 
+    /**
+     * Service Method to create many answers to one question, persisted in JDBC batches
+     * The token and the question are checked once for the whole request, then each answer on its own:
+     * invalid ones are reported as rejected and the others are still created
+     * @param questionId : UUID of the question
+     * @param accessToken : Acess Token generated during user Login.
+     * @param answerContents : content of each answer
+     * @return List<BulkItemResult> : result of each answer, in the request order
+     * @throws AuthorizationFailedException : if AUTh token is invalid or not active
+     * @throws InvalidQuestionException : if UUId of the question is invalid
+     * @throws InvalidBulkRequestException : if there are no answers or more than the maximum
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<BulkItemResult> createAnswers(final String accessToken, final String questionId, final List<String> answerContents)
+            throws AuthorizationFailedException, InvalidQuestionException, InvalidBulkRequestException{
+        UserAuthEntity userAuthEntity = commonService.getAuthToken(accessToken);
+        if(userAuthEntity == null)
+            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
+        if(!checkUserSignedIn(userAuthEntity))
+            throw new AuthorizationFailedException("ATHR-002","User is signed out.Sign in first to post an answer");
+        bulkItems.checkSize(answerContents);
+        QuestionEntity question = questionBusinessService.getQuestionById(questionId);
+
+        final ZonedDateTime now = ZonedDateTime.now();
+        List<AnswerEntity> answers = new ArrayList<>(answerContents.size());
+        List<BulkItemResult> results = new ArrayList<>(answerContents.size());
+        for(int i = 0; i < answerContents.size(); i++){
+            AnswerEntity answerEntity = new AnswerEntity();
+            answerEntity.setUuid(UUID.randomUUID().toString());
+            answerEntity.setAnswer(answerContents.get(i));
+            answerEntity.setDate(now);
+            answerEntity.setQuestion(question);
+            answerEntity.setUser(userAuthEntity.getUserid());
+            BulkItemResult rejected = bulkItems.validate(i, answerEntity, "ANS-002");
+            if(rejected != null){
+                results.add(rejected);
+            }
+            else{
+                answers.add(answerEntity);
+                results.add(BulkItemResult.created(i, answerEntity.getUuid()));
+            }
+        }
+        answerDao.createAnswers(answers, bulkItems.getBatchSize());
+        return results;
+    }
+
     /**
      * Service Method to get the update an Answer
      * @param answerId : UUID of the answer requested for updation
@@ -158,16 +220,12 @@ public class AnswerBusinessService {
         UserAuthEntity userAuthEntity = commonService.getAuthToken(accessToken);
         if(userAuthEntity != null){
             if(checkUserSignedIn(userAuthEntity)){
-                AnswerEntity answerEntity = getAnswerForAnswerId(answerId);
-                if(answerEntity != null){
-                    if(isAnswerOwner(userAuthEntity.getUserid(), answerEntity.getUser()) || isUserAdmin(userAuthEntity.getUserid())){
-                        answerDao.deleteAnswer(answerEntity);
-                    }
-                    else
-                        throw new AuthorizationFailedException("ATHR-003","Only the answer owner or admin can delete the answer");
+                //The ownership check is part of the delete, the answer is only read to tell why nothing was deleted
+                if(!answerDao.deleteAnswer(answerId, userAuthEntity.getUserid())){
+                    if(getAnswerForAnswerId(answerId) == null)
+                        throw new AnswerNotFoundException("ANS-001","Entered answer uuid does not exist");
+                    throw new AuthorizationFailedException("ATHR-003","Only the answer owner or admin can delete the answer");
                 }
-                else
-                    throw new AnswerNotFoundException("ANS-001","Entered answer uuid does not exist");
             }
             else
                 throw new AuthorizationFailedException("ATHR-002","User is signed out. Sign in first to delete an answer");
@@ -181,16 +239,31 @@ public class AnswerBusinessService {
      * @param questionId : UUID of the question
      * @param accessToken : Acess Token generated during user Login.
      * @throws AuthorizationFailedException : if AUTH token is invalid or not active
+     * @return QuestionAnswers : content of the question and its answers
      * @throws InvalidQuestionException : For invalid Question UUID
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public List<AnswerEntity> getAllAnswer(final String accessToken, final String questionId) throws AuthorizationFailedException, InvalidQuestionException{
+    @Transactional(readOnly = true)
+    public QuestionAnswers getAllAnswer(final String accessToken, final String questionId) throws AuthorizationFailedException, InvalidQuestionException{
+        QuestionEntity questionEntity = getQuestionToListAnswers(accessToken, questionId);
+        return new QuestionAnswers(questionEntity.getContent(), answerDao.getAllAnswers(questionEntity.getId()));
+    }
+
+    /**
+     * Service Method to check that the user may list the answers of a question, before any answer is streamed
+     * @param questionId : UUID of the question
+     * @param accessToken : Acess Token generated during user Login.
+     * @return QuestionEntity : Model object of the question
+     * @throws AuthorizationFailedException : if AUTH token is invalid or not active
+     * @throws InvalidQuestionException : For invalid Question UUID
+     */
+    @Transactional(readOnly = true)
+    public QuestionEntity getQuestionToListAnswers(final String accessToken, final String questionId) throws AuthorizationFailedException, InvalidQuestionException{
         UserAuthEntity userAuthEntity = commonService.getAuthToken(accessToken);
         if(userAuthEntity != null){
             if(checkUserSignedIn(userAuthEntity)){
-                QuestionEntity questionEntity = questionBusinessService.getQuestionById(questionId);
+                QuestionEntity questionEntity = questionBusinessService.viewQuestionById(questionId);
                 if(questionEntity != null){
-                    return answerDao.getAllAnswers(questionEntity.getId());
+                    return questionEntity;
                 }
                 throw new InvalidQuestionException("QUES-001", "The question with entered uuid whose details are to be seen does not exist");
             }
@@ -200,4 +273,15 @@ public class AnswerBusinessService {
         else
             throw new AuthorizationFailedException("ATHR-001","User has not signed in");
     }
+
+    /**
+     * Service Method to stream all answers of a question from a database cursor
+     * The caller holds a permit of the ExportLimiter, which bounds the transaction of the export
+     * @param questionId : id of the question, as returned by getQuestionToListAnswers
+     * @param writer : receives the uuid and content of each answer
+     * @throws IOException : if the writer fails
+     */
+    public void streamAllAnswers(final int questionId, final RowWriter writer) throws IOException{
+        exportLimiter.run(rows -> answerDao.streamAllAnswers(questionId, fetchSize, rows), writer);
+    }
 }
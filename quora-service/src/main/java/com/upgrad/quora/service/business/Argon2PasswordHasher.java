@@ -0,0 +1,84 @@
+package com.upgrad.quora.service.business;
+
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Argon2id, the memory-hard option. Each hash needs "memory" KiB of RAM, which makes GPU and ASIC attacks expensive;
+ * size the hashing pool so that threads x memory fits comfortably in the heap.
+ */
+@Component
+public class Argon2PasswordHasher implements PasswordHasher {
+
+    public static final String ALGORITHM = "argon2id";
+
+    private final int memoryKb;
+
+    private final int iterations;
+
+    private final int parallelism;
+
+    private final int keyLength;
+
+    public Argon2PasswordHasher(@Value("${quora.password.argon2.memory-kb:19456}") final int memoryKb,
+                                @Value("${quora.password.argon2.iterations:2}") final int iterations,
+                                @Value("${quora.password.argon2.parallelism:1}") final int parallelism,
+                                @Value("${quora.password.argon2.key-length:256}") final int keyLength) {
+        this.memoryKb = memoryKb;
+        this.iterations = iterations;
+        this.parallelism = parallelism;
+        this.keyLength = keyLength;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public String hash(final char[] password, final byte[] salt) {
+        final Map<String, Integer> parameters = new LinkedHashMap<>();
+        parameters.put("m", memoryKb);
+        parameters.put("t", iterations);
+        parameters.put("p", parallelism);
+        parameters.put("l", keyLength);
+        return new EncodedPassword(ALGORITHM, parameters, derive(password, salt, memoryKb, iterations, parallelism, keyLength)).format();
+    }
+
+    @Override
+    public boolean matches(final char[] password, final byte[] salt, final EncodedPassword encodedPassword) {
+        final byte[] hash = derive(password, salt, encodedPassword.getParameter("m"), encodedPassword.getParameter("t"),
+                encodedPassword.getParameter("p"), encodedPassword.getParameter("l"));
+        return MessageDigest.isEqual(hash, encodedPassword.getHash());
+    }
+
+    @Override
+    public boolean isCurrent(final EncodedPassword encodedPassword) {
+        return Integer.valueOf(memoryKb).equals(encodedPassword.getParameters().get("m"))
+                && Integer.valueOf(iterations).equals(encodedPassword.getParameters().get("t"))
+                && Integer.valueOf(parallelism).equals(encodedPassword.getParameters().get("p"))
+                && Integer.valueOf(keyLength).equals(encodedPassword.getParameters().get("l"));
+    }
+
+    private static byte[] derive(final char[] password, final byte[] salt, final int memoryKb, final int iterations,
+                                 final int parallelism, final int keyLength) {
+        final Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+                .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+                .withSalt(salt)
+                .withMemoryAsKB(memoryKb)
+                .withIterations(iterations)
+                .withParallelism(parallelism)
+                .build();
+        final Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init(parameters);
+        final byte[] hash = new byte[keyLength / 8];
+        generator.generateBytes(password, hash);
+        return hash;
+    }
+}
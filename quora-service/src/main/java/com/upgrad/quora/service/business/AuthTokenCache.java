@@ -0,0 +1,110 @@
+package com.upgrad.quora.service.business;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * In-process cache of the user_auth rows keyed by the access token.
+ * Entries are bounded by size and time to live, and are dropped as soon as the token is signed out
+ * or its user is deleted, so token checks don't cost a database round trip.
+ * A max-size of 0 turns the cache off and every check reads user_auth.
+ * Size, hits, misses and evictions are published as the cache.* meters of the "auth-tokens" cache.
+ */
+@Component
+public class AuthTokenCache implements MeterBinder {
+
+    private final Cache<String, UserAuthEntity> cache;
+
+    private final boolean enabled;
+
+    public AuthTokenCache(@Value("${quora.auth.token-cache.max-size:10000}") final long maximumSize,
+                          @Value("${quora.auth.token-cache.ttl-seconds:300}") final long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.enabled = maximumSize > 0;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "auth-tokens");
+    }
+
+    /**
+     * Returns the cached token, loading it on a miss. Unknown tokens are not cached.
+     * @param accessToken : ACCESS token in String
+     * @param loader : Database lookup used on a cache miss
+     * @return UserAuthEntity if found, null otherwise
+     */
+    public UserAuthEntity get(final String accessToken, final Function<String, UserAuthEntity> loader) {
+        if (!enabled)
+            return loader.apply(accessToken);
+        return cache.get(accessToken, loader);
+    }
+
+    /**
+     * Drops a single token, now and once more after the current transaction commits
+     * so that a concurrent reader can't put back the pre-commit row.
+     * @param accessToken : ACCESS token in String
+     */
+    public void invalidate(final String accessToken) {
+        cache.invalidate(accessToken);
+        afterCommit(() -> cache.invalidate(accessToken));
+    }
+
+    /**
+     * Drops every token that belongs to the given user
+     * @param userUuid : User UUID
+     */
+    public void invalidateUser(final String userUuid) {
+        final Runnable eviction = () -> cache.asMap().values()
+                .removeIf(token -> token.getUserid() != null && userUuid.equals(token.getUserid().getUuid()));
+        eviction.run();
+        afterCommit(eviction);
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private void afterCommit(final Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
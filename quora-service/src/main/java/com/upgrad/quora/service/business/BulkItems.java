@@ -0,0 +1,62 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Limits and per-item checks of the bulk creates. A bulk request is rejected as a whole only when it is empty or larger
+ * than "quora.bulk.max-items"; otherwise each item is checked against the constraints of its entity, so that one bad item
+ * is reported on its own instead of failing the flush of all the others.
+ */
+@Component
+public class BulkItems {
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${quora.bulk.max-items:1000}")
+    private int maxItems;
+
+    @Value("${quora.bulk.batch-size:50}")
+    private int batchSize;
+
+    /**
+     * @return int : inserts per JDBC batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param items : items of the request
+     * @throws InvalidBulkRequestException : if there are no items or more than the maximum
+     */
+    public void checkSize(final List<?> items) throws InvalidBulkRequestException {
+        if (items == null || items.isEmpty())
+            throw new InvalidBulkRequestException("BULK-001", "The request has no items");
+        if (items.size() > maxItems)
+            throw new InvalidBulkRequestException("BULK-001", "The request has more than " + maxItems + " items");
+    }
+
+    /**
+     * @param index : position of the item in the request
+     * @param entity : new entity built from the item
+     * @param code : error code reported when the entity is not valid
+     * @return BulkItemResult : the rejection of the item, null if it is valid
+     */
+    public BulkItemResult validate(final int index, final Object entity, final String code) {
+        final Set<ConstraintViolation<Object>> violations = validator.validate(entity);
+        if (violations.isEmpty())
+            return null;
+        final ConstraintViolation<Object> violation = violations.iterator().next();
+        return BulkItemResult.rejected(index, code, violation.getPropertyPath() + " " + violation.getMessage());
+    }
+}
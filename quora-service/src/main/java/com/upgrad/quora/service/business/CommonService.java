@@ -1,18 +1,51 @@
 package com.upgrad.quora.service.business;
 
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.dao.ReadOnlyRoutingDataSource;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 
 @Service
 public class CommonService {
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private AuthTokenCache authTokenCache;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.datasource.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    @Value("${quora.auth.stateless-verification:false}")
+    private boolean statelessVerification;
+
+    @Value("${quora.auth.stateless-max-age:5m}")
+    private Duration statelessMaxAge;
+
     /**
      * Supporting Function to check the validity of User Auth Token
      * @param authorization : ACCESS token in String
@@ -20,7 +53,7 @@ public class CommonService {
      * @throws AuthorizationFailedException : if AUTh token is invalid or not active
      */
     public UserAuthEntity commonProfiles(final String authorization) throws AuthorizationFailedException{
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
+        UserAuthEntity userAuthEntity = getAuthToken(authorization);
         if(userAuthEntity == null)
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         if(userAuthEntity.getLogoutAt() != null)
@@ -28,8 +61,73 @@ public class CommonService {
         return userAuthEntity;
     }
 
+    /**
+     * Supporting Function to look up the User Auth Token, served from the token cache when possible
+     * @param authorization : ACCESS token in String
+     * @return UserAuthEntity if found, null otherwise
+     */
     public UserAuthEntity getAuthToken(final String authorization){
-        return userDao.getUserAuthToken(authorization);
+        if(statelessVerification){
+            UserAuthEntity verifiedToken = verifyToken(authorization);
+            if(verifiedToken != null)
+                return verifiedToken;
+        }
+        return authTokenCache.get(authorization, this::loadAuthToken);
+    }
+
+    /**
+     * Supporting Function to read the User Auth Token from the database.
+     * A token missing on the replica may have been issued since its last update, so misses are read again from the primary
+     * @param authorization : ACCESS token in String
+     * @return UserAuthEntity if found, null otherwise
+     */
+    private UserAuthEntity loadAuthToken(final String authorization){
+        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
+        if(userAuthEntity == null && replicaEnabled && ReadOnlyRoutingDataSource.isReadingFromReplica()){
+            TransactionTemplate primaryTransaction = new TransactionTemplate(transactionManager);
+            primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            userAuthEntity = primaryTransaction.execute(status -> userDao.getUserAuthToken(authorization));
+        }
+        return userAuthEntity;
+    }
+
+    /**
+     * Supporting Function to authorize a signed token locally, without reading user_auth.
+     * The claims, role included, are only trusted for quora.auth.stateless-max-age after the token was issued: a sign out
+     * or user deletion handled by another instance is missing from the local revocation list, so older tokens go through
+     * the token cache and user_auth like any other. A token revoked elsewhere stays usable here for at most stateless-max-age,
+     * then the token cache ttl-seconds.
+     * Tokens which fail verification, were revoked or are past that age fall back to the database lookup, which reports
+     * their actual state.
+     * @param authorization : ACCESS token in String
+     * @return UserAuthEntity built from the token claims if valid, null otherwise
+     */
+    private UserAuthEntity verifyToken(final String authorization){
+        final DecodedJWT token;
+        try{
+            token = jwtTokenProvider.verifyToken(authorization);
+        }
+        catch (JWTVerificationException e){
+            return null;
+        }
+        if(token.getIssuedAt() == null
+                || token.getIssuedAt().getTime() + statelessMaxAge.toMillis() <= System.currentTimeMillis())
+            return null;
+        if(tokenRevocationList.isRevoked(token))
+            return null;
+
+        UserEntity user = new UserEntity();
+        user.setId(token.getClaim(JwtTokenProvider.USER_ID_CLAIM).asInt());
+        user.setUuid(token.getSubject());
+        user.setRole(token.getClaim(JwtTokenProvider.ROLE_CLAIM).asString());
+
+        UserAuthEntity userAuthEntity = new UserAuthEntity();
+        userAuthEntity.setUuid(token.getId());
+        userAuthEntity.setUserid(user);
+        userAuthEntity.setAccessToken(authorization);
+        userAuthEntity.setExpiresAt(ZonedDateTime.ofInstant(token.getExpiresAt().toInstant(), ZoneId.systemDefault()));
+        userAuthEntity.setLoginAt(ZonedDateTime.ofInstant(token.getIssuedAt().toInstant(), ZoneId.systemDefault()));
+        return userAuthEntity;
     }
 
     /**
@@ -48,6 +146,7 @@ public class CommonService {
      * @throws AuthorizationFailedException : if AUTh token is invalid or not active
      * @throws UserNotFoundException : if UUID of the user is invalid
      */
+    @Transactional(readOnly = true)
     public UserEntity getUserProfile(final String id, final String authorization) throws AuthorizationFailedException, UserNotFoundException{
         //Check Token
         commonProfiles(authorization);
@@ -0,0 +1,638 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.SearchIndexListener;
+import com.upgrad.quora.service.dao.SearchIndexSync;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory MinHash index of the question contents, which finds the existing questions a new one nearly repeats
+ * (quora.duplicates.mode: warn or reject, off to skip the index altogether).
+ * A content is reduced to its set of quora.duplicates.shingle-words word shingles, and that set to quora.duplicates.hashes
+ * MinHash values of which only the lowest byte is kept, so that a question takes hashes bytes whatever its length.
+ * Locality sensitive hashing cuts the signature in quora.duplicates.bands bands: the questions sharing a whole band with
+ * the new content are the candidates, and those whose estimated similarity comes close to quora.duplicates.threshold are
+ * returned, to be checked against their actual content with {@link #isDuplicate}.
+ * Entries are keyed by question id: the committed saves from this instance replace the entry of their question, the
+ * deletes remove it. The index is saved to quora.duplicates.snapshot.path every quora.duplicates.snapshot.interval and at
+ * shutdown, with a watermark: the oldest transaction id still running when the previous snapshot was saved, or when the
+ * index was brought up to date. At startup the snapshot is loaded and the questions written by a transaction since its
+ * watermark are replayed from the primary, found through the xmin of their rows; the index is rebuilt from the database
+ * when there is no usable snapshot, or when more than 2^31 transactions have gone by and the xmin may have wrapped around.
+ * Questions deleted from elsewhere while the instance was down are left behind, the content check weeds them out.
+ */
+@Component
+public class DuplicateQuestionIndex implements SearchIndexListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DuplicateQuestionIndex.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x51444931;
+
+    //Changes with the shingling, the hashing or the layout of the snapshot, older snapshots are then ignored
+    private static final int SNAPSHOT_FORMAT = 2;
+
+    //Chance for two different sets to keep the same lowest byte of a MinHash value
+    private static final double BYTE_COLLISION = 1.0 / 256;
+
+    //Estimates from a few dozen bytes are noisy, candidates down to this much below the threshold get their content checked
+    private static final double ESTIMATE_MARGIN = 0.1;
+
+    //Bounds a check when many questions share a band, the newest entries of a bucket come first
+    private static final int MAX_SCANNED = 20000;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    //Transaction ids are compared on 32 bits by age(), a snapshot older than this many transactions is rebuilt instead
+    private static final long MAX_REPLAYED_TRANSACTIONS = 1L << 31;
+
+    //Question id of an entry whose question was deleted, until the entries are compacted
+    private static final int DELETED = -1;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private SearchIndexSync searchIndexSync;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.duplicates.mode:warn}")
+    private String mode;
+
+    @Value("${quora.duplicates.threshold:0.8}")
+    private double threshold;
+
+    @Value("${quora.duplicates.shingle-words:1}")
+    private int shingleWords;
+
+    @Value("${quora.duplicates.hashes:64}")
+    private int hashes;
+
+    @Value("${quora.duplicates.bands:16}")
+    private int bands;
+
+    @Value("${quora.duplicates.max-candidates:5}")
+    private int maxCandidates;
+
+    @Value("${quora.duplicates.snapshot.path:duplicate-index.bin}")
+    private String snapshotPath;
+
+    @Value("${quora.duplicates.snapshot.interval:5m}")
+    private Duration snapshotInterval;
+
+    @Value("${quora.export.fetch-size:500}")
+    private int fetchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] seeds;
+
+    private int rows;
+
+    //Entry i holds questionIds[i], DELETED once its question is gone, and its signature at signatures[i * hashes]
+    private int size;
+
+    private int deleted;
+
+    private int[] questionIds;
+
+    private byte[] signatures;
+
+    //Bucket chains, one link per entry and band: link i * bands + b follows entry i in the bucket of its band b
+    private int[] buckets;
+
+    private int[] links;
+
+    //Open addressing table of the entries by question id, linearly probed, -1 for a free slot
+    private int[] slots;
+
+    //Oldest transaction id still running at the previous snapshot or at startup, saved with the next snapshot
+    private volatile long watermark;
+
+    //Entries saved or deleted since the last snapshot
+    private long changes;
+
+    private ScheduledExecutorService snapshotExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!mode.equals("off") && !mode.equals("warn") && !mode.equals("reject"))
+            throw new IllegalStateException("Unknown duplicate question mode " + mode);
+        if (mode.equals("off"))
+            return;
+        if (bands <= 0 || hashes % bands != 0)
+            throw new IllegalStateException("quora.duplicates.hashes must be a multiple of quora.duplicates.bands");
+        rows = hashes / bands;
+        seeds = new long[hashes];
+        final SplittableRandom random = new SplittableRandom(0x5eed);
+        for (int i = 0; i < hashes; i++) {
+            seeds[i] = random.nextLong();
+        }
+        allocate(INITIAL_CAPACITY);
+
+        final long start = System.nanoTime();
+        final boolean loaded = loadSnapshot();
+        final int snapshotSize = size - deleted;
+        // Not read-only, so that it runs on the primary: the xmin of a replica's rows and its snapshots lag behind
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final boolean replayed = transaction.execute(status -> {
+            final long current = questionDao.getTransactionWatermark();
+            final boolean recent = loaded && questionDao.countTransactionsSince(watermark) <= MAX_REPLAYED_TRANSACTIONS;
+            if (!recent)
+                clear();
+            // Writes committed from now on are indexed as they come, the replay may index some of them twice
+            searchIndexSync.addListener(this);
+            if (recent)
+                questionDao.replayQuestionsWrittenSince(watermark, fetchSize, this);
+            else
+                questionDao.replayQuestions(0, fetchSize, this);
+            watermark = current;
+            return recent;
+        });
+        LOGGER.info("Duplicate question index {} with {} questions, {} after the replay, in {} ms",
+                replayed ? "loaded" : "rebuilt", replayed ? snapshotSize : 0, size - deleted,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "duplicate-index-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotExecutor.scheduleWithFixedDelay(this::saveSnapshotAndAdvance, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (snapshotExecutor == null)
+            return;
+        snapshotExecutor.shutdown();
+        saveSnapshotQuietly();
+    }
+
+    /**
+     * Saves the snapshot with the watermark read at the previous one, then reads the watermark of the next snapshot.
+     * A transaction older than the new watermark had completed before this snapshot, and its question reached the index
+     * well before the next one
+     */
+    private void saveSnapshotAndAdvance() {
+        saveSnapshotQuietly();
+        try {
+            watermark = new TransactionTemplate(transactionManager).execute(status -> questionDao.getTransactionWatermark());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to read the transaction watermark, the next duplicate question snapshot keeps the previous one", e);
+        }
+    }
+
+    /**
+     * @return boolean : true if near duplicates are rejected, false if they are only reported
+     */
+    public boolean rejects() {
+        return mode.equals("reject");
+    }
+
+    /**
+     * @param content : content of a new question
+     * @return List<Integer> : ids of the questions with a similar content, most similar first, at most
+     * quora.duplicates.max-candidates of them
+     */
+    public List<Integer> candidates(final String content) {
+        if (seeds == null || content == null)
+            return new ArrayList<>();
+        final long[] shingles = shingles(content);
+        if (shingles.length == 0)
+            return new ArrayList<>();
+        final byte[] signature = signature(shingles);
+        final double minimum = threshold - ESTIMATE_MARGIN;
+        final Map<Integer, Double> similarities = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int scanned = 0;
+            for (int band = 0; band < bands && scanned < MAX_SCANNED; band++) {
+                for (int link = buckets[bucket(signature, 0, band)]; link >= 0 && scanned < MAX_SCANNED; link = links[link]) {
+                    scanned++;
+                    final int entry = link / bands;
+                    if (link % bands != band || !sameBand(signature, entry, band))
+                        continue;
+                    final double similarity = estimate(signature, entry);
+                    if (similarity >= minimum)
+                        similarities.merge(questionIds[entry], similarity, Math::max);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        final List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(similarities.entrySet());
+        ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+        final List<Integer> ids = new ArrayList<>(Math.min(maxCandidates, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < maxCandidates; i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return ids;
+    }
+
+    /**
+     * @param content : content of a new question
+     * @param existing : content of a candidate returned by {@link #candidates}
+     * @return boolean : true if the shingles of the two contents overlap by at least quora.duplicates.threshold
+     */
+    public boolean isDuplicate(final String content, final String existing) {
+        final long[] a = shingles(content);
+        final long[] b = shingles(existing);
+        int common = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        final int union = a.length + b.length - common;
+        return union > 0 && (double) common / union >= threshold;
+    }
+
+    @Override
+    public void questionSaved(final int id, final String uuid, final String content, final int userId) {
+        final long[] shingles = shingles(content);
+        if (shingles.length == 0)
+            return;
+        final byte[] signature = signature(shingles);
+        lock.writeLock().lock();
+        try {
+            put(id, signature);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void answerSaved(final String uuid, final String answer, final int questionId, final int userId) {
+    }
+
+    @Override
+    public void questionDeleted(final int id) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void answerDeleted(final String uuid) {
+    }
+
+    @Override
+    public void userDeleted(final int userId, final Collection<Integer> questionIds) {
+        lock.writeLock().lock();
+        try {
+            for (int id : questionIds) {
+                remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Distinct hashes of the runs of shingleWords consecutive words, in ascending order. Words are the lower cased runs of
+     * letters and digits; a content with fewer words is a single shingle
+     */
+    private long[] shingles(final String content) {
+        final String[] words = content.toLowerCase().split("[^\\p{L}\\p{N}]+");
+        final List<String> kept = new ArrayList<>(words.length);
+        for (String word : words) {
+            if (!word.isEmpty())
+                kept.add(word);
+        }
+        if (kept.isEmpty())
+            return new long[0];
+        final int count = Math.max(1, kept.size() - shingleWords + 1);
+        final long[] shingles = new long[count];
+        for (int i = 0; i < count; i++) {
+            long hash = 0xcbf29ce484222325L;
+            for (int w = i; w < Math.min(i + shingleWords, kept.size()); w++) {
+                final String word = kept.get(w);
+                for (int c = 0; c < word.length(); c++) {
+                    hash = (hash ^ word.charAt(c)) * 0x100000001b3L;
+                }
+                hash = (hash ^ ' ') * 0x100000001b3L;
+            }
+            shingles[i] = hash;
+        }
+        Arrays.sort(shingles);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || shingles[i] != shingles[i - 1])
+                shingles[distinct++] = shingles[i];
+        }
+        return Arrays.copyOf(shingles, distinct);
+    }
+
+    private byte[] signature(final long[] shingles) {
+        final byte[] signature = new byte[hashes];
+        for (int h = 0; h < hashes; h++) {
+            long min = Long.MAX_VALUE;
+            for (long shingle : shingles) {
+                min = Math.min(min, mix(shingle ^ seeds[h]));
+            }
+            signature[h] = (byte) min;
+        }
+        return signature;
+    }
+
+    /**
+     * Jaccard similarity estimated from the share of equal bytes, corrected for the bytes equal by chance
+     */
+    private double estimate(final byte[] signature, final int entry) {
+        int equal = 0;
+        for (int h = 0, offset = entry * hashes; h < hashes; h++, offset++) {
+            if (signatures[offset] == signature[h])
+                equal++;
+        }
+        return ((double) equal / hashes - BYTE_COLLISION) / (1 - BYTE_COLLISION);
+    }
+
+    private boolean sameBand(final byte[] signature, final int entry, final int band) {
+        for (int h = band * rows, offset = entry * hashes + band * rows; h < (band + 1) * rows; h++, offset++) {
+            if (signatures[offset] != signature[h])
+                return false;
+        }
+        return true;
+    }
+
+    private int bucket(final byte[] signature, final int offset, final int band) {
+        long hash = band;
+        for (int h = offset + band * rows; h < offset + (band + 1) * rows; h++) {
+            hash = hash * 31 + signature[h];
+        }
+        return (int) mix(hash) & (buckets.length - 1);
+    }
+
+    /**
+     * Replaces the signature of the question's entry in place, or adds an entry for a new question
+     */
+    private void put(final int questionId, final byte[] signature) {
+        int slot = slot(questionId);
+        int entry = slots[slot];
+        if (entry >= 0) {
+            unlink(entry);
+        } else {
+            if (size == questionIds.length) {
+                allocate(2 * questionIds.length);
+                slot = slot(questionId);
+            }
+            entry = size++;
+            questionIds[entry] = questionId;
+            slots[slot] = entry;
+        }
+        System.arraycopy(signature, 0, signatures, entry * hashes, hashes);
+        link(entry);
+        changes++;
+    }
+
+    /**
+     * Takes the question's entry out of the bucket chains and of the table, its room is given back by {@link #compact}
+     */
+    private void remove(final int questionId) {
+        final int slot = slot(questionId);
+        final int entry = slots[slot];
+        if (entry < 0)
+            return;
+        unlink(entry);
+        free(slot);
+        questionIds[entry] = DELETED;
+        deleted++;
+        changes++;
+    }
+
+    private void link(final int entry) {
+        for (int band = 0; band < bands; band++) {
+            final int bucket = bucket(signatures, entry * hashes, band);
+            links[entry * bands + band] = buckets[bucket];
+            buckets[bucket] = entry * bands + band;
+        }
+    }
+
+    private void unlink(final int entry) {
+        for (int band = 0; band < bands; band++) {
+            final int link = entry * bands + band;
+            final int bucket = bucket(signatures, entry * hashes, band);
+            if (buckets[bucket] == link) {
+                buckets[bucket] = links[link];
+                continue;
+            }
+            int previous = buckets[bucket];
+            while (links[previous] != link) {
+                previous = links[previous];
+            }
+            links[previous] = links[link];
+        }
+    }
+
+    /**
+     * @return int : slot holding the question's entry, or the free slot where it would go
+     */
+    private int slot(final int questionId) {
+        final int mask = slots.length - 1;
+        for (int slot = (int) mix(questionId) & mask; ; slot = (slot + 1) & mask) {
+            if (slots[slot] < 0 || questionIds[slots[slot]] == questionId)
+                return slot;
+        }
+    }
+
+    /**
+     * Frees a slot and shifts back the entries probed past it, so that lookups never need tombstones
+     */
+    private void free(int slot) {
+        final int mask = slots.length - 1;
+        slots[slot] = -1;
+        for (int next = (slot + 1) & mask; slots[next] >= 0; next = (next + 1) & mask) {
+            final int home = (int) mix(questionIds[slots[next]]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                slots[slot] = slots[next];
+                slots[next] = -1;
+                slot = next;
+            }
+        }
+    }
+
+    /**
+     * Moves the live entries over the deleted ones and chains them again
+     */
+    private void compact() {
+        if (deleted == 0)
+            return;
+        int kept = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (questionIds[entry] == DELETED)
+                continue;
+            questionIds[kept] = questionIds[entry];
+            System.arraycopy(signatures, entry * hashes, signatures, kept * hashes, hashes);
+            kept++;
+        }
+        size = kept;
+        deleted = 0;
+        allocate(questionIds.length);
+    }
+
+    private void clear() {
+        size = 0;
+        deleted = 0;
+        questionIds = null;
+        signatures = null;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Grows the arrays to capacity entries, with about one bucket per link and two slots per entry, and chains and places
+     * the live entries again
+     */
+    private void allocate(final int capacity) {
+        questionIds = questionIds == null ? new int[capacity] : Arrays.copyOf(questionIds, capacity);
+        signatures = signatures == null ? new byte[capacity * hashes] : Arrays.copyOf(signatures, capacity * hashes);
+        links = new int[capacity * bands];
+        buckets = new int[Integer.highestOneBit(capacity * bands - 1) << 1];
+        Arrays.fill(buckets, -1);
+        slots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        Arrays.fill(slots, -1);
+        for (int entry = 0; entry < size; entry++) {
+            if (questionIds[entry] == DELETED)
+                continue;
+            link(entry);
+            slots[slot(questionIds[entry])] = entry;
+        }
+    }
+
+    private boolean loadSnapshot() {
+        final Path path = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(path))
+            return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT || in.readInt() != hashes
+                    || in.readInt() != shingleWords) {
+                LOGGER.warn("Duplicate question snapshot {} was taken with other settings, rebuilding the index", path);
+                return false;
+            }
+            final long savedWatermark = in.readLong();
+            final int count = in.readInt();
+            final int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = in.readInt();
+            }
+            final byte[] saved = new byte[count * hashes];
+            in.readFully(saved);
+            questionIds = ids;
+            signatures = saved;
+            size = count;
+            deleted = 0;
+            allocate(Math.max(INITIAL_CAPACITY, count + count / 4));
+            watermark = savedWatermark;
+            changes = 0;
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read the duplicate question snapshot {}, rebuilding the index", path, e);
+            clear();
+            return false;
+        }
+    }
+
+    /**
+     * Compacts the entries, writes them to a temporary file then moves it over the snapshot, so that a crash leaves the
+     * previous one
+     */
+    private void saveSnapshot() throws IOException {
+        final long saving;
+        final int count;
+        final long savedWatermark = watermark;
+        final int[] ids;
+        final byte[] saved;
+        lock.writeLock().lock();
+        try {
+            if (changes == 0)
+                return;
+            compact();
+            saving = changes;
+            count = size;
+            ids = Arrays.copyOf(questionIds, count);
+            saved = Arrays.copyOf(signatures, count * hashes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        final Path path = Paths.get(snapshotPath).toAbsolutePath();
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeInt(hashes);
+            out.writeInt(shingleWords);
+            out.writeLong(savedWatermark);
+            out.writeInt(count);
+            for (int id : ids) {
+                out.writeInt(id);
+            }
+            out.write(saved);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lock.writeLock().lock();
+        try {
+            // Entries saved or deleted while writing stay counted for the next snapshot
+            changes -= saving;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void saveSnapshotQuietly() {
+        try {
+            saveSnapshot();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to save the duplicate question snapshot {}", snapshotPath, e);
+        }
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads the bits of a shingle hash xored with a seed into an independent looking hash
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,87 @@
+package com.upgrad.quora.service.business;
+
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A password hash together with the algorithm and cost parameters it was produced with,
+ * stored in the users.password column as "$algorithm$name=value,...$base64-hash".
+ * Keeping the parameters with every hash lets the cost settings change without breaking stored passwords.
+ * The leading "$" tells this format apart from the plain hex hashes written before it (format version 0),
+ * and the algorithm and parameters identify the version of each hash, which is how outdated hashes are found and upgraded on sign in.
+ */
+public final class EncodedPassword {
+
+    private static final String SEPARATOR = "$";
+
+    private final String algorithm;
+
+    private final Map<String, Integer> parameters;
+
+    private final byte[] hash;
+
+    public EncodedPassword(final String algorithm, final Map<String, Integer> parameters, final byte[] hash) {
+        this.algorithm = algorithm;
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(parameters));
+        this.hash = hash;
+    }
+
+    /**
+     * @param storedPassword : value of the users.password column
+     * @return EncodedPassword, or null if the value is not in the encoded format (hashes written before it was introduced)
+     * @throws IllegalArgumentException if the value looks encoded but is malformed
+     */
+    public static EncodedPassword parse(final String storedPassword) {
+        if (storedPassword == null || !storedPassword.startsWith(SEPARATOR))
+            return null;
+        final String[] parts = storedPassword.split("\\$");
+        if (parts.length != 4)
+            throw new IllegalArgumentException("Malformed password hash");
+        final Map<String, Integer> parameters = new LinkedHashMap<>();
+        if (!parts[2].isEmpty()) {
+            for (String parameter : parts[2].split(",")) {
+                final String[] pair = parameter.split("=");
+                if (pair.length != 2)
+                    throw new IllegalArgumentException("Malformed password hash parameter");
+                parameters.put(pair[0], Integer.valueOf(pair[1]));
+            }
+        }
+        return new EncodedPassword(parts[1], parameters, Base64.getDecoder().decode(parts[3]));
+    }
+
+    public String format() {
+        final StringBuilder encoded = new StringBuilder(SEPARATOR).append(algorithm).append(SEPARATOR);
+        String delimiter = "";
+        for (Map.Entry<String, Integer> parameter : parameters.entrySet()) {
+            encoded.append(delimiter).append(parameter.getKey()).append('=').append(parameter.getValue());
+            delimiter = ",";
+        }
+        return encoded.append(SEPARATOR).append(Base64.getEncoder().withoutPadding().encodeToString(hash)).toString();
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public Map<String, Integer> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @param name : parameter name
+     * @return int value of the parameter
+     * @throws IllegalArgumentException if the parameter is missing
+     */
+    public int getParameter(final String name) {
+        final Integer value = parameters.get(name);
+        if (value == null)
+            throw new IllegalArgumentException("Password hash is missing the " + name + " parameter");
+        return value;
+    }
+
+    public byte[] getHash() {
+        return hash.clone();
+    }
+}
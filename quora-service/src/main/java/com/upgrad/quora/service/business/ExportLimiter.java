@@ -0,0 +1,116 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.RowWriter;
+import com.upgrad.quora.service.common.UnexpectedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds the streamed exports, which each hold a pooled connection and an open transaction until their last row is written.
+ * At most quora.export.max-concurrent of them run at once on an instance, the next ones are refused with GEN-002 before
+ * the response is committed. Each export runs in a read-only transaction of quora.export.timeout: the cursor query gets
+ * the remaining time as its statement timeout, and the export fails once a row is written past the deadline, so a slow
+ * client can't keep the connection longer than that.
+ * The permit may be released from several places, so it goes back to the limiter only once whatever the number of calls.
+ */
+@Component
+public class ExportLimiter {
+
+    @Value("${quora.export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${quora.export.timeout:5m}")
+    private Duration timeout;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Semaphore permits;
+
+    private TransactionTemplate exportTransaction;
+
+    /**
+     * An export writing its rows to the writer it is given
+     */
+    @FunctionalInterface
+    public interface Export {
+        void run(RowWriter writer) throws IOException;
+    }
+
+    /**
+     * A permit taken for one export
+     */
+    public final class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        /**
+         * Gives the permit back once the export is over whatever its outcome, only the first call counts
+         */
+        public void release() {
+            if (released.compareAndSet(false, true))
+                permits.release();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent);
+        exportTransaction = new TransactionTemplate(transactionManager);
+        exportTransaction.setReadOnly(true);
+        exportTransaction.setTimeout((int) Math.max(1, timeout.getSeconds()));
+    }
+
+    /**
+     * Takes a permit for an export, to be called before the response is committed so a refusal can still be answered 503
+     * @return Permit : to be released once the export is over
+     * @throws UnexpectedException : GEN-002 if max-concurrent exports are already running
+     */
+    public Permit acquire() {
+        if (!permits.tryAcquire())
+            throw new UnexpectedException(GenericErrorCode.GEN_002);
+        return new Permit();
+    }
+
+    /**
+     * Runs the export in its own read-only transaction, bounded by the export timeout
+     * @param export : the export
+     * @param writer : receives the rows
+     * @throws IOException : if the writer fails
+     * @throws TransactionTimedOutException : if the export runs past the timeout
+     */
+    public void run(final Export export, final RowWriter writer) throws IOException {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        final RowWriter boundedWriter = (uuid, content) -> {
+            if (System.nanoTime() - deadline > 0)
+                throw new TransactionTimedOutException("The export ran for longer than " + timeout);
+            writer.write(uuid, content);
+        };
+        try {
+            exportTransaction.executeWithoutResult(status -> {
+                try {
+                    export.run(boundedWriter);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
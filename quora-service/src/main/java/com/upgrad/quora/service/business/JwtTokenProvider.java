@@ -1,54 +1,124 @@
 package com.upgrad.quora.service.business;
 
 import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.exceptions.InvalidClaimException;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.entity.UserEntity;
 
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
+import java.util.Collections;
 import java.util.Date;
-import java.util.UUID;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * This class is used in the project to provide JWT token after successful authentication
+ * and to verify the tokens it has issued without a database lookup.
+ * A single instance is shared by all request threads. Tokens are signed with the active key and carry its id
+ * in the "kid" header, so keys can be rotated by adding a new key, making it active and retiring the old one
+ * once the tokens it signed have expired.
+ * Keys shorter than the 64 bytes of the HS512 hash, or left unset, fail the startup.
  */
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://quora.io";
+    private static final String TOKEN_AUDIENCE = "quora-api";
 
-    private final Algorithm algorithm;
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+
+    private final String activeKeyId;
+
+    private final Map<String, ThreadLocalHmacAlgorithm> algorithms;
 
     /**
-     * A constructor for JwtTokenProvider class which receives user password as an argument to be used in the signature part of JWT access token.
+     * A constructor for JwtTokenProvider class which receives the server signing keys by key id, and the id of the key used for new tokens.
      */
-    public JwtTokenProvider(final String secret) {
-        try {
-            algorithm = Algorithm.HMAC512(secret);
-        } catch (IllegalArgumentException e) {
+    public JwtTokenProvider(final String activeKeyId, final Map<String, String> keys) {
+        if (keys == null || !keys.containsKey(activeKeyId))
             throw new UnexpectedException(GenericErrorCode.GEN_001);
+        final Map<String, ThreadLocalHmacAlgorithm> keyed = new HashMap<>();
+        try {
+            for (Map.Entry<String, String> key : keys.entrySet()) {
+                // An unset environment variable is bound as its unresolved placeholder
+                final String secret = key.getValue() == null || key.getValue().startsWith("${") ? null : key.getValue();
+                keyed.put(key.getKey(), new ThreadLocalHmacAlgorithm(key.getKey(),
+                        secret == null ? null : secret.getBytes(StandardCharsets.UTF_8)));
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
         }
+        this.activeKeyId = activeKeyId;
+        this.algorithms = Collections.unmodifiableMap(keyed);
     }
 
 
     /**
-     * This method receives uuid of the user, current time and expiry time of the access token.
+     * This method receives the token id, the user, current time and expiry time of the access token.
      * This information is stored in the payload of the JWT token and the JWT token is returned by this method.
      */
     /**
-     * @param userUuid        - uuid of the user
+     * @param tokenId         - uuid of the user_auth record, used as the JWT id
+     * @param user            - user the token is issued to
      * @param issuedDateTime  - current time
      * @param expiresDateTime - expiry time of the JWT token
      * @return - generated JWT token
      */
-    public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+    public String generateToken(final String tokenId, final UserEntity user, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
-        return JWT.create().withIssuer(TOKEN_ISSUER) //
-                .withKeyId(UUID.randomUUID().toString())
-                .withAudience(userUuid) //
-                .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
+        final JWTCreator.Builder builder = JWT.create().withIssuer(TOKEN_ISSUER) //
+                .withKeyId(activeKeyId)
+                .withJWTId(tokenId)
+                .withAudience(TOKEN_AUDIENCE) //
+                .withSubject(user.getUuid())
+                .withClaim(USER_ID_CLAIM, user.getId())
+                .withIssuedAt(issuedAt).withExpiresAt(expiresAt);
+        if (user.getRole() != null) {
+            builder.withClaim(ROLE_CLAIM, user.getRole());
+        }
+        return builder.sign(algorithms.get(activeKeyId));
+    }
+
+    /**
+     * Verifies signature, issuer, audience and expiry of a token issued by this provider.
+     * The signing key is looked up by the "kid" header of the token.
+     * @param token - JWT access token
+     * @return - decoded token
+     * @throws JWTVerificationException - if the token is malformed, forged, expired, incomplete or signed with an unknown key
+     */
+    public DecodedJWT verifyToken(final String token) throws JWTVerificationException {
+        final DecodedJWT decoded = JWT.decode(token);
+        final ThreadLocalHmacAlgorithm algorithm = decoded.getKeyId() == null ? null : algorithms.get(decoded.getKeyId());
+        if (algorithm == null || !algorithm.getName().equals(decoded.getAlgorithm()))
+            throw new InvalidClaimException("The token is not signed with a known key");
+        algorithm.verify(decoded);
+
+        if (!TOKEN_ISSUER.equals(decoded.getIssuer()))
+            throw new InvalidClaimException("The token was issued by " + decoded.getIssuer());
+        if (decoded.getAudience() == null || !decoded.getAudience().equals(Collections.singletonList(TOKEN_AUDIENCE)))
+            throw new InvalidClaimException("The token is not meant for " + TOKEN_AUDIENCE);
+        if (decoded.getSubject() == null || decoded.getId() == null || decoded.getExpiresAt() == null
+                || decoded.getClaim(USER_ID_CLAIM).asInt() == null) {
+            throw new InvalidClaimException("The token is missing mandatory claims");
+        }
+        if (!decoded.getExpiresAt().after(new Date()))
+            throw new TokenExpiredException("The token expired on " + decoded.getExpiresAt());
+        return decoded;
+    }
+
+    /**
+     * @return - id of the key used to sign new tokens
+     */
+    public String getActiveKeyId() {
+        return activeKeyId;
     }
 
 }
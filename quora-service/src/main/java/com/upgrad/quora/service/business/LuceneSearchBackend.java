@@ -0,0 +1,432 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.QuestionSearchResult;
+import com.upgrad.quora.service.common.RankCursor;
+import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.SearchIndexListener;
+import com.upgrad.quora.service.dao.SearchIndexReplay;
+import com.upgrad.quora.service.dao.SearchIndexSync;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Search in an embedded Lucene index, for deployments which don't search in PostgreSQL (quora.search.backend: lucene).
+ * The index lives in a memory-mapped directory on local disk (quora.search.lucene.directory) and only mirrors the database:
+ * it is created anew at every start and rebuilt from the questions and answers on quora.search.lucene.rebuild-threads
+ * indexing threads, before the application takes requests. From then on it follows the writes committed through this
+ * instance (see {@link SearchIndexSync}), which searches see within quora.search.lucene.refresh-interval, as near-real-time
+ * readers are reopened in the background. Writes made through other instances only show after their next restart, so run
+ * a single instance with this backend.
+ * Questions and answers are indexed as separate documents, stemmed with the english analyzer. A question ranks by the BM25
+ * score of its content plus half of the best score of its answers, the same shape as the SQL backend.
+ */
+@Component
+@ConditionalOnProperty(name = "quora.search.backend", havingValue = LuceneSearchBackend.NAME)
+public class LuceneSearchBackend implements SearchBackend, SearchIndexListener {
+
+    public static final String NAME = "lucene";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LuceneSearchBackend.class);
+
+    //Unique key of each document: "q" and the question id, or "a" and the answer uuid
+    private static final String KEY = "key";
+    //Id of the question, or of the question answered, indexed for the deletes and kept in doc values for the ranking
+    private static final String QUESTION_ID = "question_id";
+    private static final String USER_ID = "user_id";
+    private static final String UUID = "uuid";
+    private static final String CONTENT = "content";
+    private static final String ANSWER = "answer";
+
+    //Further words are ignored, every word is a clause of the query
+    private static final int MAX_TERMS = 32;
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final Comparator<Map.Entry<Integer, Float>> RANK_ORDER =
+            Comparator.<Map.Entry<Integer, Float>, Float>comparing(Map.Entry::getValue).thenComparing(Map.Entry::getKey);
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private SearchIndexSync searchIndexSync;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.search.lucene.directory:search-index}")
+    private String directory;
+
+    @Value("${quora.search.lucene.refresh-interval:1s}")
+    private Duration refreshInterval;
+
+    @Value("${quora.search.lucene.rebuild-threads:0}")
+    private int rebuildThreads;
+
+    @Value("${quora.search.lucene.ram-buffer-mb:64}")
+    private double ramBufferMb;
+
+    @Value("${quora.export.fetch-size:500}")
+    private int fetchSize;
+
+    private final Analyzer analyzer = new EnglishAnalyzer();
+
+    private Directory indexDirectory;
+
+    private IndexWriter writer;
+
+    private SearcherManager searcherManager;
+
+    private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+    @PostConstruct
+    public void open() throws IOException, InterruptedException {
+        indexDirectory = new MMapDirectory(Paths.get(directory));
+        writer = new IndexWriter(indexDirectory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE)
+                .setRAMBufferSizeMB(ramBufferMb));
+        searcherManager = new SearcherManager(writer, null);
+        rebuild();
+
+        reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, refreshInterval.toMillis() / 1000.0, 0);
+        reopenThread.setName("search-index-refresh");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+        searchIndexSync.addListener(this);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+        writer.close();
+        indexDirectory.close();
+        analyzer.close();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<QuestionSearchResult> search(final String terms, final RankCursor after, final int limit) {
+        try {
+            final Set<String> tokens = tokens(terms);
+            if (tokens.isEmpty())
+                return Collections.emptyList();
+            final IndexSearcher searcher = searcherManager.acquire();
+            try {
+                final Map<Integer, Float> ranks = new HashMap<>();
+                searcher.search(allTerms(CONTENT, tokens), new BestScores(ranks));
+                final Map<Integer, Float> answerScores = new HashMap<>();
+                searcher.search(allTerms(ANSWER, tokens), new BestScores(answerScores));
+                for (Map.Entry<Integer, Float> answered : answerScores.entrySet()) {
+                    ranks.merge(answered.getKey(), answered.getValue() / 2, Float::sum);
+                }
+                return page(searcher, ranks, after, limit);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+    }
+
+    @Override
+    public void questionSaved(final int id, final String uuid, final String content, final int userId) {
+        update(new Term(KEY, "q" + id), questionDocument(id, uuid, content, userId));
+    }
+
+    @Override
+    public void answerSaved(final String uuid, final String answer, final int questionId, final int userId) {
+        update(new Term(KEY, "a" + uuid), answerDocument(uuid, answer, questionId, userId));
+    }
+
+    @Override
+    public void questionDeleted(final int id) {
+        delete(new Term(QUESTION_ID, Integer.toString(id)));
+    }
+
+    @Override
+    public void answerDeleted(final String uuid) {
+        delete(new Term(KEY, "a" + uuid));
+    }
+
+    @Override
+    public void userDeleted(final int userId, final Collection<Integer> questionIds) {
+        final List<Term> terms = new ArrayList<>(questionIds.size() + 1);
+        terms.add(new Term(USER_ID, Integer.toString(userId)));
+        for (Integer questionId : questionIds) {
+            terms.add(new Term(QUESTION_ID, questionId.toString()));
+        }
+        delete(terms.toArray(new Term[0]));
+    }
+
+    /**
+     * Indexes every question and answer of the database: rows are read on this thread and indexed in batches on the
+     * rebuild threads. When they are all busy this thread indexes too, which bounds the documents waiting in memory
+     */
+    private void rebuild() throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final int threads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor indexers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(2 * threads), runnable -> {
+                    Thread thread = new Thread(runnable, "search-index-rebuild-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        final Rebuild rebuild = new Rebuild(indexers);
+        try {
+            final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            transaction.execute(status -> {
+                questionDao.replayQuestions(0, fetchSize, rebuild);
+                answerDao.replayAnswers(fetchSize, rebuild);
+                rebuild.flush();
+                return null;
+            });
+        } finally {
+            indexers.shutdown();
+            indexers.awaitTermination(1, TimeUnit.HOURS);
+        }
+        if (rebuild.failure.get() != null)
+            throw new IOException("Failed to rebuild the search index", rebuild.failure.get());
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+        LOGGER.info("Search index rebuilt with {} questions and answers in {} ms, on {} threads", writer.getDocStats().numDocs,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), threads);
+    }
+
+    /**
+     * The limit best ranked questions after the cursor, with their uuid and content
+     */
+    private List<QuestionSearchResult> page(final IndexSearcher searcher, final Map<Integer, Float> ranks, final RankCursor after,
+                                            final int limit) throws IOException {
+        final PriorityQueue<Map.Entry<Integer, Float>> best = new PriorityQueue<>(limit + 1, RANK_ORDER);
+        for (Map.Entry<Integer, Float> rank : ranks.entrySet()) {
+            if (after != null && (rank.getValue() > after.getRank()
+                    || (rank.getValue() == after.getRank() && rank.getKey() >= after.getId())))
+                continue;
+            best.add(rank);
+            if (best.size() > limit)
+                best.poll();
+        }
+        final List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(best);
+        ranked.sort(RANK_ORDER.reversed());
+        final List<QuestionSearchResult> results = new ArrayList<>(ranked.size());
+        for (Map.Entry<Integer, Float> rank : ranked) {
+            final TopDocs question = searcher.search(new TermQuery(new Term(KEY, "q" + rank.getKey())), 1);
+            if (question.scoreDocs.length == 0)
+                continue;
+            final Document stored = searcher.doc(question.scoreDocs[0].doc);
+            results.add(new QuestionSearchResult(rank.getKey(), stored.get(UUID), stored.get(CONTENT), rank.getValue()));
+        }
+        return results;
+    }
+
+    private Set<String> tokens(final String terms) throws IOException {
+        final Set<String> tokens = new LinkedHashSet<>();
+        try (TokenStream stream = analyzer.tokenStream(CONTENT, terms)) {
+            final CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && tokens.size() < MAX_TERMS) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+
+    private static Query allTerms(final String field, final Collection<String> tokens) {
+        final BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String token : tokens) {
+            query.add(new TermQuery(new Term(field, token)), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private static Document questionDocument(final int id, final String uuid, final String content, final int userId) {
+        final Document document = new Document();
+        document.add(new StringField(KEY, "q" + id, Field.Store.NO));
+        document.add(new StringField(QUESTION_ID, Integer.toString(id), Field.Store.NO));
+        document.add(new NumericDocValuesField(QUESTION_ID, id));
+        document.add(new StringField(USER_ID, Integer.toString(userId), Field.Store.NO));
+        document.add(new StoredField(UUID, uuid));
+        document.add(new TextField(CONTENT, content, Field.Store.YES));
+        return document;
+    }
+
+    private static Document answerDocument(final String uuid, final String answer, final int questionId, final int userId) {
+        final Document document = new Document();
+        document.add(new StringField(KEY, "a" + uuid, Field.Store.NO));
+        document.add(new StringField(QUESTION_ID, Integer.toString(questionId), Field.Store.NO));
+        document.add(new NumericDocValuesField(QUESTION_ID, questionId));
+        document.add(new StringField(USER_ID, Integer.toString(userId), Field.Store.NO));
+        document.add(new TextField(ANSWER, answer, Field.Store.NO));
+        return document;
+    }
+
+    private void update(final Term key, final Document document) {
+        try {
+            writer.updateDocument(key, document);
+        } catch (IOException e) {
+            LOGGER.error("Failed to index {}, searches miss the change until the next rebuild", key.text(), e);
+        }
+    }
+
+    private void delete(final Term... terms) {
+        try {
+            writer.deleteDocuments(terms);
+        } catch (IOException e) {
+            LOGGER.error("Failed to remove {} from the search index, searches may return it until the next rebuild", terms[0].text(), e);
+        }
+    }
+
+    /**
+     * Best score of the matching documents of each question
+     */
+    private static final class BestScores extends SimpleCollector {
+
+        private final Map<Integer, Float> scores;
+
+        private NumericDocValues questionIds;
+
+        private Scorable scorer;
+
+        private BestScores(final Map<Integer, Float> scores) {
+            this.scores = scores;
+        }
+
+        @Override
+        protected void doSetNextReader(final LeafReaderContext context) throws IOException {
+            questionIds = DocValues.getNumeric(context.reader(), QUESTION_ID);
+        }
+
+        @Override
+        public void setScorer(final Scorable scorer) {
+            this.scorer = scorer;
+        }
+
+        @Override
+        public void collect(final int doc) throws IOException {
+            if (questionIds.advanceExact(doc))
+                scores.merge((int) questionIds.longValue(), scorer.score(), Math::max);
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE;
+        }
+    }
+
+    /**
+     * Receives the rows replayed by the DAOs on the reading thread, and hands them to the rebuild threads in batches
+     */
+    private final class Rebuild implements SearchIndexReplay {
+
+        private final ThreadPoolExecutor indexers;
+
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        private List<Document> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+
+        private Rebuild(final ThreadPoolExecutor indexers) {
+            this.indexers = indexers;
+        }
+
+        @Override
+        public void questionSaved(final int id, final String uuid, final String content, final int userId) {
+            add(questionDocument(id, uuid, content, userId));
+        }
+
+        @Override
+        public void answerSaved(final String uuid, final String answer, final int questionId, final int userId) {
+            add(answerDocument(uuid, answer, questionId, userId));
+        }
+
+        private void add(final Document document) {
+            batch.add(document);
+            if (batch.size() == REBUILD_BATCH_SIZE)
+                flush();
+        }
+
+        private void flush() {
+            final List<Document> documents = batch;
+            batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+            indexers.execute(() -> {
+                try {
+                    // The index is new, nothing to replace
+                    for (Document document : documents) {
+                        writer.addDocument(document);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+    }
+}
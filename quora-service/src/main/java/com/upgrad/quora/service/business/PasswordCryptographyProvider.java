@@ -1,81 +1,274 @@
 package com.upgrad.quora.service.business;
 
 
-import java.security.NoSuchAlgorithmException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 
+/**
+ * Hashes and verifies user passwords with the configured {@link PasswordHasher}.
+ * The hashing itself runs on a small bounded pool sized to the CPU cores, so a burst of sign ups and sign ins
+ * queues behind the pool instead of taking every request thread; when the queue is full the request is refused with GEN-002.
+ * Hashing time is published as quora.password.hashing by algorithm and operation, the pool as quora.password.executor.* gauges.
+ */
 @Component
-public class PasswordCryptographyProvider {
+public class PasswordCryptographyProvider implements MeterBinder {
 
-    private static String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
-    private static int HASHING_ITERATIONS = 1000;
-    private static int HASHING_KEY_LENGTH = 64;
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordCryptographyProvider.class);
+
+    private static final int LEGACY_HASHING_ITERATIONS = 1000;
+    private static final int LEGACY_HASHING_KEY_LENGTH = 64;
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
+    @Autowired
+    private List<PasswordHasher> passwordHashers;
+
+    @Value("${quora.password.algorithm:" + Pbkdf2PasswordHasher.ALGORITHM + "}")
+    private String algorithm;
+
+    @Value("${quora.password.executor.threads:0}")
+    private int threads;
+
+    @Value("${quora.password.executor.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${quora.password.executor.wait-timeout-ms:5000}")
+    private long waitTimeoutMillis;
+
+    private final Map<String, PasswordHasher> hashersByAlgorithm = new HashMap<>();
+
+    private PasswordHasher currentHasher;
+
+    private ThreadPoolExecutor hashingExecutor;
+
+    private volatile MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        for (PasswordHasher passwordHasher : passwordHashers) {
+            hashersByAlgorithm.put(passwordHasher.getAlgorithm(), passwordHasher);
+        }
+        currentHasher = hashersByAlgorithm.get(algorithm);
+        if (currentHasher == null)
+            throw new IllegalStateException("Unknown password hashing algorithm " + algorithm);
+
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger threadCount = new AtomicInteger();
+        hashingExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("quora.password.executor.queued", hashingExecutor, executor -> executor.getQueue().size())
+                .description("Hashing tasks waiting for a thread")
+                .register(registry);
+        Gauge.builder("quora.password.executor.active", hashingExecutor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing threads at work")
+                .register(registry);
+        this.meterRegistry = registry;
+    }
+
     /**
      * This method generates Salt and hashed Password
      *
      * @param password char array.
-     * @return String array with [0] encoded salt [1] hashed password.
+     * @return String array with [0] encoded salt [1] encoded hashed password.
      */
     public String[] encrypt(final String password) {
-        byte[] salt = generateSaltBytes();
-        byte[] hashedPassword = hashPassword(password.toCharArray(), salt);
-        return new String[]{getBase64EncodedBytesAsString(salt), bytesToHex(hashedPassword)};
+        final byte[] salt = generateSaltBytes();
+        final String hashedPassword = offload(() -> timed(currentHasher.getAlgorithm(), "hash",
+                () -> currentHasher.hash(password.toCharArray(), salt)));
+        return new String[]{getBase64EncodedBytesAsString(salt), hashedPassword};
     }
 
     /**
-     * This method re-generates hashed Password from raw-password and salt.
+     * This method re-generates the hash of a raw password with the salt and parameters of the stored hash and compares them.
      * This will be used during authentication.
      *
-     * @param password char array.
-     * @param salt     byte array.
-     * @return byte array of hashed password.
+     * @param password       raw password.
+     * @param salt           encoded salt of the user.
+     * @param storedPassword stored hash of the user.
+     * @return boolean : true if the password matches, false otherwise
      */
-    public static String encrypt(final String password, String salt) {
-        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+    public boolean matches(final String password, final String salt, final String storedPassword) {
+        return offload(() -> verify(password.toCharArray(), salt, storedPassword));
     }
 
     /**
-     * This method generates Salt
+     * This method tells whether a stored hash was produced by an older format, another algorithm or other cost parameters
+     * than the ones currently configured.
      *
-     * @return 32 bytes long array
+     * @param storedPassword stored hash of the user.
+     * @return boolean : true if the password should be hashed again with the current settings, false otherwise
      */
-    private static byte[] generateSaltBytes() {
-        final Random random = new SecureRandom();
-        byte[] saltBytes = new byte[32];
-        random.nextBytes(saltBytes);
-        return saltBytes;
+    public boolean needsRehash(final String storedPassword) {
+        final EncodedPassword encodedPassword;
+        try {
+            encodedPassword = EncodedPassword.parse(storedPassword);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        return encodedPassword == null
+                || !encodedPassword.getAlgorithm().equals(currentHasher.getAlgorithm())
+                || !currentHasher.isCurrent(encodedPassword);
     }
 
     /**
-     * This method generates hashed Password
+     * This method hashes a password with a new salt and the current settings in the background, without waiting for it.
+     * The work is skipped when the hashing pool is busy, it will be attempted again on the next sign in.
      *
-     * @param password char array.
-     * @param salt     byte array.
-     * @return byte array of hashed password.
+     * @param password raw password.
+     * @param onHashed receives the String array with [0] encoded salt [1] encoded hashed password.
+     */
+    public void encryptInBackground(final String password, final Consumer<String[]> onHashed) {
+        try {
+            hashingExecutor.execute(() -> {
+                try {
+                    final byte[] salt = generateSaltBytes();
+                    final String hashedPassword = timed(currentHasher.getAlgorithm(), "rehash",
+                            () -> currentHasher.hash(password.toCharArray(), salt));
+                    onHashed.accept(new String[]{getBase64EncodedBytesAsString(salt), hashedPassword});
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Background password rehash failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Password hashing pool is busy, skipping the background rehash");
+        }
+    }
+
+    /**
+     * @return PasswordHasher : the scheme used for new hashes
      */
-    private static byte[] hashPassword(final char[] password, final byte[] salt) {
+    public PasswordHasher getCurrentHasher() {
+        return currentHasher;
+    }
+
+    /**
+     * @return int : hashing tasks waiting for a thread
+     */
+    public int getQueuedTasks() {
+        return hashingExecutor.getQueue().size();
+    }
+
+    private boolean verify(final char[] password, final String salt, final String storedPassword) {
+        final byte[] saltBytes;
+        final EncodedPassword encodedPassword;
+        try {
+            saltBytes = getBase64DecodedStringAsBytes(salt);
+            encodedPassword = EncodedPassword.parse(storedPassword);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (encodedPassword == null) {
+            // Hashes stored before the encoded format: hex of a 64 bit PBKDF2 key with 1000 iterations
+            final String legacyHash = timed("legacy", "verify", () ->
+                    bytesToHex(Pbkdf2PasswordHasher.derive(password, saltBytes, LEGACY_HASHING_ITERATIONS, LEGACY_HASHING_KEY_LENGTH)));
+            return MessageDigest.isEqual(legacyHash.getBytes(StandardCharsets.US_ASCII), storedPassword.getBytes(StandardCharsets.US_ASCII));
+        }
+        final PasswordHasher passwordHasher = hashersByAlgorithm.get(encodedPassword.getAlgorithm());
+        if (passwordHasher == null)
+            throw new UnexpectedException(GenericErrorCode.GEN_001);
         try {
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
-            SecretKey key = skf.generateSecret(spec);
-            byte[] res = key.getEncoded();
-            return res;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-            throw new RuntimeException(e);
+            return timed(passwordHasher.getAlgorithm(), "verify", () -> passwordHasher.matches(password, saltBytes, encodedPassword));
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
 
+    /**
+     * Times the hashing work itself, without the wait for a pool thread
+     */
+    private <T> T timed(final String algorithm, final String operation, final Supplier<T> work) {
+        final MeterRegistry registry = meterRegistry;
+        if (registry == null)
+            return work.get();
+        return Timer.builder("quora.password.hashing")
+                .description("Time spent hashing passwords")
+                .tags("algorithm", algorithm, "operation", operation)
+                .register(registry)
+                .record(work);
+    }
+
+    /**
+     * Runs the hashing work on the bounded pool and waits for it
+     */
+    private <T> T offload(final Callable<T> task) {
+        final Future<T> result;
+        try {
+            result = hashingExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_002, e);
+        }
+        try {
+            return result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new UnexpectedException(GenericErrorCode.GEN_002, e);
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new UnexpectedException(GenericErrorCode.GEN_002, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e.getCause());
+        }
+    }
+
+    /**
+     * This method generates Salt
+     *
+     * @return 32 bytes long array
+     */
+    private static byte[] generateSaltBytes() {
+        final Random random = new SecureRandom();
+        byte[] saltBytes = new byte[32];
+        random.nextBytes(saltBytes);
+        return saltBytes;
+    }
+
     private static String bytesToHex(byte[] bytes) {
         char[] hexChars = new char[bytes.length * 2];
         for (int j = 0; j < bytes.length; j++) {
@@ -94,5 +287,3 @@ public class PasswordCryptographyProvider {
         return Base64.getDecoder().decode(decode);
     }
 }
-
-
@@ -0,0 +1,34 @@
+package com.upgrad.quora.service.business;
+
+/**
+ * A password hashing scheme. Implementations hash new passwords with their configured cost parameters
+ * and verify stored hashes with the parameters recorded in the hash itself.
+ */
+public interface PasswordHasher {
+
+    /**
+     * @return String : identifier written at the start of every hash produced by this scheme
+     */
+    String getAlgorithm();
+
+    /**
+     * @param password : raw password
+     * @param salt : random salt of the user
+     * @return String : encoded hash, see {@link EncodedPassword}
+     */
+    String hash(char[] password, byte[] salt);
+
+    /**
+     * @param password : raw password
+     * @param salt : salt the hash was produced with
+     * @param encodedPassword : stored hash produced by this scheme
+     * @return boolean : true if the password matches, false otherwise
+     */
+    boolean matches(char[] password, byte[] salt, EncodedPassword encodedPassword);
+
+    /**
+     * @param encodedPassword : stored hash produced by this scheme
+     * @return boolean : true if the hash was produced with the currently configured parameters, false otherwise
+     */
+    boolean isCurrent(EncodedPassword encodedPassword);
+}
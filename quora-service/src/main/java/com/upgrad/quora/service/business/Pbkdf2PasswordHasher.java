@@ -0,0 +1,87 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PBKDF2 with HMAC-SHA512. CPU-hard only, kept as the default since it needs nothing outside the JDK.
+ */
+@Component
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    public static final String ALGORITHM = "pbkdf2-sha512";
+
+    private static final String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
+
+    /**
+     * SecretKeyFactory.getInstance walks the security providers on every call, so each hashing thread keeps its own
+     */
+    private static final ThreadLocal<SecretKeyFactory> SECRET_KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final int iterations;
+
+    private final int keyLength;
+
+    public Pbkdf2PasswordHasher(@Value("${quora.password.pbkdf2.iterations:210000}") final int iterations,
+                                @Value("${quora.password.pbkdf2.key-length:512}") final int keyLength) {
+        this.iterations = iterations;
+        this.keyLength = keyLength;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public String hash(final char[] password, final byte[] salt) {
+        final Map<String, Integer> parameters = new LinkedHashMap<>();
+        parameters.put("i", iterations);
+        parameters.put("l", keyLength);
+        return new EncodedPassword(ALGORITHM, parameters, derive(password, salt, iterations, keyLength)).format();
+    }
+
+    @Override
+    public boolean matches(final char[] password, final byte[] salt, final EncodedPassword encodedPassword) {
+        final byte[] hash = derive(password, salt, encodedPassword.getParameter("i"), encodedPassword.getParameter("l"));
+        return MessageDigest.isEqual(hash, encodedPassword.getHash());
+    }
+
+    @Override
+    public boolean isCurrent(final EncodedPassword encodedPassword) {
+        return Integer.valueOf(iterations).equals(encodedPassword.getParameters().get("i"))
+                && Integer.valueOf(keyLength).equals(encodedPassword.getParameters().get("l"));
+    }
+
+    /**
+     * @param password : raw password
+     * @param salt : salt bytes
+     * @param iterations : PBKDF2 iteration count
+     * @param keyLength : derived key length in bits
+     * @return byte array of hashed password.
+     */
+    static byte[] derive(final char[] password, final byte[] salt, final int iterations, final int keyLength) {
+        final PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, keyLength);
+        try {
+            return SECRET_KEY_FACTORY.get().generateSecret(spec).getEncoded();
+        } catch (InvalidKeySpecException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -1,17 +1,34 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.common.QuestionFeedItem;
+import com.upgrad.quora.service.common.QuestionSearchResult;
+import com.upgrad.quora.service.common.RankCursor;
+import com.upgrad.quora.service.common.ResultPage;
+import com.upgrad.quora.service.common.RowWriter;
 import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.DuplicateQuestionException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class QuestionBusinessService {
@@ -22,6 +39,67 @@ public class QuestionBusinessService {
     @Autowired
     private CommonService commonService;
 
+    @Autowired
+    private BulkItems bulkItems;
+
+    @Autowired
+    private List<SearchBackend> searchBackends;
+
+    @Value("${quora.search.backend:sql}")
+    private String searchBackendName;
+
+    private SearchBackend searchBackend;
+
+    @Autowired
+    private DuplicateQuestionIndex duplicateQuestionIndex;
+
+    @Autowired
+    private QuestionCounters questionCounters;
+
+    @Autowired
+    private ExportLimiter exportLimiter;
+
+    @Value("${quora.pagination.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${quora.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${quora.export.fetch-size:500}")
+    private int fetchSize;
+
+    @PostConstruct
+    public void init() {
+        for (SearchBackend backend : searchBackends) {
+            if (backend.getName().equals(searchBackendName))
+                searchBackend = backend;
+        }
+        if (searchBackend == null)
+            throw new IllegalStateException("Unknown search backend " + searchBackendName);
+    }
+
+    /**
+     * Business service to find the existing questions a new one nearly repeats, before it is created.
+     * Candidates come from the in-memory duplicate index, and only those whose content overlaps enough are kept;
+     * a content with no candidate, the usual case, doesn't touch the database
+     * @param content : Content of the new question
+     * @return List<QuestionEntity> : near duplicates, most similar first
+     * @throws DuplicateQuestionException : if there is a near duplicate and quora.duplicates.mode is reject
+     */
+    public List<QuestionEntity> checkDuplicates(final String content) throws DuplicateQuestionException{
+        List<Integer> candidates = duplicateQuestionIndex.candidates(content);
+        if(candidates.isEmpty())
+            return Collections.emptyList();
+        List<QuestionEntity> duplicates = new ArrayList<>(candidates.size());
+        for(QuestionEntity candidate : questionDao.getQuestionsByIds(candidates)){
+            if(duplicateQuestionIndex.isDuplicate(content, candidate.getContent()))
+                duplicates.add(candidate);
+        }
+        if(!duplicates.isEmpty() && duplicateQuestionIndex.rejects())
+            throw new DuplicateQuestionException("QUES-003", "A similar question already exists: " + duplicates.get(0).getUuid());
+        return duplicates;
+    }
+
     /**
      * Business service to create a new Question
      * @param questionEntity : Model object of the QuestionEntity class
@@ -34,13 +112,100 @@ public class QuestionBusinessService {
     }
 
     /**
-     * Business service to get all questions
-     * @return QuestionEntity : Model object of QuestionEntity class
+     * Business service to create many questions of one user, persisted in JDBC batches
+     * Each content is checked on its own: invalid ones are reported as rejected and the others are still created
+     * @param user : UserEntity model of the author, whose token was checked once for the whole request
+     * @param contents : content of each question
+     * @return List<BulkItemResult> : result of each content, in the request order
+     * @throws InvalidBulkRequestException : if there are no contents or more than the maximum
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public List<QuestionEntity> getAllQuestions(){
-        List<QuestionEntity> allQuestions = questionDao.getAllQuestion();
-        return allQuestions;
+    public List<BulkItemResult> createQuestions(final UserEntity user, final List<String> contents) throws InvalidBulkRequestException{
+        bulkItems.checkSize(contents);
+        final ZonedDateTime now = ZonedDateTime.now();
+        List<QuestionEntity> questions = new ArrayList<>(contents.size());
+        List<BulkItemResult> results = new ArrayList<>(contents.size());
+        for(int i = 0; i < contents.size(); i++){
+            QuestionEntity questionEntity = new QuestionEntity();
+            questionEntity.setUuid(UUID.randomUUID().toString());
+            questionEntity.setContent(contents.get(i));
+            questionEntity.setDate(now);
+            questionEntity.setUserId(user);
+            BulkItemResult rejected = bulkItems.validate(i, questionEntity, "QUES-002");
+            if(rejected != null){
+                results.add(rejected);
+            }
+            else{
+                questions.add(questionEntity);
+                results.add(BulkItemResult.created(i, questionEntity.getUuid()));
+            }
+        }
+        questionDao.createQuestions(questions, bulkItems.getBatchSize());
+        return results;
+    }
+
+    /**
+     * Business service to get one page of all questions, newest first
+     * @param cursor : Cursor returned with the previous page, null for the first page
+     * @param limit : Requested page size, capped to the maximum page size
+     * @return ResultPage<QuestionEntity> : Page of QuestionEntity with the cursor of the next page
+     * @throws InvalidCursorException : if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public ResultPage<QuestionEntity> getAllQuestions(final String cursor, final Integer limit) throws InvalidCursorException{
+        final int pageSize = pageSize(limit);
+        List<QuestionEntity> questions = questionDao.getQuestionPage(KeysetCursor.decode(cursor), pageSize + 1);
+        return toPage(questions, pageSize);
+    }
+
+    /**
+     * Business service to get one page of the question feed, most recently active first, with the answer count and the
+     * date of the latest answer of each question
+     * @param cursor : Cursor returned with the previous page, null for the first page
+     * @param limit : Requested page size, capped to the maximum page size
+     * @return ResultPage<QuestionFeedItem> : Page of QuestionFeedItem with the cursor of the next page
+     * @throws InvalidCursorException : if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public ResultPage<QuestionFeedItem> getQuestionFeed(final String cursor, final Integer limit) throws InvalidCursorException{
+        final int pageSize = pageSize(limit);
+        List<QuestionFeedItem> items = questionDao.getQuestionFeed(KeysetCursor.decode(cursor), pageSize + 1);
+        if(items.size() <= pageSize)
+            return new ResultPage<>(items, null);
+        List<QuestionFeedItem> page = items.subList(0, pageSize);
+        QuestionFeedItem last = page.get(pageSize - 1);
+        return new ResultPage<>(page, new KeysetCursor(last.getLastActivityAt(), last.getId()).encode());
+    }
+
+    /**
+     * Business service to search the questions and their answers, most relevant first, one page at a time
+     * @param terms : Words to search for, blank terms match nothing
+     * @param cursor : Cursor returned with the previous page, null for the first page
+     * @param limit : Requested page size, capped to the maximum page size
+     * @return ResultPage<QuestionSearchResult> : Page of QuestionSearchResult with the cursor of the next page
+     * @throws InvalidCursorException : if the cursor is malformed
+     */
+    public ResultPage<QuestionSearchResult> searchQuestions(final String terms, final String cursor, final Integer limit) throws InvalidCursorException{
+        final RankCursor after = RankCursor.decode(cursor);
+        if(terms == null || terms.trim().isEmpty())
+            return new ResultPage<>(Collections.<QuestionSearchResult>emptyList(), null);
+        final int pageSize = pageSize(limit);
+        List<QuestionSearchResult> results = searchBackend.search(terms, after, pageSize + 1);
+        if(results.size() <= pageSize)
+            return new ResultPage<>(results, null);
+        List<QuestionSearchResult> page = results.subList(0, pageSize);
+        QuestionSearchResult last = page.get(pageSize - 1);
+        return new ResultPage<>(page, new RankCursor(last.getRank(), last.getId()).encode());
+    }
+
+    /**
+     * Business service to stream all questions, newest first, from a database cursor
+     * The caller holds a permit of the ExportLimiter, which bounds the transaction of the export
+     * @param writer : receives the uuid and content of each question
+     * @throws IOException : if the writer fails
+     */
+    public void streamAllQuestions(final RowWriter writer) throws IOException{
+        exportLimiter.run(rows -> questionDao.streamAllQuestions(fetchSize, rows), writer);
     }
 
     /**
@@ -50,7 +215,7 @@ public class QuestionBusinessService {
      * @return QuestionEntity : Model object of QuestionEntity class
      * @throws InvalidQuestionException : if the question Uid or role is doesn't match
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public QuestionEntity getQuestionById(String id) throws InvalidQuestionException{
         QuestionEntity questionEntity = questionDao.getQuestionById(id);
         if(questionEntity == null)
@@ -59,6 +224,19 @@ public class QuestionBusinessService {
         return questionEntity;
     }
 
+    /**
+     * Helper function to retrieve a Question by its UID for a user to read, which counts as a view of the question
+     * @param id : Question Id to be searched
+     * @return QuestionEntity : Model object of QuestionEntity class
+     * @throws InvalidQuestionException : if the question Uid doesn't exist
+     */
+    @Transactional(readOnly = true)
+    public QuestionEntity viewQuestionById(String id) throws InvalidQuestionException{
+        QuestionEntity questionEntity = getQuestionById(id);
+        questionCounters.questionViewed(questionEntity.getId());
+        return questionEntity;
+    }
+
     /**
      * Helper function to validated the owner of a question
      * To increase code re-usability
@@ -86,7 +264,7 @@ public class QuestionBusinessService {
         QuestionEntity question = getQuestionById(uuid);
         UserAuthEntity userAuthEntity = commonService.commonProfiles(accessToken);
         if(isQuestionOwner(userAuthEntity, question)){
-            questionDao.editQuestion(uuid, questionContent);
+            questionDao.editQuestion(question, questionContent);
         }
         else
             throw new AuthorizationFailedException("ATHR-003","Only the question owner can edit the question");
@@ -102,25 +280,52 @@ public class QuestionBusinessService {
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public void deleteQuestion(String accessToken, String uuid) throws AuthorizationFailedException, InvalidQuestionException{
-        QuestionEntity questionEntity = getQuestionById(uuid);
         UserAuthEntity userAuthEntity = commonService.commonProfiles(accessToken);
 
-        final String userRole = userAuthEntity.getUserid().getRole();
-        if(isQuestionOwner(userAuthEntity, questionEntity) || userRole.equals("admin")){
-            questionDao.deleteQuestion(uuid);
-        }
-        else{
+        //The ownership check is part of the delete, the question is only read to tell why nothing was deleted
+        if(!questionDao.deleteQuestion(uuid, userAuthEntity.getUserid())){
+            getQuestionById(uuid);
             throw new AuthorizationFailedException("ATH-003", "Only the question owner or admin can delete the question");
         }
     }
 
     /**
-     * Business service to get all questions
+     * Business service to get one page of the questions posted by a user, newest first
      * @param userId : UserEntity model of the user
-     * @return List<QuestionEntity> : Model object of QuestionEntity class
+     * @param cursor : Cursor returned with the previous page, null for the first page
+     * @param limit : Requested page size, capped to the maximum page size
+     * @return ResultPage<QuestionEntity> : Page of QuestionEntity with the cursor of the next page
+     * @throws InvalidCursorException : if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public ResultPage<QuestionEntity> getAllQuestionsByUser(final UserEntity userId, final String cursor, final Integer limit) throws InvalidCursorException{
+        final int pageSize = pageSize(limit);
+        List<QuestionEntity> questions = questionDao.getQuestionPageByUser(userId, KeysetCursor.decode(cursor), pageSize + 1);
+        return toPage(questions, pageSize);
+    }
+
+    /**
+     * Helper function to resolve the requested page size
+     * @param limit : Requested page size, may be null
+     * @return int : page size between 1 and the maximum page size
+     */
+    private int pageSize(final Integer limit){
+        if(limit == null || limit <= 0)
+            return Math.min(defaultPageSize, maxPageSize);
+        return Math.min(limit, maxPageSize);
+    }
+
+    /**
+     * Helper function to cut the extra row fetched to detect a next page
+     * @param questions : up to pageSize + 1 questions
+     * @param pageSize : page size
+     * @return ResultPage<QuestionEntity> : Page of QuestionEntity with the cursor of the next page
      */
-    public List<QuestionEntity> getAllQuestionsByUser(final UserEntity userId){
-        List<QuestionEntity> allQuestions = questionDao.getAllQuestionByUser(userId);
-        return allQuestions;
+    private ResultPage<QuestionEntity> toPage(final List<QuestionEntity> questions, final int pageSize){
+        if(questions.size() <= pageSize)
+            return new ResultPage<>(questions, null);
+        List<QuestionEntity> page = questions.subList(0, pageSize);
+        QuestionEntity last = page.get(pageSize - 1);
+        return new ResultPage<>(page, new KeysetCursor(last.getDate(), last.getId()).encode());
     }
 }
@@ -0,0 +1,194 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind view counts of the questions. Views are added up in memory, on a LongAdder per question, and a flush locks the
+ * question_feed rows of a batch in question id order and adds their views, so that a popular question doesn't have every
+ * view waiting on the lock of its row. Answers are not counted here, the DAOs move the feed rows in the transactions which
+ * write the answers.
+ * The counters are flushed every quora.counters.flush-interval, and as soon as quora.counters.max-pending views are
+ * waiting: a crash loses at most the views of one interval, and no more than about max-pending of them. A flush which fails
+ * keeps its counters for the next one; those still waiting at shutdown are flushed then.
+ * The increments go to the current generation of counters; a flush starts a new one, waits for the increments already
+ * under way on the old one and writes it out, so writers never wait on the flush or on each other.
+ */
+@Component
+public class QuestionCounters implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuestionCounters.class);
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.counters.flush-interval:1s}")
+    private Duration flushInterval;
+
+    @Value("${quora.counters.max-pending:10000}")
+    private long maxPending;
+
+    @Value("${quora.counters.batch-size:500}")
+    private int batchSize;
+
+    private volatile Generation generation = new Generation();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService flushExecutor;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    public void init() {
+        if (flushInterval.isNegative() || flushInterval.isZero() || maxPending <= 0 || batchSize <= 0)
+            throw new IllegalStateException("quora.counters.flush-interval, max-pending and batch-size must be positive");
+        transaction = new TransactionTemplate(transactionManager);
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "question-counters-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(flushInterval.toMillis() + 10000, TimeUnit.MILLISECONDS);
+        flush();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("quora.counters.pending", this, counters -> counters.generation.pending.sum())
+                .description("Views not written to the database yet")
+                .register(registry);
+    }
+
+    /**
+     * Counts a view of a question
+     * @param questionId : id of the question
+     */
+    public void questionViewed(final int questionId) {
+        add(questionId, 1);
+    }
+
+    /**
+     * Writes the counters added up so far to the database. Runs on the flush thread, and once more at shutdown
+     */
+    synchronized void flush() {
+        flushRequested.set(false);
+        final Generation flushed = generation;
+        generation = new Generation();
+        // Exited is read before entered: if both are equal, no increment was still under way on the old generation
+        while (flushed.exited.sum() != flushed.entered.sum()) {
+            Thread.yield();
+        }
+        if (flushed.views.isEmpty())
+            return;
+
+        final int[] questionIds = new int[flushed.views.size()];
+        int size = 0;
+        for (Integer questionId : flushed.views.keySet()) {
+            questionIds[size++] = questionId;
+        }
+        Arrays.sort(questionIds, 0, size);
+        final int[] batchIds = new int[batchSize];
+        final long[] views = new long[batchSize];
+        for (int from = 0; from < size; from += batchSize) {
+            final int count = Math.min(batchSize, size - from);
+            for (int i = 0; i < count; i++) {
+                batchIds[i] = questionIds[from + i];
+                views[i] = flushed.views.get(batchIds[i]).sum();
+            }
+            try {
+                transaction.execute(status -> {
+                    questionDao.addViews(batchIds, views, count);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to write the counters of {} questions, they are kept for the next flush", count, e);
+                // Retried on schedule rather than at once however many are pending
+                flushRequested.set(true);
+                for (int i = 0; i < count; i++) {
+                    add(batchIds[i], views[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds views to a question
+     */
+    private void add(final int questionId, final long views) {
+        while (true) {
+            final Generation current = generation;
+            current.entered.increment();
+            try {
+                // A flush may have started since the generation was read, its counts would then be written out without these
+                if (current != generation)
+                    continue;
+                LongAdder counter = current.views.get(questionId);
+                if (counter == null)
+                    counter = current.views.computeIfAbsent(questionId, id -> new LongAdder());
+                counter.add(views);
+                current.pending.add(views);
+                if (current.pending.sum() >= maxPending)
+                    requestFlush();
+                return;
+            } finally {
+                current.exited.increment();
+            }
+        }
+    }
+
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true))
+            return;
+        try {
+            flushExecutor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the last flush writes them
+        }
+    }
+
+    /**
+     * Views of the questions viewed since the last flush
+     */
+    private static final class Generation {
+
+        private final ConcurrentHashMap<Integer, LongAdder> views = new ConcurrentHashMap<>();
+
+        private final LongAdder pending = new LongAdder();
+
+        //Increments started and finished on this generation, both only grow so that their sums can't wrongly meet
+        private final LongAdder entered = new LongAdder();
+
+        private final LongAdder exited = new LongAdder();
+    }
+}
@@ -0,0 +1,27 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.QuestionSearchResult;
+import com.upgrad.quora.service.common.RankCursor;
+
+import java.util.List;
+
+/**
+ * A full-text search over the questions and their answers, chosen with quora.search.backend.
+ * A question matches when its content or one of its answers contains all the words searched for; results are ordered by
+ * rank, then id, both descending, so that pages can continue from a {@link RankCursor}.
+ */
+public interface SearchBackend {
+
+    /**
+     * @return String : value of quora.search.backend selecting this backend
+     */
+    String getName();
+
+    /**
+     * @param terms : Words to search for
+     * @param after : Cursor of the last result of the previous page, null for the first page
+     * @param limit : Maximum number of questions
+     * @return List<QuestionSearchResult> : matching questions, most relevant first
+     */
+    List<QuestionSearchResult> search(String terms, RankCursor after, int limit);
+}
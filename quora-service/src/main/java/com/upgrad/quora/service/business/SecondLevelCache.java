@@ -0,0 +1,108 @@
+package com.upgrad.quora.service.business;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.cache.CacheManager;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache of the users and questions, by id and by uuid (natural id), and of the cached queries,
+ * held in bounded Caffeine caches. Writes through the entities update the cache, native statements evict only the rows they
+ * return through CacheEviction.evictRows.
+ * Entries also expire after "quora.second-level-cache.expire-after-write", which bounds how long a row read from a lagging
+ * replica can be served. The bounded caches keep their own hit, miss, put and eviction counts, published per region as the
+ * cache.gets, cache.puts, cache.evictions and cache.removals meters tagged with the region as "cache"; Hibernate statistics
+ * are not needed for them and are left as configured.
+ */
+@Component
+public class SecondLevelCache implements HibernatePropertiesCustomizer, MeterBinder {
+
+    private static final String[] REGIONS = {UserEntity.CACHE_REGION, UserEntity.NATURAL_ID_CACHE_REGION,
+            QuestionEntity.CACHE_REGION, QuestionEntity.NATURAL_ID_CACHE_REGION, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME};
+
+    @Value("${quora.second-level-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.second-level-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${quora.second-level-cache.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+
+    private CacheManager cacheManager;
+
+    /**
+     * The caches are created up front, so that the meters can be bound before Hibernate builds the session factory
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled)
+            return;
+        // Hibernate closes the cache manager with the session factory. The statistics MXBeans are named after the manager
+        // URI and the cache, each manager gets its own URI so that the meters never read the counts of another one
+        final CaffeineCachingProvider provider = new CaffeineCachingProvider();
+        final URI uri = URI.create(provider.getDefaultURI() + "#" + Integer.toHexString(System.identityHashCode(this)));
+        cacheManager = provider.getCacheManager(uri, provider.getDefaultClassLoader());
+        for (String region : REGIONS) {
+            cacheManager.createCache(region, configuration(true));
+        }
+        // When each table last changed, checked by the cached queries: must neither expire nor be evicted
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, configuration(false));
+    }
+
+    @Override
+    public void customize(final Map<String, Object> hibernateProperties) {
+        if (!enabled) {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, "false");
+            return;
+        }
+        hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+        hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, "true");
+        hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+        hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+        // A region without a cache above is a mapping mistake
+        hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+    }
+
+    /**
+     * Hibernate's own meters only add up the regions and need its statistics, these read the counts of each cache
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        if (!enabled)
+            return;
+        for (String region : REGIONS) {
+            JCacheMetrics.monitor(registry, cacheManager.getCache(region));
+        }
+    }
+
+    private CaffeineConfiguration<Object, Object> configuration(final boolean bounded) {
+        final CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // Hibernate stores its own immutable copies of the rows, no need to copy them again
+        configuration.setStoreByValue(false);
+        if (bounded) {
+            // Counted by the cache itself, read through its CacheStatistics MXBean
+            configuration.setStatisticsEnabled(true);
+            configuration.setMaximumSize(OptionalLong.of(maximumSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        }
+        return configuration;
+    }
+}
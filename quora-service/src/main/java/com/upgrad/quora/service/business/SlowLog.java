@@ -0,0 +1,77 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.SlowLogSnapshot;
+import com.upgrad.quora.service.common.SlowQuery;
+import com.upgrad.quora.service.common.SlowRequest;
+import com.upgrad.quora.service.common.SlowestSamples;
+import com.upgrad.quora.service.dao.TimingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * The slowest requests and statement executions since start up (or the last reset), kept in memory
+ * so tail latency can be looked into without turning on SQL logging.
+ * Statements are timed by wrapping the DataSource in a {@link TimingDataSource}, and named after the DAO method which ran them;
+ * Hibernate statistics are left as configured. A size of 0 turns the log off and leaves the DataSource as it is.
+ */
+@Component
+public class SlowLog implements BeanPostProcessor {
+
+    private final int size;
+
+    private final SlowestSamples<SlowRequest> requests;
+
+    private final SlowestSamples<SlowQuery> queries;
+
+    public SlowLog(@Value("${quora.slow-log.size:20}") final int size) {
+        this.size = size;
+        this.requests = new SlowestSamples<>(size);
+        this.queries = new SlowestSamples<>(size);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if (size == 0 || !(bean instanceof DataSource) || bean instanceof TimingDataSource)
+            return bean;
+        return new TimingDataSource((DataSource) bean, this::statementExecuted);
+    }
+
+    /**
+     * @param durationNanos : time taken by the request
+     * @param request : builds the sample, called only if it is among the slowest
+     */
+    public void recordRequest(final long durationNanos, final Supplier<SlowRequest> request) {
+        requests.offer(durationNanos, request);
+    }
+
+    /**
+     * @param durationNanos : time taken by the query
+     * @param query : builds the sample, called only if it is among the slowest
+     */
+    public void recordQuery(final long durationNanos, final Supplier<SlowQuery> query) {
+        queries.offer(durationNanos, query);
+    }
+
+    private void statementExecuted(final String operation, final String sql, final int rows, final long durationNanos) {
+        recordQuery(durationNanos, () -> new SlowQuery(Instant.now(), operation == null ? "(not in a DAO)" : operation,
+                sql, rows, durationNanos / 1e6));
+    }
+
+    /**
+     * @param reset : true to start over once read
+     * @return SlowLogSnapshot : slowest requests and statements, slowest first
+     */
+    public SlowLogSnapshot snapshot(final boolean reset) {
+        final SlowLogSnapshot snapshot = new SlowLogSnapshot(requests.snapshot(), queries.snapshot());
+        if (reset) {
+            requests.clear();
+            queries.clear();
+        }
+        return snapshot;
+    }
+}
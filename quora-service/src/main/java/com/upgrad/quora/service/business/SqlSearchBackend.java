@@ -0,0 +1,33 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.QuestionSearchResult;
+import com.upgrad.quora.service.common.RankCursor;
+import com.upgrad.quora.service.dao.QuestionDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Search in PostgreSQL, over the tsvector columns and GIN indexes of the question and answer tables (the default backend).
+ */
+@Component
+public class SqlSearchBackend implements SearchBackend {
+
+    public static final String NAME = "sql";
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<QuestionSearchResult> search(final String terms, final RankCursor after, final int limit) {
+        return questionDao.searchQuestions(terms, after, limit);
+    }
+}
@@ -0,0 +1,68 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * HS512 signing algorithm which keeps one pre-keyed {@link Mac} per thread.
+ * The stock HMAC algorithm looks up and keys a new Mac for every signature; request threads are pooled,
+ * so keeping the Mac for the lifetime of the thread takes the provider lookup and key schedule off the login path.
+ */
+class ThreadLocalHmacAlgorithm extends Algorithm {
+
+    private static final String MAC_ALGORITHM = "HmacSHA512";
+
+    // RFC 7518 3.2: the key must be at least as long as the hash output
+    static final int MIN_KEY_BYTES = 64;
+
+    private final ThreadLocal<Mac> mac;
+
+    ThreadLocalHmacAlgorithm(final String keyId, final byte[] secret) {
+        super("HS512", MAC_ALGORITHM);
+        if (secret == null || secret.length < MIN_KEY_BYTES)
+            throw new IllegalArgumentException("The signing key " + keyId + " is missing or shorter than " + MIN_KEY_BYTES + " bytes");
+        final SecretKeySpec key = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(MAC_ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        // Fail at startup rather than on the first login if the JVM can't provide the Mac
+        mac.get();
+    }
+
+    @Override
+    public byte[] sign(final byte[] contentBytes) throws SignatureGenerationException {
+        try {
+            return mac.get().doFinal(contentBytes);
+        } catch (IllegalStateException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+
+    @Override
+    public void verify(final DecodedJWT jwt) throws SignatureVerificationException {
+        final byte[] content = (jwt.getHeader() + "." + jwt.getPayload()).getBytes(StandardCharsets.UTF_8);
+        final byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(jwt.getSignature());
+        } catch (IllegalArgumentException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+        if (!MessageDigest.isEqual(mac.get().doFinal(content), signature))
+            throw new SignatureVerificationException(this);
+    }
+}
@@ -0,0 +1,106 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.dao.UserDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact in-memory record of the signed tokens that must no longer be honoured by the stateless verification.
+ * Signed out tokens are kept by their JWT id, deleted users by a cut-off time for their tokens, as long as the stateless
+ * verification could still accept them: quora.auth.stateless-max-age after they were issued.
+ * The signed out tokens are reloaded from user_auth at startup; user deletions are not, and stay bounded by that age.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final int PRUNE_INTERVAL = 1024;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Value("${quora.auth.stateless-verification:false}")
+    private boolean statelessVerification;
+
+    @Value("${quora.auth.stateless-max-age:5m}")
+    private Duration statelessMaxAge;
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger revocations = new AtomicInteger();
+
+    /**
+     * Seeds the list with the tokens signed out before this instance started
+     */
+    @PostConstruct
+    public void loadRevokedTokens() {
+        if (!statelessVerification)
+            return;
+        for (String accessToken : userDao.getRevokedAccessTokens(ZonedDateTime.now())) {
+            revoke(accessToken);
+        }
+    }
+
+    /**
+     * Revokes a single signed token, tokens that can't be decoded are ignored
+     * @param accessToken : ACCESS token in String
+     */
+    public void revoke(final String accessToken) {
+        final DecodedJWT decoded;
+        try {
+            decoded = JWT.decode(accessToken);
+        } catch (JWTDecodeException e) {
+            return;
+        }
+        if (decoded.getId() == null || decoded.getExpiresAt() == null)
+            return;
+        long acceptedUntil = decoded.getExpiresAt().getTime();
+        if (decoded.getIssuedAt() != null)
+            acceptedUntil = Math.min(acceptedUntil, decoded.getIssuedAt().getTime() + statelessMaxAge.toMillis());
+        revokedTokens.put(decoded.getId(), acceptedUntil);
+        if (revocations.incrementAndGet() % PRUNE_INTERVAL == 0)
+            prune();
+    }
+
+    /**
+     * Revokes every token issued to the user so far
+     * @param userUuid : User UUID
+     */
+    public void revokeUser(final String userUuid) {
+        revokedUsers.put(userUuid, System.currentTimeMillis());
+        if (revocations.incrementAndGet() % PRUNE_INTERVAL == 0)
+            prune();
+    }
+
+    /**
+     * @param token : verified JWT token
+     * @return boolean : true if the token was signed out or its user deleted, false otherwise
+     */
+    public boolean isRevoked(final DecodedJWT token) {
+        if (revokedTokens.containsKey(token.getId()))
+            return true;
+        final Long cutOff = revokedUsers.get(token.getSubject());
+        return cutOff != null && (token.getIssuedAt() == null || token.getIssuedAt().getTime() <= cutOff);
+    }
+
+    /**
+     * Drops the entries whose tokens the stateless verification no longer accepts anyway
+     */
+    private void prune() {
+        final long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(acceptedUntil -> acceptedUntil < now);
+        revokedUsers.values().removeIf(cutOff -> cutOff + statelessMaxAge.toMillis() < now);
+    }
+}
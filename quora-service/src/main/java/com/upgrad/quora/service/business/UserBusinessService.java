@@ -10,6 +10,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.UUID;
@@ -23,20 +26,33 @@ public class UserBusinessService {
     @Autowired
     private PasswordCryptographyProvider cryptographyProvider;
 
+    @Autowired
+    private AuthTokenCache authTokenCache;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
-     * The method will create a new user only if UserName and Email doesn't exist
+     * The method will create a new user only if UserName and Email doesn't exist.
+     * The password is hashed with no transaction open, between the checks and the insert, so that sign ups waiting on the
+     * hashing pool don't hold database connections
      * @param userEntity : User object to be created
      * @return UserEntity : New User Object
      * @throws SignUpRestrictedException only if validation fails
      */
-    @Transactional(propagation = Propagation.REQUIRED)
     public UserEntity signUp(UserEntity userEntity) throws SignUpRestrictedException{
         //Check if the userName exists before creating
-        if(userDao.getUserByUserName(userEntity.getUserName())){
+        if(transactionTemplate.execute(status -> userDao.getUserByUserName(userEntity.getUserName()))){
             throw new SignUpRestrictedException("SGR-001","Try any other Username, this Username has already been taken");
         }
         //Check if the userEmail exists before creating
-        if(userDao.getUserByEmail(userEntity.getEmail())){
+        if(transactionTemplate.execute(status -> userDao.getUserByEmail(userEntity.getEmail()))){
             throw new SignUpRestrictedException("SGR-002", "This user has already been registered, try with any other emailId");
         }
         //Else encrypt the password for the new user
@@ -44,44 +60,52 @@ public class UserBusinessService {
         userEntity.setSalt(encryptedText[0]);
         userEntity.setPassword(encryptedText[1]);
         //Persist the user data
-        UserEntity signupUser = userDao.createUser(userEntity);
-        return signupUser;
+        return transactionTemplate.execute(status -> userDao.createUser(userEntity));
     }
 
 
     /**
-     * The method will validate the user name and emil and login if both are correct
+     * The method will validate the user name and emil and login if both are correct.
+     * The user is read and the token written in short transactions of their own, the password is checked in between
+     * with no transaction open, so that sign ins waiting on the hashing pool don't hold database connections
      * @param userName : Decrypted Username
      *        password : Decrypted Password
      * @return UserAuthEntitiy : Authenication Token Entity
      * @throws AuthenticationFailedException only if authentication fails
      */
-    @Transactional(propagation = Propagation.REQUIRED)
     public UserAuthEntity signin(final String userName, final String password) throws AuthenticationFailedException{
-        UserEntity userEntity = userDao.searchUserByUsername(userName);
+        UserEntity userEntity = transactionTemplate.execute(status -> userDao.searchUserByUsername(userName));
         if(userEntity == null)
          throw new AuthenticationFailedException("ATH-001", "This username does not exists");
 
-        final String encryptedPassword = cryptographyProvider.encrypt(password, userEntity.getSalt());
-        if(encryptedPassword.equals(userEntity.getPassword())){
-            JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
-            //Time Logs
-            final ZonedDateTime now = ZonedDateTime.now();
-            final ZonedDateTime expiry = now.plusHours(8);
-            //Create new userAuthEntity to create a AuthToken
-            UserAuthEntity authUser = new UserAuthEntity();
-            authUser.setUuid(UUID.randomUUID().toString());
-            authUser.setUserid(userEntity);
-            authUser.setAccessToken(jwtTokenProvider.generateToken(userEntity.getUuid(), now, expiry));
-            authUser.setLoginAt(now);
-            authUser.setExpiresAt(expiry);
+        if(!cryptographyProvider.matches(password, userEntity.getSalt(), userEntity.getPassword()))
+            throw new AuthenticationFailedException("ATH-002","Password Failed");
+
+        //Time Logs
+        final ZonedDateTime now = ZonedDateTime.now();
+        final ZonedDateTime expiry = now.plusHours(8);
+        //Create new userAuthEntity to create a AuthToken
+        UserAuthEntity authUser = new UserAuthEntity();
+        authUser.setUuid(UUID.randomUUID().toString());
+        authUser.setAccessToken(jwtTokenProvider.generateToken(authUser.getUuid(), userEntity, now, expiry));
+        authUser.setLoginAt(now);
+        authUser.setExpiresAt(expiry);
 
+        final boolean created = transactionTemplate.execute(status -> {
+            //The user read above is detached by now, the token cascades to the one of this transaction
+            final UserEntity user = userDao.getUserById(userEntity.getUuid());
+            if(user == null)
+                return false;
+            authUser.setUserid(user);
             userDao.createAuthToken(authUser);
 
-            return authUser;
-        }
-        else
-            throw new AuthenticationFailedException("ATH-002","Password Failed");
+            if(cryptographyProvider.needsRehash(userEntity.getPassword()))
+                upgradePasswordHash(userEntity.getUuid(), password, userEntity.getPassword());
+            return true;
+        });
+        if(!created)
+            throw new AuthenticationFailedException("ATH-001", "This username does not exists");
+        return authUser;
     }
 
 
@@ -101,6 +125,31 @@ public class UserBusinessService {
         final ZonedDateTime now = ZonedDateTime.now();
         userAuthEntity.setLogoutAt(now);
         userDao.updateLogoutTime(userAuthEntity);
+        authTokenCache.invalidate(authorization);
+        tokenRevocationList.revoke(authorization);
         return userAuthEntity.getUserid();
     }
+
+    /**
+     * Re-hashes a password stored with outdated settings once the sign in has committed.
+     * Runs in the background on the password hashing pool, so the sign in doesn't pay for it,
+     * and only replaces the hash if nobody changed it in the meantime.
+     * @param userUuid : UUID of the user signing in
+     * @param password : Verified raw password
+     * @param outdatedPassword : Stored hash that was verified
+     */
+    private void upgradePasswordHash(final String userUuid, final String password, final String outdatedPassword){
+        final Runnable upgrade = () -> cryptographyProvider.encryptInBackground(password, encryptedText ->
+                transactionTemplate.execute(status -> userDao.updatePassword(userUuid, outdatedPassword, encryptedText[0], encryptedText[1])));
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    upgrade.run();
+                }
+            });
+        }
+        else
+            upgrade.run();
+    }
 }
@@ -0,0 +1,24 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Read-only view of an answer, filled by a constructor expression so listing answers doesn't load AnswerEntity, its user or its question.
+ */
+public final class AnswerDetails {
+
+    private final String uuid;
+
+    private final String answer;
+
+    public AnswerDetails(final String uuid, final String answer) {
+        this.uuid = uuid;
+        this.answer = answer;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+}
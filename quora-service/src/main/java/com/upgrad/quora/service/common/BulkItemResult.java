@@ -0,0 +1,53 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Outcome of one item of a bulk create: the uuid of the new row, or the code and message of why the item was rejected.
+ */
+public final class BulkItemResult {
+
+    private final int index;
+
+    private final String uuid;
+
+    private final String code;
+
+    private final String errorMessage;
+
+    private BulkItemResult(final int index, final String uuid, final String code, final String errorMessage) {
+        this.index = index;
+        this.uuid = uuid;
+        this.code = code;
+        this.errorMessage = errorMessage;
+    }
+
+    public static BulkItemResult created(final int index, final String uuid) {
+        return new BulkItemResult(index, uuid, null, null);
+    }
+
+    public static BulkItemResult rejected(final int index, final String code, final String errorMessage) {
+        return new BulkItemResult(index, null, code, errorMessage);
+    }
+
+    /**
+     * @return int : position of the item in the request
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isCreated() {
+        return uuid != null;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
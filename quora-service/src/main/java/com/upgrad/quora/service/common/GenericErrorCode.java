@@ -10,7 +10,21 @@ public enum GenericErrorCode implements ErrorCode {
      * <b>Cause:</b> This error could have occurred due to undetermined runtime errors.<br>
      * <b>Action: None</b><br>
      */
-    GEN_001("GEN-001", "An unexpected error occurred. Please contact System Administrator");
+    GEN_001("GEN-001", "An unexpected error occurred. Please contact System Administrator"),
+
+    /**
+     * Error message: <b>The service is busy. Please try again later</b><br>
+     * <b>Cause:</b> This error could have occurred because a bounded resource (worker pool, connection pool) is saturated.<br>
+     * <b>Action: Retry after the interval sent in the Retry-After header</b><br>
+     */
+    GEN_002("GEN-002", "The service is busy. Please try again later"),
+
+    /**
+     * Error message: <b>The resource was changed by another request. Please reload it and try again</b><br>
+     * <b>Cause:</b> This error could have occurred because the question or answer was edited or deleted after it was read.<br>
+     * <b>Action: Read the resource again, then retry the change</b><br>
+     */
+    GEN_003("GEN-003", "The resource was changed by another request. Please reload it and try again");
 
     private static final Map<String, GenericErrorCode> LOOKUP = new HashMap<String, GenericErrorCode>();
 
@@ -0,0 +1,62 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (date desc, id desc): the date and id of the last row of the previous page.
+ * Handed to clients as an opaque URL-safe token.
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final ZonedDateTime date;
+
+    private final int id;
+
+    public KeysetCursor(final ZonedDateTime date, final int id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    /**
+     * @param token : cursor token received from the client
+     * @return KeysetCursor : decoded cursor, null for the first page
+     * @throws InvalidCursorException : if the token was not produced by {@link #encode()}
+     */
+    public static KeysetCursor decode(final String token) throws InvalidCursorException {
+        if (token == null || token.isEmpty())
+            return null;
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            final int separator = decoded.lastIndexOf(SEPARATOR);
+            if (separator < 0)
+                throw new InvalidCursorException("PAG-001", "The cursor is invalid");
+            final Instant instant = Instant.parse(decoded.substring(0, separator));
+            final int id = Integer.parseInt(decoded.substring(separator + 1));
+            return new KeysetCursor(ZonedDateTime.ofInstant(instant, ZoneId.systemDefault()), id);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidCursorException("PAG-001", "The cursor is invalid");
+        }
+    }
+
+    public String encode() {
+        final String raw = date.toInstant().toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,26 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+
+/**
+ * The answers of a question, and the content of the question read once for all of them.
+ */
+public final class QuestionAnswers {
+
+    private final String questionContent;
+
+    private final List<AnswerDetails> answers;
+
+    public QuestionAnswers(final String questionContent, final List<AnswerDetails> answers) {
+        this.questionContent = questionContent;
+        this.answers = answers;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+
+    public List<AnswerDetails> getAnswers() {
+        return answers;
+    }
+}
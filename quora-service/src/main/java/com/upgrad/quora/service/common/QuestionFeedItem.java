@@ -0,0 +1,66 @@
+package com.upgrad.quora.service.common;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read-only view of a question in the feed, with its answer and view counts and latest dates, filled by the questionFeedItem mapping
+ * so the feed doesn't load QuestionEntity.
+ */
+public final class QuestionFeedItem {
+
+    private final int id;
+
+    private final String uuid;
+
+    private final String content;
+
+    private final int answerCount;
+
+    private final long viewCount;
+
+    private final ZonedDateTime lastAnswerAt;
+
+    private final ZonedDateTime lastActivityAt;
+
+    public QuestionFeedItem(final Integer id, final String uuid, final String content, final Integer answerCount,
+                            final Long viewCount, final ZonedDateTime lastAnswerAt, final ZonedDateTime lastActivityAt) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.answerCount = answerCount;
+        this.viewCount = viewCount;
+        this.lastAnswerAt = lastAnswerAt;
+        this.lastActivityAt = lastActivityAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public int getAnswerCount() {
+        return answerCount;
+    }
+
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    /**
+     * @return ZonedDateTime : date of the latest answer, null when the question has none
+     */
+    public ZonedDateTime getLastAnswerAt() {
+        return lastAnswerAt;
+    }
+
+    public ZonedDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+}
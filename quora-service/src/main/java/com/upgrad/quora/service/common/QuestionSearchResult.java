@@ -0,0 +1,39 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Read-only view of a question matching a search, with its relevance, filled by the questionSearchResult mapping
+ * so searching doesn't load QuestionEntity.
+ */
+public final class QuestionSearchResult {
+
+    private final int id;
+
+    private final String uuid;
+
+    private final String content;
+
+    private final float rank;
+
+    public QuestionSearchResult(final Integer id, final String uuid, final String content, final Float rank) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.rank = rank;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public float getRank() {
+        return rank;
+    }
+}
@@ -0,0 +1,60 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in search results ordered by (rank desc, id desc): the rank and id of the last result of the previous page.
+ * Handed to clients as an opaque URL-safe token. Ranks are PostgreSQL reals, which a float holds exactly.
+ */
+public final class RankCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final float rank;
+
+    private final int id;
+
+    public RankCursor(final float rank, final int id) {
+        this.rank = rank;
+        this.id = id;
+    }
+
+    /**
+     * @param token : cursor token received from the client
+     * @return RankCursor : decoded cursor, null for the first page
+     * @throws InvalidCursorException : if the token was not produced by {@link #encode()}
+     */
+    public static RankCursor decode(final String token) throws InvalidCursorException {
+        if (token == null || token.isEmpty())
+            return null;
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            final int separator = decoded.lastIndexOf(SEPARATOR);
+            if (separator < 0)
+                throw new InvalidCursorException("PAG-001", "The cursor is invalid");
+            final float rank = Float.parseFloat(decoded.substring(0, separator));
+            final int id = Integer.parseInt(decoded.substring(separator + 1));
+            if (Float.isNaN(rank) || Float.isInfinite(rank))
+                throw new InvalidCursorException("PAG-001", "The cursor is invalid");
+            return new RankCursor(rank, id);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("PAG-001", "The cursor is invalid");
+        }
+    }
+
+    public String encode() {
+        final String raw = Float.toString(rank) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public float getRank() {
+        return rank;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
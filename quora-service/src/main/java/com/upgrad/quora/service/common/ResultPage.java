@@ -0,0 +1,26 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+
+/**
+ * One page of a listing, and the cursor of the next page (null on the last page).
+ */
+public final class ResultPage<T> {
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+    public ResultPage(final List<T> items, final String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
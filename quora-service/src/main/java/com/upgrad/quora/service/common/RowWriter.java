@@ -0,0 +1,17 @@
+package com.upgrad.quora.service.common;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a streamed listing one at a time, as they are read from the database cursor.
+ */
+@FunctionalInterface
+public interface RowWriter {
+
+    /**
+     * @param uuid    : uuid of the row
+     * @param content : content of the row
+     * @throws IOException : if the row can't be written to the client
+     */
+    void write(String uuid, String content) throws IOException;
+}
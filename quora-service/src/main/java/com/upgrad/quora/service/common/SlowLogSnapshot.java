@@ -0,0 +1,26 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+
+/**
+ * Content of the slow log at one point in time, slowest first.
+ */
+public final class SlowLogSnapshot {
+
+    private final List<SlowRequest> requests;
+
+    private final List<SlowQuery> queries;
+
+    public SlowLogSnapshot(final List<SlowRequest> requests, final List<SlowQuery> queries) {
+        this.requests = requests;
+        this.queries = queries;
+    }
+
+    public List<SlowRequest> getRequests() {
+        return requests;
+    }
+
+    public List<SlowQuery> getQueries() {
+        return queries;
+    }
+}
@@ -0,0 +1,47 @@
+package com.upgrad.quora.service.common;
+
+import java.time.Instant;
+
+/**
+ * One slow statement execution, named after the DAO method which ran it. Only the SQL with its ? placeholders is kept, never the bound values.
+ */
+public final class SlowQuery {
+
+    private final Instant completedAt;
+
+    private final String name;
+
+    private final String query;
+
+    private final int rows;
+
+    private final double durationMillis;
+
+    public SlowQuery(final Instant completedAt, final String name, final String query, final int rows, final double durationMillis) {
+        this.completedAt = completedAt;
+        this.name = name;
+        this.query = query;
+        this.rows = rows;
+        this.durationMillis = durationMillis;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public double getDurationMillis() {
+        return durationMillis;
+    }
+}
@@ -0,0 +1,56 @@
+package com.upgrad.quora.service.common;
+
+import java.time.Instant;
+
+/**
+ * One slow HTTP request. The path is the URI template and the query only has the parameter names,
+ * so no identifier, token or password is ever kept.
+ */
+public final class SlowRequest {
+
+    private final Instant completedAt;
+
+    private final String method;
+
+    private final String path;
+
+    private final String query;
+
+    private final int status;
+
+    private final double durationMillis;
+
+    public SlowRequest(final Instant completedAt, final String method, final String path, final String query,
+                       final int status, final double durationMillis) {
+        this.completedAt = completedAt;
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.status = status;
+        this.durationMillis = durationMillis;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public double getDurationMillis() {
+        return durationMillis;
+    }
+}
@@ -0,0 +1,82 @@
+package com.upgrad.quora.service.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * Bounded set of the slowest samples seen so far, safe for concurrent use.
+ * Once it is full, anything faster than the fastest sample kept is rejected on a volatile read without locking,
+ * so the common case costs next to nothing; the sample itself is only built when it is kept.
+ */
+public final class SlowestSamples<T> {
+
+    private static final class Sample<T> {
+        private final long durationNanos;
+        private final T value;
+
+        private Sample(final long durationNanos, final T value) {
+            this.durationNanos = durationNanos;
+            this.value = value;
+        }
+    }
+
+    private static final Comparator<Sample<?>> FASTEST_FIRST = Comparator.comparingLong(sample -> sample.durationNanos);
+
+    private final int capacity;
+
+    private final PriorityQueue<Sample<T>> samples;
+
+    private volatile long threshold = -1;
+
+    public SlowestSamples(final int capacity) {
+        this.capacity = capacity;
+        this.samples = new PriorityQueue<>(Math.max(capacity, 1), FASTEST_FIRST);
+    }
+
+    /**
+     * @param durationNanos : duration of the sample
+     * @param sample : builds the sample, called only if it is kept
+     * @return boolean : true if the sample is kept
+     */
+    public boolean offer(final long durationNanos, final Supplier<T> sample) {
+        if (capacity == 0 || durationNanos <= threshold)
+            return false;
+        synchronized (samples) {
+            if (samples.size() == capacity) {
+                if (durationNanos <= samples.peek().durationNanos)
+                    return false;
+                samples.poll();
+            }
+            samples.add(new Sample<>(durationNanos, sample.get()));
+            if (samples.size() == capacity)
+                threshold = samples.peek().durationNanos;
+            return true;
+        }
+    }
+
+    /**
+     * @return List<T> : the samples kept, slowest first
+     */
+    public List<T> snapshot() {
+        final List<Sample<T>> sorted;
+        synchronized (samples) {
+            sorted = new ArrayList<>(samples);
+        }
+        sorted.sort(FASTEST_FIRST.reversed());
+        final List<T> values = new ArrayList<>(sorted.size());
+        for (Sample<T> sample : sorted) {
+            values.add(sample.value);
+        }
+        return values;
+    }
+
+    public void clear() {
+        synchronized (samples) {
+            samples.clear();
+            threshold = -1;
+        }
+    }
+}
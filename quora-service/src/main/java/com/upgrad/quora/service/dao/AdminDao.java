@@ -1,25 +1,57 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 @Repository
 public class AdminDao {
+
     @PersistenceContext
     private EntityManager entityManager;
+
+    @Autowired
+    private SearchIndexSync searchIndexSync;
+
     /**
-     * SQL transaction for Deletion of User
+     * SQL transaction for Deletion of User, in a single statement which also returns the questions of the user and those it answered.
+     * The database cascades the delete to the questions, answers and tokens of the user: only the cache entries of the user
+     * and of its questions are dropped, and the cached queries over the four tables are run again. Its answers to the other
+     * questions are taken off their feed rows.
      * @param userId : User UUID
+     * @return boolean : True if deleted, false if the user doesn't exist
      */
-    public void deleteUser(final String userId){
-        try{
-            entityManager.createNamedQuery("deleteUserById")
-                    .setParameter("uuid", userId).executeUpdate();
-        }
-        catch (Exception e){
-            System.out.println(e.getMessage());
+    public boolean deleteUser(final String userId){
+        @SuppressWarnings("unchecked")
+        final List<Object[]> rows = entityManager.createNamedQuery("deleteUserById")
+                .setParameter("uuid", userId).getResultList();
+        if(rows.isEmpty())
+            return false;
+        final Map<Integer, String> questions = new HashMap<>();
+        final SortedMap<Integer, Long> answered = new TreeMap<>();
+        for(Object[] row : rows){
+            if(row[1] != null)
+                questions.put(((Number) row[1]).intValue(), (String) row[2]);
+            if(row[3] != null)
+                answered.put(((Number) row[3]).intValue(), ((Number) row[4]).longValue());
         }
+        answered.keySet().removeAll(questions.keySet());
+        QuestionFeedRows.answersDeleted(entityManager, answered);
+        final int id = ((Number) rows.get(0)[0]).intValue();
+        CacheEviction.evictRows(entityManager, UserEntity.class, Collections.singletonMap(id, userId));
+        CacheEviction.evictRows(entityManager, QuestionEntity.class, questions);
+        CacheEviction.invalidateTables(entityManager, "users", "question", "answer", "user_auth");
+        searchIndexSync.userDeleted(entityManager, id, questions.keySet());
+        return true;
     }
 }
@@ -1,12 +1,24 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.AnswerDetails;
+import com.upgrad.quora.service.common.RowWriter;
 import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 @Repository
 public class AnswerDao {
@@ -14,12 +26,38 @@ public class AnswerDao {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private SearchIndexSync searchIndexSync;
+
     /**
-     * Database Transaction for persist changes in the ANSWER table
+     * Database Transaction for persist changes in the ANSWER table, and counting the answer in the feed row of its question
      * @param answerEntity : Model of the Answer Entity
      */
     public void createAnswer(AnswerEntity answerEntity){
         entityManager.persist(answerEntity);
+        countInFeed(answerEntity.getQuestion().getId(), 1, answerEntity.getDate());
+    }
+
+    /**
+     * Database Transaction for persisting new answers in JDBC batches, and counting them in the feed rows of their questions
+     * Each batch is detached once flushed, entities loaded before stay managed
+     * @param answers : Models of the new Answer Entities
+     * @param batchSize : inserts per JDBC batch
+     */
+    public void createAnswers(final List<AnswerEntity> answers, final int batchSize){
+        BatchInserter.persistAll(entityManager, answers, batchSize);
+        //Questions in id order, so that concurrent writers lock their feed rows in the same order
+        final SortedMap<Integer, List<AnswerEntity>> answersByQuestion = new TreeMap<>();
+        for(AnswerEntity answer : answers)
+            answersByQuestion.computeIfAbsent(answer.getQuestion().getId(), id -> new ArrayList<>()).add(answer);
+        for(Map.Entry<Integer, List<AnswerEntity>> question : answersByQuestion.entrySet()){
+            ZonedDateTime latest = null;
+            for(AnswerEntity answer : question.getValue()){
+                if(latest == null || answer.getDate().isAfter(latest))
+                    latest = answer.getDate();
+            }
+            countInFeed(question.getKey(), question.getValue().size(), latest);
+        }
     }
 
     /**
@@ -45,24 +83,66 @@ public class AnswerDao {
     }
 
     /**
-     * Database Transaction to delete an Answer
-     * @param answerEntity : Model of the Answer Entity
+     * Database Transaction to delete an Answer if the user owns it or is an admin, in a single statement, then take it off
+     * the feed row of its question
+     * @param uuid : UUID of the answer
+     * @param user : Model of the user deleting it
+     * @return boolean : True if deleted, false if the answer doesn't exist or the user may not delete it
      */
-    public void deleteAnswer(AnswerEntity answerEntity){
-        entityManager.remove(answerEntity);
+    public boolean deleteAnswer(final String uuid, final UserEntity user){
+        final List<?> questionIds = entityManager.createNamedQuery("deleteAnswerIfAllowed")
+                .setParameter("uuid", uuid)
+                .setParameter("userId", user.getId()).getResultList();
+        if(questionIds.isEmpty())
+            return false;
+        QuestionFeedRows.answersDeleted(entityManager, new TreeMap<>(Collections.singletonMap(((Number) questionIds.get(0)).intValue(), 1L)));
+        CacheEviction.invalidateTables(entityManager, "answer");
+        searchIndexSync.answerDeleted(entityManager, uuid);
+        return true;
     }
 
     /**
-     * Database Transaction to get all answer for a question
-     * @param id : UUID of the question.
+     * Database Transaction to get all answer for a question, oldest first, in a single select
+     * @param id : id of the question.
+     * @return List<AnswerDetails> : uuid and content of the answers
      */
-    public List<AnswerEntity> getAllAnswers(int id){
-        try{
-            return entityManager.createNamedQuery("getAllAnswers", AnswerEntity.class)
-                    .setParameter("uuid", id).getResultList();
-        }
-        catch (NoResultException nre){
-            return null;
-        }
+    public List<AnswerDetails> getAllAnswers(final int id){
+        return entityManager.createNamedQuery("getAnswerDetails", AnswerDetails.class)
+                .setParameter("id", id).getResultList();
+    }
+
+    /**
+     * Database Transaction to stream all answers of a question, oldest first
+     * @param id : id of the question.
+     * @param fetchSize : rows fetched from the database per round trip
+     * @param writer : receives the uuid and content of each answer
+     * @throws IOException : if the writer fails
+     */
+    public void streamAllAnswers(final int id, final int fetchSize, final RowWriter writer) throws IOException{
+        Query<?> query = entityManager.createNamedQuery("streamAllAnswers").unwrap(Query.class);
+        ContentScroller.scroll(query.setParameter("id", id), fetchSize, writer);
+    }
+
+    /**
+     * Adds new answers to the count and the dates of the feed row of their question
+     * @param questionId : id of the question answered
+     * @param count : number of new answers
+     * @param date : date of the latest of them
+     */
+    private void countInFeed(final int questionId, final int count, final ZonedDateTime date){
+        entityManager.createNamedQuery("countAnswersInFeed")
+                .setParameter("questionId", questionId)
+                .setParameter("count", count)
+                .setParameter("date", date).getResultList();
+    }
+
+    /**
+     * Database Transaction for handing every Answer to a search index being rebuilt, as if each had just been saved
+     * @param fetchSize : rows fetched from the database per round trip
+     * @param listener : receives each answer
+     */
+    public void replayAnswers(final int fetchSize, final SearchIndexReplay listener){
+        ContentScroller.scroll(entityManager.createNamedQuery("streamAnswersForSearch").unwrap(Query.class), fetchSize,
+                row -> listener.answerSaved((String) row[0], (String) row[1], (Integer) row[2], (Integer) row[3]));
     }
 }
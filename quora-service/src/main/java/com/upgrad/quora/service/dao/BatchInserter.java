@@ -0,0 +1,56 @@
+package com.upgrad.quora.service.dao;
+
+import org.hibernate.CacheMode;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Shared insert loop of the bulk creates
+ */
+final class BatchInserter {
+
+    private BatchInserter() {
+    }
+
+    /**
+     * Persists the new entities and sends their inserts in JDBC batches. The ids come from pooled sequences, so nothing
+     * is read back per row, and each batch is detached once flushed to keep the persistence context small: entities
+     * loaded earlier in the transaction stay managed.
+     * The new rows are not put in the second-level cache, most of them won't be read soon. Hibernate puts them once the
+     * transaction completes, so the session is in CacheMode.GET until then and its previous mode is given back right
+     * after those puts.
+     * @param entityManager : EntityManager of the current transaction
+     * @param entities : new entities, all of the same class
+     * @param batchSize : inserts per JDBC batch
+     */
+    static void persistAll(final EntityManager entityManager, final List<?> entities, final int batchSize) {
+        final SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        final Integer jdbcBatchSize = session.getJdbcBatchSize();
+        final CacheMode cacheMode = session.getCacheMode();
+        session.setJdbcBatchSize(batchSize);
+        session.setCacheMode(CacheMode.GET);
+        try {
+            int from = 0;
+            for (int i = 0; i < entities.size(); i++) {
+                entityManager.persist(entities.get(i));
+                if ((i + 1) % batchSize == 0) {
+                    detach(entityManager, entities.subList(from, i + 1));
+                    from = i + 1;
+                }
+            }
+            detach(entityManager, entities.subList(from, entities.size()));
+        } finally {
+            session.setJdbcBatchSize(jdbcBatchSize);
+            // The inserts of the flushed batches registered their cache puts before, they run first and still see GET
+            session.getActionQueue().registerProcess((success, completedSession) -> completedSession.setCacheMode(cacheMode));
+        }
+    }
+
+    private static void detach(final EntityManager entityManager, final List<?> batch) {
+        entityManager.flush();
+        for (Object entity : batch)
+            entityManager.detach(entity);
+    }
+}
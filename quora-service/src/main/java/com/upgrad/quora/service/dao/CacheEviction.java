@@ -0,0 +1,60 @@
+package com.upgrad.quora.service.dao;
+
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Keeps the second-level cache right after native statements, which Hibernate doesn't follow: only the rows the statement
+ * returned are dropped, by id and by natural id, instead of whole regions. Everything is done now and again once the
+ * transaction completes, as a concurrent read may put the old row back before the commit.
+ */
+final class CacheEviction {
+
+    private CacheEviction() {
+    }
+
+    /**
+     * @param entityManager : EntityManager of the current transaction
+     * @param entityClass : mapped class of the rows
+     * @param naturalIdsById : uuid of each row, by id
+     */
+    static void evictRows(final EntityManager entityManager, final Class<?> entityClass, final Map<? extends Serializable, ?> naturalIdsById) {
+        final SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        final EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityClass);
+        if (!persister.canWriteToCache() || naturalIdsById.isEmpty())
+            return;
+        evictRows(session, persister, naturalIdsById);
+        session.getActionQueue().registerProcess((success, completedSession) -> evictRows(completedSession, persister, naturalIdsById));
+    }
+
+    /**
+     * Marks the tables as changed, so that cached queries reading them are run again
+     * @param entityManager : EntityManager of the current transaction
+     * @param tables : tables written by the statement, including those reached by ON DELETE CASCADE
+     */
+    static void invalidateTables(final EntityManager entityManager, final String... tables) {
+        final SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        if (!session.getFactory().getSessionFactoryOptions().isQueryCacheEnabled())
+            return;
+        final TimestampsCache timestampsCache = session.getFactory().getCache().getTimestampsCache();
+        timestampsCache.preInvalidate(tables, session);
+        session.getActionQueue().registerProcess((success, completedSession) -> timestampsCache.invalidate(tables, completedSession));
+    }
+
+    private static void evictRows(final SharedSessionContractImplementor session, final EntityPersister persister,
+                                  final Map<? extends Serializable, ?> naturalIdsById) {
+        final NaturalIdDataAccess naturalIdAccess = persister.hasNaturalIdCache() ? persister.getNaturalIdCacheAccessStrategy() : null;
+        for (Map.Entry<? extends Serializable, ?> row : naturalIdsById.entrySet()) {
+            session.getFactory().getCache().evictEntityData(persister.getEntityName(), row.getKey());
+            if (naturalIdAccess != null)
+                naturalIdAccess.evict(naturalIdAccess.generateCacheKey(new Object[]{row.getValue()}, persister, session));
+        }
+    }
+}
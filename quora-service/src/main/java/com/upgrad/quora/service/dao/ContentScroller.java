@@ -0,0 +1,48 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.common.RowWriter;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Shared cursor loop of the streamed listings
+ */
+final class ContentScroller {
+
+    private ContentScroller() {
+    }
+
+    /**
+     * Runs a projection of (uuid, content) on a forward only cursor and hands each row to the writer.
+     * Rows are scalars, so nothing is added to the persistence context and memory stays flat whatever the size of the result.
+     * @param query : query selecting uuid and content
+     * @param fetchSize : rows fetched from the database per round trip
+     * @param writer : receives each row
+     * @throws IOException : if the writer fails
+     */
+    static void scroll(final Query<?> query, final int fetchSize, final RowWriter writer) throws IOException {
+        try (ScrollableResults rows = query.setFetchSize(fetchSize).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                writer.write((String) rows.get(0), (String) rows.get(1));
+            }
+        }
+    }
+
+    /**
+     * Runs a projection on a forward only cursor and hands each row to the consumer, with the same flat memory use
+     * @param query : query selecting scalars
+     * @param fetchSize : rows fetched from the database per round trip
+     * @param consumer : receives the columns of each row
+     */
+    static void scroll(final Query<?> query, final int fetchSize, final Consumer<Object[]> consumer) {
+        try (ScrollableResults rows = query.setFetchSize(fetchSize).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                consumer.accept(rows.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.upgrad.quora.service.dao;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public DAO method, each of which runs one named query or entity operation, as quora.dao.calls
+ * tagged with the DAO, the method and the outcome, and records the size of the listings as quora.dao.rows.
+ * Meters are created once per method; without a registry (e.g. outside of the API) the calls are not measured.
+ * The method also names the statements it runs for the slow log, see {@link TimingDataSource}.
+ */
+@Aspect
+@Component
+public class DaoMetricsAspect implements MeterBinder {
+
+    private static final class DaoMeters {
+        private final Timer success;
+        private final Timer error;
+        private final DistributionSummary rows;
+
+        private DaoMeters(final MeterRegistry registry, final String dao, final String method) {
+            this.success = timer(registry, dao, method, "success");
+            this.error = timer(registry, dao, method, "error");
+            this.rows = DistributionSummary.builder("quora.dao.rows")
+                    .description("Rows returned by the DAO listings")
+                    .tags("dao", dao, "method", method)
+                    .register(registry);
+        }
+
+        private static Timer timer(final MeterRegistry registry, final String dao, final String method, final String outcome) {
+            return Timer.builder("quora.dao.calls")
+                    .description("Time spent in the DAOs, including the database round trips")
+                    .tags("dao", dao, "method", method, "outcome", outcome)
+                    .register(registry);
+        }
+    }
+
+    private final ConcurrentMap<Method, DaoMeters> meters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Method, String> operations = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry registry;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("within(com.upgrad.quora.service.dao..*) && @within(org.springframework.stereotype.Repository) && execution(public * *(..))")
+    public Object time(final ProceedingJoinPoint joinPoint) throws Throwable {
+        final Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        final String enclosing = TimingDataSource.enterOperation(operations.computeIfAbsent(method,
+                key -> key.getDeclaringClass().getSimpleName() + "." + key.getName()));
+        try {
+            return timeCall(joinPoint, method);
+        } finally {
+            TimingDataSource.exitOperation(enclosing);
+        }
+    }
+
+    private Object timeCall(final ProceedingJoinPoint joinPoint, final Method method) throws Throwable {
+        final MeterRegistry meterRegistry = registry;
+        if (meterRegistry == null)
+            return joinPoint.proceed();
+
+        final DaoMeters daoMeters = meters.computeIfAbsent(method,
+                key -> new DaoMeters(meterRegistry, key.getDeclaringClass().getSimpleName(), key.getName()));
+        final long start = meterRegistry.config().clock().monotonicTime();
+        try {
+            final Object result = joinPoint.proceed();
+            daoMeters.success.record(meterRegistry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            if (result instanceof Collection)
+                daoMeters.rows.record(((Collection<?>) result).size());
+            return result;
+        } catch (Throwable e) {
+            daoMeters.error.record(meterRegistry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.common.QuestionFeedItem;
+import com.upgrad.quora.service.common.QuestionSearchResult;
+import com.upgrad.quora.service.common.RankCursor;
+import com.upgrad.quora.service.common.RowWriter;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Repository
@@ -14,92 +25,240 @@ public class QuestionDao {
 
     @PersistenceContext
     private EntityManager entityManager;
+
+    @Autowired
+    private SearchIndexSync searchIndexSync;
     /**
      * Database Transaction for persisting the new question record
      * @param questionEntity : Model object of the QuestionEntity class
      * @return QuestionEntity : Model object of QuestionEntity class
      */
     public QuestionEntity createQuestion(QuestionEntity questionEntity){
-        try{
-            entityManager.persist(questionEntity);
-            return questionEntity;
-        }
-        catch (Exception e){
-            return null;
+        entityManager.persist(questionEntity);
+        addToFeed(Collections.singletonList(questionEntity.getId()));
+        return questionEntity;
+    }
+
+    /**
+     * Database Transaction for persisting new question records in JDBC batches
+     * Each batch is detached once flushed, entities loaded before stay managed
+     * @param questions : new QuestionEntity objects
+     * @param batchSize : inserts per JDBC batch
+     */
+    public void createQuestions(final List<QuestionEntity> questions, final int batchSize){
+        BatchInserter.persistAll(entityManager, questions, batchSize);
+        for(int from = 0; from < questions.size(); from += batchSize){
+            List<Integer> ids = new ArrayList<>(batchSize);
+            for(QuestionEntity question : questions.subList(from, Math.min(from + batchSize, questions.size())))
+                ids.add(question.getId());
+            addToFeed(ids);
         }
     }
 
     /**
-     * Database Transaction for retireve all Questions
-     * @return QuestionEntity : Result List of QuestionEntity
+     * Database Transaction for retrieving one page of the question feed, most recently active first
+     * @param after : Cursor of the last question of the previous page, null for the first page
+     * @param limit : Maximum number of questions
+     * @return List<QuestionFeedItem> : Result List of QuestionFeedItem
+     */
+    @SuppressWarnings("unchecked")
+    public List<QuestionFeedItem> getQuestionFeed(final KeysetCursor after, final int limit){
+        javax.persistence.Query query;
+        if(after == null)
+            query = entityManager.createNamedQuery("getQuestionFeed");
+        else
+            query = entityManager.createNamedQuery("getQuestionFeedAfter")
+                    .setParameter("date", after.getDate())
+                    .setParameter("id", after.getId());
+        return query.setParameter("limit", limit).getResultList();
+    }
+
+    /**
+     * Database Transaction for adding the views counted in memory to the feed rows of their questions, in two statements:
+     * the rows are locked in question id order, then updated
+     * @param questionIds : ids of the questions, each once, in ascending order, the views of those deleted since are dropped
+     * @param views : views, per question
+     * @param count : number of questions in the arrays
      */
-    public List<QuestionEntity> getAllQuestion(){
-        try {
-            return entityManager.createNamedQuery("getAllQuestions", QuestionEntity.class)
-                    .getResultList();
+    public void addViews(final int[] questionIds, final long[] views, final int count){
+        final Integer[] ids = new Integer[count];
+        final Long[] added = new Long[count];
+        for(int i = 0; i < count; i++){
+            ids[i] = questionIds[i];
+            added[i] = views[i];
         }
-        catch (NoResultException nre){
-            return null;
+        QuestionFeedRows.viewsAdded(entityManager, ids, added);
+    }
+
+    /**
+     * Adds the feed rows of new questions, with no answer yet. Running a native statement flushes their inserts first
+     * @param ids : ids of the new questions
+     */
+    private void addToFeed(final List<Integer> ids){
+        entityManager.createNamedQuery("addQuestionsToFeed").setParameter("ids", ids).getResultList();
+    }
+
+    /**
+     * Database Transaction for retrieving one page of Questions, newest first
+     * @param after : Cursor of the last question of the previous page, null for the first page
+     * @param limit : Maximum number of questions
+     * @return List<QuestionEntity> : Result List of QuestionEntity
+     */
+    public List<QuestionEntity> getQuestionPage(final KeysetCursor after, final int limit){
+        TypedQuery<QuestionEntity> query;
+        if(after == null)
+            query = entityManager.createNamedQuery("getAllQuestions", QuestionEntity.class);
+        else
+            query = entityManager.createNamedQuery("getQuestionsAfter", QuestionEntity.class)
+                    .setParameter("date", after.getDate())
+                    .setParameter("id", after.getId());
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Database Transaction for retrieving one page of the Questions matching search terms, most relevant first
+     * A question matches through its content or its answers, through the GIN indexes of their search vectors
+     * @param terms : Words to search for, all of them must match
+     * @param after : Cursor of the last result of the previous page, null for the first page
+     * @param limit : Maximum number of questions
+     * @return List<QuestionSearchResult> : Result List of QuestionSearchResult
+     */
+    @SuppressWarnings("unchecked")
+    public List<QuestionSearchResult> searchQuestions(final String terms, final RankCursor after, final int limit){
+        javax.persistence.Query query;
+        if(after == null)
+            query = entityManager.createNamedQuery("searchQuestions");
+        else
+            query = entityManager.createNamedQuery("searchQuestionsAfter")
+                    .setParameter("rank", after.getRank())
+                    .setParameter("id", after.getId());
+        return query.setParameter("terms", terms).setParameter("limit", limit).getResultList();
+    }
+
+    /**
+     * Database Transaction for streaming all Questions, newest first
+     * @param fetchSize : rows fetched from the database per round trip
+     * @param writer : receives the uuid and content of each question
+     * @throws IOException : if the writer fails
+     */
+    public void streamAllQuestions(final int fetchSize, final RowWriter writer) throws IOException{
+        ContentScroller.scroll(entityManager.createNamedQuery("streamAllQuestions").unwrap(Query.class), fetchSize, writer);
+    }
+
+    /**
+     * Database Transaction for handing the Questions to an index being rebuilt, as if each had just been saved
+     * @param afterId : only the questions of greater id are replayed, 0 for all of them
+     * @param fetchSize : rows fetched from the database per round trip
+     * @param listener : receives each question
+     */
+    public void replayQuestions(final int afterId, final int fetchSize, final SearchIndexReplay listener){
+        Query<?> query = entityManager.createNamedQuery("streamQuestionsForSearch").unwrap(Query.class);
+        ContentScroller.scroll(query.setParameter("id", afterId), fetchSize,
+                row -> listener.questionSaved((Integer) row[0], (String) row[1], (String) row[2], (Integer) row[3]));
+    }
+
+    /**
+     * Database Transaction to read the oldest transaction still running: every transaction of a lower id has completed
+     * @return long : xmin of the current snapshot, a 64 bit transaction id
+     */
+    public long getTransactionWatermark(){
+        return ((Number) entityManager.createNamedQuery("getTransactionWatermark").getSingleResult()).longValue();
+    }
+
+    /**
+     * Database Transaction to count the transaction ids assigned since a watermark
+     * @param watermark : transaction id returned by getTransactionWatermark
+     * @return long : xmax of the current snapshot minus the watermark
+     */
+    public long countTransactionsSince(final long watermark){
+        return ((Number) entityManager.createNamedQuery("countTransactionsSince").setParameter("watermark", watermark)
+                .getSingleResult()).longValue();
+    }
+
+    /**
+     * Database Transaction for handing the Questions inserted or edited since a watermark to an index being brought up to
+     * date, as if each had just been saved. The rows are found through their xmin, which only goes 2^31 transactions back:
+     * check the distance with countTransactionsSince first
+     * @param watermark : transaction id returned by getTransactionWatermark
+     * @param fetchSize : rows fetched from the database per round trip
+     * @param listener : receives each question
+     */
+    public void replayQuestionsWrittenSince(final long watermark, final int fetchSize, final SearchIndexReplay listener){
+        Query<?> query = entityManager.createNamedQuery("streamQuestionsWrittenSince").unwrap(Query.class);
+        ContentScroller.scroll(query.setParameter("watermark", watermark), fetchSize,
+                row -> listener.questionSaved(((Number) row[0]).intValue(), (String) row[1], (String) row[2], ((Number) row[3]).intValue()));
+    }
+
+    /**
+     * Database Transaction to retrieve questions by their database ids, through the entity cache
+     * @param ids : ids of the questions
+     * @return List<QuestionEntity> : the questions that still exist, in the order of the ids
+     */
+    public List<QuestionEntity> getQuestionsByIds(final List<Integer> ids){
+        List<QuestionEntity> questions = new ArrayList<>(ids.size());
+        for(Integer id : ids){
+            QuestionEntity question = entityManager.find(QuestionEntity.class, id);
+            if(question != null)
+                questions.add(question);
         }
+        return questions;
     }
 
     /**
-     * Database Transaction to retrieve question based on Id
+     * Database Transaction to retrieve question based on Id, through the natural id and entity caches
      * @param questionId : Question Id of the question
-     * @return QuestionEntity : Result List of QuestionEntity
+     * @return QuestionEntity : Model object of QuestionEntity class, null if not found
      */
     public QuestionEntity getQuestionById(final String questionId){
-        try{
-            return entityManager.createNamedQuery("getQuestionById", QuestionEntity.class)
-                    .setParameter("uuid", questionId).getSingleResult();
-        }
-        catch (NoResultException nre){
-            return null;
-        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(QuestionEntity.class).load(questionId);
     }
 
     /**
-     * Database Transaction to edit a question based on the question id
-     * @param uuid : Question Id of the question
+     * Database Transaction to edit a question. The question is managed, its new content is written
+     * when the transaction is flushed, checking and bumping its version
+     * @param questionEntity : Model object of the QuestionEntity class, loaded in the current transaction
      * @param content : Updated Question content
+     * @return QuestionEntity : Model object of QuestionEntity class
      */
-    public void editQuestion(String uuid, String content){
-        try{
-            entityManager.createNamedQuery("editQuestionById")
-                    .setParameter("content", content)
-                    .setParameter("uuid", uuid).executeUpdate();
-        }
-        catch (Exception e)
-        {
-            System.out.println(e.getMessage());
-        }
+    public QuestionEntity editQuestion(final QuestionEntity questionEntity, final String content){
+        questionEntity.setContent(content);
+        return questionEntity;
     }
 
     /**
-     * Database Transaction to edit a question based on the question id
+     * Database Transaction to delete a question if the user owns it or is an admin, in a single statement.
+     * The answers go with it (ON DELETE CASCADE)
      * @param uuid : Question Id of the question
+     * @param user : UserEntity model of the user deleting it
+     * @return boolean : True if deleted, false if the question doesn't exist or the user may not delete it
      */
-    public void deleteQuestion(String uuid){
-        try{
-            entityManager.createNamedQuery("deleteQuestionById").setParameter("uuid", uuid).executeUpdate();
-;        }
-        catch (Exception e){
-            System.out.println(e.getMessage());
-        }
+    public boolean deleteQuestion(final String uuid, final UserEntity user){
+        final List<?> ids = entityManager.createNamedQuery("deleteQuestionIfAllowed")
+                .setParameter("uuid", uuid)
+                .setParameter("userId", user.getId()).getResultList();
+        if(ids.isEmpty())
+            return false;
+        CacheEviction.evictRows(entityManager, QuestionEntity.class, Collections.singletonMap(((Number) ids.get(0)).intValue(), uuid));
+        CacheEviction.invalidateTables(entityManager, "question", "answer");
+        searchIndexSync.questionDeleted(entityManager, ((Number) ids.get(0)).intValue());
+        return true;
     }
 
     /**
-     * Database Transaction for retireve  Questions specific to the user
+     * Database Transaction for retrieving one page of Questions specific to the user, newest first
      * @param id : UserEntity model of the user
+     * @param after : Cursor of the last question of the previous page, null for the first page
+     * @param limit : Maximum number of questions
      * @return List<QuestionEntity> : Result List of QuestionEntity
      */
-    public List<QuestionEntity> getAllQuestionByUser(final UserEntity id){
-        try{
-            return entityManager.createNamedQuery("getAllQuestionByUser", QuestionEntity.class)
-                    .setParameter("userId", id).getResultList();
-        }
-        catch (Exception e){
-            return null;
-        }
+    public List<QuestionEntity> getQuestionPageByUser(final UserEntity id, final KeysetCursor after, final int limit){
+        TypedQuery<QuestionEntity> query;
+        if(after == null)
+            query = entityManager.createNamedQuery("getAllQuestionByUser", QuestionEntity.class);
+        else
+            query = entityManager.createNamedQuery("getQuestionsByUserAfter", QuestionEntity.class)
+                    .setParameter("date", after.getDate())
+                    .setParameter("id", after.getId());
+        return query.setParameter("userId", id).setMaxResults(limit).getResultList();
     }
 }
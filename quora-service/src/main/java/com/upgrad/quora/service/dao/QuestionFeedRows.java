@@ -0,0 +1,74 @@
+package com.upgrad.quora.service.dao;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.SortedMap;
+
+/**
+ * Shared upkeep of the question_feed rows (migrations V6 and V7) written to several rows at once: the answers deleted, alone
+ * or with their user, and the views flushed by the write-behind counters. The rows are locked in question id order first,
+ * so that concurrent writers queue on them in the same order, then updated in a statement of its own: under READ COMMITTED
+ * it reads the answers committed by whoever held the locks. Counts move by the deltas given, only the date of the latest
+ * answer is read again, from the top of answer_question_id_date_id_idx.
+ */
+final class QuestionFeedRows {
+
+    static final String LOCK = "select question_id from question_feed where question_id = any(?) " +
+            "order by question_id for update";
+
+    static final String ANSWERS_DELETED = "update question_feed f set answer_count = f.answer_count - v.answers, " +
+            "last_answer_at = l.date, last_activity_at = greatest(q.date, l.date) " +
+            "from unnest(cast(? as integer[]), cast(? as bigint[])) as v(question_id, answers) join question q on q.id = v.question_id " +
+            "cross join lateral (select max(a.date) as date from answer a where a.question_id = q.id) l " +
+            "where f.question_id = v.question_id";
+
+    static final String VIEWS_ADDED = "update question_feed f set view_count = f.view_count + v.views " +
+            "from unnest(cast(? as integer[]), cast(? as bigint[])) as v(question_id, views) where f.question_id = v.question_id";
+
+    private QuestionFeedRows() {
+    }
+
+    /**
+     * Takes deleted answers off the feed rows of their questions, and reads the date of their latest answer again.
+     * Rows of questions deleted since are skipped
+     * @param entityManager : EntityManager of the current transaction
+     * @param answersByQuestion : number of answers deleted, by id of their question
+     */
+    static void answersDeleted(final EntityManager entityManager, final SortedMap<Integer, Long> answersByQuestion) {
+        update(entityManager, ANSWERS_DELETED, answersByQuestion.keySet().toArray(new Integer[0]),
+                answersByQuestion.values().toArray(new Long[0]));
+    }
+
+    /**
+     * Adds views to the feed rows of their questions. Rows of questions deleted since are skipped
+     * @param entityManager : EntityManager of the current transaction
+     * @param questionIds : ids of the questions, each once, in ascending order
+     * @param views : views to add, per question
+     */
+    static void viewsAdded(final EntityManager entityManager, final Integer[] questionIds, final Long[] views) {
+        update(entityManager, VIEWS_ADDED, questionIds, views);
+    }
+
+    private static void update(final EntityManager entityManager, final String update, final Integer[] questionIds, final Long[] counts) {
+        if (questionIds.length == 0)
+            return;
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            final Array ids = connection.createArrayOf("integer", questionIds);
+            final Array deltas = connection.createArrayOf("bigint", counts);
+            try (PreparedStatement lock = connection.prepareStatement(LOCK);
+                 PreparedStatement statement = connection.prepareStatement(update)) {
+                lock.setArray(1, ids);
+                lock.executeQuery().close();
+                statement.setArray(1, ids);
+                statement.setArray(2, deltas);
+                statement.executeUpdate();
+            } finally {
+                ids.free();
+                deltas.free();
+            }
+        });
+    }
+}
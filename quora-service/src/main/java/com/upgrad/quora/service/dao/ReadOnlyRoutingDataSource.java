@@ -0,0 +1,78 @@
+package com.upgrad.quora.service.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends the connections of read-only transactions to the replica pool and everything else to the primary.
+ * A replica connection that can't be had falls back to the primary, so losing the replica only costs capacity.
+ * The transaction only reports read-only once it has begun, so this must sit behind a LazyConnectionDataSourceProxy
+ * which defers taking the connection to the first statement.
+ */
+public class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadOnlyRoutingDataSource.class);
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private final DataSource primary;
+
+    private final DataSource replica;
+
+    public ReadOnlyRoutingDataSource(final DataSource primary, final DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+        final Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.put(REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * @return boolean : true if the current transaction is read-only, and so may read from the replica
+     */
+    public static boolean isReadingFromReplica() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return isReadingFromReplica() ? REPLICA : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!isReadingFromReplica())
+            return primary.getConnection();
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            LOGGER.warn("Replica connection unavailable, reading from the primary: {}", e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        if (!isReadingFromReplica())
+            return primary.getConnection(username, password);
+        try {
+            return replica.getConnection(username, password);
+        } catch (SQLException e) {
+            LOGGER.warn("Replica connection unavailable, reading from the primary: {}", e.getMessage());
+            return primary.getConnection(username, password);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.upgrad.quora.service.dao;
+
+import java.util.Collection;
+
+/**
+ * Follows the questions and answers written through this instance, to keep a search index outside of the database in step.
+ * Listeners register with {@link SearchIndexSync} and are called once the transaction has committed, on the committing thread:
+ * they must be quick and must not throw, the request has already succeeded. Saves come through {@link SearchIndexReplay}.
+ */
+public interface SearchIndexListener extends SearchIndexReplay {
+
+    /**
+     * @param id : id of the deleted question, whose answers went with it
+     */
+    void questionDeleted(int id);
+
+    /**
+     * @param uuid : uuid of the deleted answer
+     */
+    void answerDeleted(String uuid);
+
+    /**
+     * @param userId : id of the deleted user, whose questions and answers went with it
+     * @param questionIds : ids of the questions of the user, whose answers from other users went with them
+     */
+    void userDeleted(int userId, Collection<Integer> questionIds);
+}
@@ -0,0 +1,24 @@
+package com.upgrad.quora.service.dao;
+
+/**
+ * Receives the questions and answers of the database replayed by {@link QuestionDao#replayQuestions} and
+ * {@link AnswerDao#replayAnswers}, as if each had just been saved, to build an index outside of the database.
+ */
+public interface SearchIndexReplay {
+
+    /**
+     * @param id : id of the question, created or edited
+     * @param uuid : uuid of the question
+     * @param content : content of the question
+     * @param userId : id of the author
+     */
+    void questionSaved(int id, String uuid, String content, int userId);
+
+    /**
+     * @param uuid : uuid of the answer, created or edited
+     * @param answer : content of the answer
+     * @param questionId : id of the question answered
+     * @param userId : id of the author
+     */
+    void answerSaved(String uuid, String answer, int questionId, int userId);
+}
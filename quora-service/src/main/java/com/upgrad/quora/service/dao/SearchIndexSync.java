@@ -0,0 +1,150 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Reports the committed writes of questions and answers to the registered {@link SearchIndexListener}s.
+ * Inserts and updates of the entities are followed by Hibernate post-commit listeners, which cover the single and the bulk
+ * creations and the edits; the native deletes, which Hibernate doesn't follow, are reported by the DAOs, like {@link CacheEviction}.
+ * Nothing is hooked into Hibernate until a listener registers, so the SQL search backend pays nothing for it.
+ */
+@Component
+public class SearchIndexSync implements PostCommitInsertEventListener, PostCommitUpdateEventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchIndexSync.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<SearchIndexListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param listener : called for every question and answer write committed from now on
+     */
+    public synchronized void addListener(final SearchIndexListener listener) {
+        if (listeners.isEmpty()) {
+            final EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry().getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+            registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        }
+        listeners.add(listener);
+    }
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        saved(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        saved(event.getEntity());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(final PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(final PostUpdateEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(final EntityPersister persister) {
+        return persister.getMappedClass() == QuestionEntity.class || persister.getMappedClass() == AnswerEntity.class;
+    }
+
+    /**
+     * Still abstract in Hibernate 5.4, which only calls it from the default requiresPostCommitHandling
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(final EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    /**
+     * @param entityManager : EntityManager of the transaction which deleted the question
+     * @param id : id of the question
+     */
+    void questionDeleted(final EntityManager entityManager, final int id) {
+        afterCommit(entityManager, listener -> listener.questionDeleted(id));
+    }
+
+    /**
+     * @param entityManager : EntityManager of the transaction which deleted the answer
+     * @param uuid : uuid of the answer
+     */
+    void answerDeleted(final EntityManager entityManager, final String uuid) {
+        afterCommit(entityManager, listener -> listener.answerDeleted(uuid));
+    }
+
+    /**
+     * @param entityManager : EntityManager of the transaction which deleted the user
+     * @param userId : id of the user
+     * @param questionIds : ids of the questions of the user
+     */
+    void userDeleted(final EntityManager entityManager, final int userId, final Collection<Integer> questionIds) {
+        afterCommit(entityManager, listener -> listener.userDeleted(userId, questionIds));
+    }
+
+    private void saved(final Object entity) {
+        if (entity instanceof QuestionEntity) {
+            final QuestionEntity question = (QuestionEntity) entity;
+            final int userId = id(question.getUserId());
+            notifyListeners(listener -> listener.questionSaved(question.getId(), question.getUuid(), question.getContent(), userId));
+        } else if (entity instanceof AnswerEntity) {
+            final AnswerEntity answer = (AnswerEntity) entity;
+            final int questionId = id(answer.getQuestion());
+            final int userId = id(answer.getUser());
+            notifyListeners(listener -> listener.answerSaved(answer.getUuid(), answer.getAnswer(), questionId, userId));
+        }
+    }
+
+    private void afterCommit(final EntityManager entityManager, final Consumer<SearchIndexListener> change) {
+        if (listeners.isEmpty())
+            return;
+        entityManager.unwrap(SessionImplementor.class).getActionQueue().registerProcess((success, session) -> {
+            if (success)
+                notifyListeners(change);
+        });
+    }
+
+    private void notifyListeners(final Consumer<SearchIndexListener> change) {
+        for (SearchIndexListener listener : listeners) {
+            try {
+                change.accept(listener);
+            } catch (RuntimeException e) {
+                LOGGER.error("Search index listener {} failed", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Id of an associated entity, read from the proxy when it is one so that nothing is loaded after the commit
+     */
+    private int id(final Object entity) {
+        return ((Number) entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity)).intValue();
+    }
+}
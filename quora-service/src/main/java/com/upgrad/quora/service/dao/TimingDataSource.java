@@ -0,0 +1,206 @@
+package com.upgrad.quora.service.dao;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Times the statements run on the connections of the wrapped DataSource and hands each execution to a listener, with its SQL,
+ * the DAO method it ran in and its rows. The time is the one of the execute call; queries are reported once their result
+ * set is closed, with the rows read from it. Only the SQL with its ? placeholders is reported, never the bound values.
+ * The DAO methods are named by {@link DaoMetricsAspect} through {@link #enterOperation}.
+ */
+public class TimingDataSource extends DelegatingDataSource {
+
+    /**
+     * Receives every timed statement execution
+     */
+    @FunctionalInterface
+    public interface StatementListener {
+
+        /**
+         * @param operation : DAO method the statement ran in, as DaoName.method, null outside of the DAOs
+         * @param sql : text of the statement, null for a batch of plain statements
+         * @param rows : rows read or changed, -1 when the driver doesn't tell
+         * @param durationNanos : time taken by the execute call
+         */
+        void executed(String operation, String sql, int rows, long durationNanos);
+    }
+
+    private static final ThreadLocal<String> OPERATION = new ThreadLocal<>();
+
+    private final StatementListener listener;
+
+    public TimingDataSource(final DataSource target, final StatementListener listener) {
+        super(target);
+        this.listener = listener;
+    }
+
+    /**
+     * Names the statements the current thread runs until {@link #exitOperation} is called
+     * @param operation : DAO method, as DaoName.method
+     * @return String : the enclosing operation, to be given back to exitOperation
+     */
+    public static String enterOperation(final String operation) {
+        final String enclosing = OPERATION.get();
+        OPERATION.set(operation);
+        return enclosing;
+    }
+
+    /**
+     * @param enclosing : the operation returned by enterOperation
+     */
+    public static void exitOperation(final String enclosing) {
+        if (enclosing == null)
+            OPERATION.remove();
+        else
+            OPERATION.set(enclosing);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (isIdentityMethod(method))
+                        return identity(proxy, method, args);
+                    final Object result = invoke(connection, method, args);
+                    if (!(result instanceof Statement))
+                        return result;
+                    // prepareStatement(sql, ...) and prepareCall(sql, ...), the text of plain statements comes with execute
+                    final String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                            new StatementHandler((Statement) result, sql));
+                });
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+
+        private final String sql;
+
+        private StatementHandler(final Statement statement, final String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if (isIdentityMethod(method))
+                return identity(proxy, method, args);
+            if (!method.getName().startsWith("execute"))
+                return TimingDataSource.invoke(statement, method, args);
+
+            final String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            final String operation = OPERATION.get();
+            final long start = System.nanoTime();
+            final Object result = TimingDataSource.invoke(statement, method, args);
+            final long durationNanos = System.nanoTime() - start;
+
+            if (result instanceof ResultSet)
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new ResultSetHandler((ResultSet) result, operation, text, durationNanos));
+            listener.executed(operation, text, rows(result), durationNanos);
+            return result;
+        }
+    }
+
+    private final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet resultSet;
+
+        private final String operation;
+
+        private final String sql;
+
+        private final long durationNanos;
+
+        private int rows;
+
+        private boolean reported;
+
+        private ResultSetHandler(final ResultSet resultSet, final String operation, final String sql, final long durationNanos) {
+            this.resultSet = resultSet;
+            this.operation = operation;
+            this.sql = sql;
+            this.durationNanos = durationNanos;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if (isIdentityMethod(method))
+                return identity(proxy, method, args);
+            final Object result = TimingDataSource.invoke(resultSet, method, args);
+            if (method.getName().equals("next")) {
+                if ((Boolean) result)
+                    rows++;
+            } else if (method.getName().equals("close") && !reported) {
+                reported = true;
+                listener.executed(operation, sql, rows, durationNanos);
+            }
+            return result;
+        }
+    }
+
+    private static int rows(final Object result) {
+        if (result instanceof Integer)
+            return (Integer) result;
+        if (result instanceof Long)
+            return (int) Math.min(Integer.MAX_VALUE, (Long) result);
+        if (result instanceof int[]) {
+            int rows = 0;
+            for (int count : (int[]) result) {
+                // Statement.SUCCESS_NO_INFO
+                if (count < 0)
+                    return -1;
+                rows += count;
+            }
+            return rows;
+        }
+        // execute() only tells whether a result set came back
+        return -1;
+    }
+
+    private static boolean isIdentityMethod(final Method method) {
+        return method.getDeclaringClass() == Object.class;
+    }
+
+    /**
+     * equals and hashCode of the proxy itself, so that it can be looked up in the maps of Hibernate and Spring
+     */
+    private static Object identity(final Object proxy, final Method method, final Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return proxy.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+        }
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
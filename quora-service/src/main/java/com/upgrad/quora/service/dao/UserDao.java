@@ -2,11 +2,15 @@ package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
 
 @Repository
 public class UserDao {
@@ -98,6 +102,16 @@ public class UserDao {
         }
     }
 
+    /**
+     * Database Operation to list the signed out tokens which have not expired yet
+     * @param now : Current time
+     * @return List<String> : Access tokens
+     */
+    public List<String> getRevokedAccessTokens(final ZonedDateTime now){
+        return entityManager.createNamedQuery("revokedAccessTokens", String.class)
+                .setParameter("now", now).getResultList();
+    }
+
     /**
      * Database Operation update the Logout Time
      * @param userAuthEntity : UserAuthEntity Acess token
@@ -107,17 +121,34 @@ public class UserDao {
     }
 
     /**
-     * Database Operation search user by the UUID
+     * Database Operation to replace the password hash of a user, only if it still holds the expected hash.
+     * A single conditional update, so that a concurrent sign in or password change can't be overwritten with an older hash;
+     * the statement returns the id rather than a count, and only that row leaves the second-level cache
+     * @param uuid : User UUID
+     * @param expectedPassword : Password hash the new one replaces
+     * @param salt : New encoded salt
+     * @param password : New password hash
+     * @return boolean : True if updated, false if the user is gone or its password changed meanwhile
+     */
+    public boolean updatePassword(final String uuid, final String expectedPassword, final String salt, final String password){
+        final List<?> ids = entityManager.createNamedQuery("updatePasswordIfUnchanged")
+                .setParameter("uuid", uuid)
+                .setParameter("expectedPassword", expectedPassword)
+                .setParameter("salt", salt)
+                .setParameter("password", password)
+                .getResultList();
+        if(ids.isEmpty())
+            return false;
+        CacheEviction.evictRows(entityManager, UserEntity.class, Collections.singletonMap(((Number) ids.get(0)).intValue(), uuid));
+        return true;
+    }
+
+    /**
+     * Database Operation search user by the UUID, through the natural id and entity caches
      * @param id : User UUID
-     * @return UserEntity Model
+     * @return UserEntity Model, null if not found
      */
     public UserEntity getUserById(final String id){
-        try{
-            return entityManager.createNamedQuery("getUserByUuid", UserEntity.class)
-                    .setParameter("uuid", id).getSingleResult();
-        }
-        catch (NoResultException nre){
-            return null;
-        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(UserEntity.class).load(id);
     }
 }
@@ -14,12 +14,28 @@ import java.time.ZonedDateTime;
 @Table(name = "answer")
 @NamedQueries({
         @NamedQuery(name = "getAnswerForAnswerId", query = "select a from AnswerEntity a where a.uuid = :uuid"),
-        @NamedQuery(name = "getAllAnswers", query = "select a from AnswerEntity  a where a.question.id = :uuid")
+        @NamedQuery(name = "getAnswerDetails", query = "select new com.upgrad.quora.service.common.AnswerDetails(a.uuid, a.answer) from AnswerEntity a where a.question.id = :id order by a.date, a.id"),
+        @NamedQuery(name = "streamAllAnswers", query = "select a.uuid, a.answer from AnswerEntity a where a.question.id = :id order by a.date, a.id"),
+        @NamedQuery(name = "streamAnswersForSearch", query = "select a.uuid, a.answer, a.question.id, a.user.id from AnswerEntity a")
+})
+@NamedNativeQueries({
+        //The answer is taken off the feed row of its question by the DAO once the row is locked
+        @NamedNativeQuery(name = "deleteAnswerIfAllowed", query = "delete from answer a using users u " +
+                "where a.uuid = :uuid and u.id = :userId and (a.user_id = u.id or u.role = 'admin') returning a.question_id"),
+        //Locks the feed row itself: the count moves by a delta and the dates only move forward, so no other answer is read
+        @NamedNativeQuery(name = "countAnswersInFeed", query = "update question_feed set answer_count = answer_count + :count, " +
+                "last_answer_at = greatest(last_answer_at, :date), last_activity_at = greatest(last_activity_at, :date) " +
+                "where question_id = :questionId returning question_id")
 })
 public class AnswerEntity implements Serializable {
+
+    //Ids handed out per sequence call, must match the INCREMENT BY of answer_id_seq
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answer_id")
+    @SequenceGenerator(name = "answer_id", sequenceName = "answer_id_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Integer id;
 
     @Column(name = "UUID")
@@ -40,10 +56,14 @@ public class AnswerEntity implements Serializable {
     @JoinColumn(name = "QUESTION_ID")
     private QuestionEntity question;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "USER_ID")
     private UserEntity user;
 
+    @Version
+    @Column(name = "VERSION")
+    private int version;
+
     public Integer getId() {
         return id;
     }
@@ -92,6 +112,14 @@ public class AnswerEntity implements Serializable {
         this.user = user;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         return new HashCodeBuilder().append(this).hashCode();
@@ -1,8 +1,14 @@
 package com.upgrad.quora.service.entity;
 
+import com.upgrad.quora.service.common.QuestionFeedItem;
+import com.upgrad.quora.service.common.QuestionSearchResult;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -12,21 +18,85 @@ import java.time.ZonedDateTime;
 @Entity
 @Table(name = "question")
 @NamedQueries({
-        @NamedQuery(name = "getAllQuestions", query = "select q from QuestionEntity q"),
-        @NamedQuery(name = "getQuestionById", query = "select q from QuestionEntity q where q.uuid = :uuid"),
-        @NamedQuery(name = "editQuestionById", query = "update QuestionEntity q set q.content = :content where q.uuid = :uuid"),
-        @NamedQuery(name = "deleteQuestionById", query = "delete from QuestionEntity q where q.uuid = :uuid"),
-        @NamedQuery(name = "getAllQuestionByUser", query = "select q from QuestionEntity q where q.userId = :userId")
+        @NamedQuery(name = "getAllQuestions", query = "select q from QuestionEntity q order by q.date desc, q.id desc"),
+        @NamedQuery(name = "getQuestionsAfter", query = "select q from QuestionEntity q where q.date <= :date and (q.date < :date or q.id < :id) order by q.date desc, q.id desc"),
+        @NamedQuery(name = "streamAllQuestions", query = "select q.uuid, q.content from QuestionEntity q order by q.date desc, q.id desc"),
+        @NamedQuery(name = "streamQuestionsForSearch", query = "select q.id, q.uuid, q.content, q.userId.id from QuestionEntity q where q.id > :id"),
+        @NamedQuery(name = "getAllQuestionByUser", query = "select q from QuestionEntity q where q.userId = :userId order by q.date desc, q.id desc"),
+        @NamedQuery(name = "getQuestionsByUserAfter", query = "select q from QuestionEntity q where q.userId = :userId and q.date <= :date and (q.date < :date or q.id < :id) order by q.date desc, q.id desc")
 })
+@NamedNativeQueries({
+        @NamedNativeQuery(name = "deleteQuestionIfAllowed", query = "delete from question q using users u " +
+                "where q.uuid = :uuid and u.id = :userId and (q.user_id = u.id or u.role = 'admin') returning q.id"),
+        @NamedNativeQuery(name = "searchQuestions", query = QuestionEntity.SEARCH_MATCHES +
+                "ranked as (select id, sum(rank) as rank from matches group by id order by rank desc, id desc limit :limit) " +
+                QuestionEntity.SEARCH_PAGE, resultSetMapping = "questionSearchResult"),
+        @NamedNativeQuery(name = "searchQuestionsAfter", query = QuestionEntity.SEARCH_MATCHES +
+                "ranked as (select id, sum(rank) as rank from matches group by id having (sum(rank), id) < (:rank, :id) " +
+                "order by rank desc, id desc limit :limit) " + QuestionEntity.SEARCH_PAGE, resultSetMapping = "questionSearchResult"),
+        @NamedNativeQuery(name = "getTransactionWatermark", query = "select txid_snapshot_xmin(txid_current_snapshot())"),
+        @NamedNativeQuery(name = "countTransactionsSince", query = "select txid_snapshot_xmax(txid_current_snapshot()) - :watermark"),
+        //age() compares the xmin of the rows with the next transaction id on 32 bits, rows written since :watermark are the
+        //younger ones; frozen rows are as old as can be
+        @NamedNativeQuery(name = "streamQuestionsWrittenSince", query = "select q.id, q.uuid, q.content, q.user_id from question q " +
+                "where age(q.xmin) <= txid_snapshot_xmax(txid_current_snapshot()) - :watermark"),
+        @NamedNativeQuery(name = "addQuestionsToFeed", query = "insert into question_feed (question_id, answer_count, last_activity_at) " +
+                "select q.id, 0, q.date from question q where q.id in (:ids) returning question_id"),
+        @NamedNativeQuery(name = "getQuestionFeed", query = QuestionEntity.FEED_PAGE +
+                "order by f.last_activity_at desc, f.question_id desc limit :limit", resultSetMapping = "questionFeedItem"),
+        @NamedNativeQuery(name = "getQuestionFeedAfter", query = QuestionEntity.FEED_PAGE +
+                "where (f.last_activity_at, f.question_id) < (:date, :id) " +
+                "order by f.last_activity_at desc, f.question_id desc limit :limit", resultSetMapping = "questionFeedItem")
+})
+@SqlResultSetMappings({
+        @SqlResultSetMapping(name = "questionSearchResult", classes = @ConstructorResult(targetClass = QuestionSearchResult.class, columns = {
+                @ColumnResult(name = "id", type = Integer.class), @ColumnResult(name = "uuid", type = String.class),
+                @ColumnResult(name = "content", type = String.class), @ColumnResult(name = "rank", type = Float.class)})),
+        @SqlResultSetMapping(name = "questionFeedItem", classes = @ConstructorResult(targetClass = QuestionFeedItem.class, columns = {
+                @ColumnResult(name = "id", type = Integer.class), @ColumnResult(name = "uuid", type = String.class),
+                @ColumnResult(name = "content", type = String.class), @ColumnResult(name = "answer_count", type = Integer.class),
+                @ColumnResult(name = "view_count", type = Long.class), @ColumnResult(name = "last_answer_at", type = ZonedDateTime.class),
+                @ColumnResult(name = "last_activity_at", type = ZonedDateTime.class)}))
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = QuestionEntity.CACHE_REGION)
+@NaturalIdCache(region = QuestionEntity.NATURAL_ID_CACHE_REGION)
 public class QuestionEntity {
 
+    public static final String CACHE_REGION = "questions";
+    public static final String NATURAL_ID_CACHE_REGION = "questions-by-uuid";
+
+    //Questions matching :terms in their content or in one of their answers, ranked by the question's match plus half of its
+    //best answer's. The search_vector columns and their GIN indexes are maintained by the database (migrations V4 and V5).
+    //Only the page of :limit ids is joined back to the question table
+    static final String SEARCH_MATCHES = "with matches as (" +
+            "select q.id, ts_rank(q.search_vector, plainto_tsquery('pg_catalog.english', :terms)) as rank from question q " +
+            "where q.search_vector @@ plainto_tsquery('pg_catalog.english', :terms) " +
+            "union all select a.question_id, max(ts_rank(a.search_vector, plainto_tsquery('pg_catalog.english', :terms))) / 2 from answer a " +
+            "where a.search_vector @@ plainto_tsquery('pg_catalog.english', :terms) group by a.question_id), ";
+
+    static final String SEARCH_PAGE = "select q.id, q.uuid, q.content, r.rank from ranked r join question q on q.id = r.id " +
+            "order by r.rank desc, r.id desc";
+
+    //Questions with their answer and view counts and latest dates, read from the question_feed table (migrations V6 and V7) in
+    //the order of its question_feed_activity_idx index, only the page of :limit rows is joined to the question table.
+    //The answer count and dates move in the transactions which write the answers, the view count lags the views by up to
+    //one flush interval of the write-behind counters
+    static final String FEED_PAGE = "select q.id, q.uuid, q.content, f.answer_count, f.view_count, " +
+            "f.last_answer_at, f.last_activity_at " +
+            "from question_feed f join question q on q.id = f.question_id ";
+
+    //Ids handed out per sequence call, must match the INCREMENT BY of question_id_seq
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_id")
+    @SequenceGenerator(name = "question_id", sequenceName = "question_id_seq", allocationSize = ID_ALLOCATION_SIZE)
     private int id;
 
     @Column(name = "UUID")
     @NotNull
+    @NaturalId
     private String uuid;
 
     @Column(name = "CONTENT")
@@ -38,10 +108,14 @@ public class QuestionEntity {
     @NotNull
     private ZonedDateTime date;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "USER_ID")
     private UserEntity userId;
 
+    @Version
+    @Column(name = "VERSION")
+    private int version;
+
     public int getId() {
         return id;
     }
@@ -82,6 +156,14 @@ public class QuestionEntity {
         this.userId = userId;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         return new HashCodeBuilder().append(this).hashCode();
@@ -13,7 +13,8 @@ import java.time.ZonedDateTime;
 @Entity
 @Table(name = "user_auth")
 @NamedQueries({
-        @NamedQuery(name = "authTokenbyAcessToken", query = "select ut from UserAuthEntity ut where ut.accessToken = :accessToken")
+        @NamedQuery(name = "authTokenbyAcessToken", query = "select ut from UserAuthEntity ut where ut.accessToken = :accessToken"),
+        @NamedQuery(name = "revokedAccessTokens", query = "select ut.accessToken from UserAuthEntity ut where ut.logoutAt is not null and ut.expiresAt > :now")
 })
 public class UserAuthEntity implements Serializable {
     @Id
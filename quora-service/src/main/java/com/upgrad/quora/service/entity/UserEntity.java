@@ -4,6 +4,11 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringExclude;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.QueryHints;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -13,13 +18,29 @@ import java.io.Serializable;
 @Entity
 @Table(name = "users")
 @NamedQueries({
-        @NamedQuery(name = "getUserByUserName", query = "select u from UserEntity u where u.userName = :userName"),
-        @NamedQuery(name = "getUserByEmail", query = "select u from UserEntity u where u.email = :email"),
-        @NamedQuery(name = "getUserByUuid", query = "select u from UserEntity u where u.uuid = :uuid"),
-        @NamedQuery(name = "deleteUserById", query = "delete from UserEntity u where u.uuid = :uuid")
+        @NamedQuery(name = "getUserByUserName", query = "select u from UserEntity u where u.userName = :userName",
+                hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+        @NamedQuery(name = "getUserByEmail", query = "select u from UserEntity u where u.email = :email")
 })
+@NamedNativeQueries({
+        //Returns a row per question of the user, then a row per question it answered with its number of answers there, read
+        //from the snapshot of the statement which still holds the answers the delete cascades to
+        @NamedNativeQuery(name = "deleteUserById", query = "with deleted as (delete from users where uuid = :uuid returning id), " +
+                "answered as (select a.question_id, count(*) as answers from answer a join deleted d on a.user_id = d.id group by a.question_id) " +
+                "select d.id as user_id, q.id as question_id, q.uuid as question_uuid, cast(null as integer) as answered_question_id, " +
+                "cast(null as bigint) as answers from deleted d left join question q on q.user_id = d.id " +
+                "union all select d.id, null, null, n.question_id, n.answers from answered n cross join deleted d"),
+        //Compare and set in one statement: a concurrent writer holds the row lock, and the hash is compared again once it commits
+        @NamedNativeQuery(name = "updatePasswordIfUnchanged", query = "update users set salt = :salt, password = :password " +
+                "where uuid = :uuid and password = :expectedPassword returning id")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserEntity.CACHE_REGION)
+@NaturalIdCache(region = UserEntity.NATURAL_ID_CACHE_REGION)
 public class UserEntity implements Serializable {
 
+    public static final String CACHE_REGION = "users";
+    public static final String NATURAL_ID_CACHE_REGION = "users-by-uuid";
+
     @Id
     @Column(name = "ID")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,6 +48,7 @@ public class UserEntity implements Serializable {
 
     @Column(name = "UUID")
     @NotNull
+    @NaturalId
     private String uuid;
 
     @Column(name = "FIRSTNAME")
@@ -0,0 +1,97 @@
+package com.upgrad.quora.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A throwaway PostgreSQL with the schema the application runs on in production: quora.sql followed by the Flyway
+ * migrations of quora-db. Started once for all the tests of the JVM, for the native statements H2 can't run.
+ * Tests use it through {@link #register} in a @DynamicPropertySource method, along with @AutoConfigureTestDatabase(replace = NONE).
+ */
+public final class PostgresTestDatabase {
+
+    private static EmbeddedPostgres postgres;
+
+    private PostgresTestDatabase() {
+    }
+
+    /**
+     * Points the datasource of the test context at the database
+     * @param registry : properties of the test context
+     */
+    public static void register(final DynamicPropertyRegistry registry) {
+        final EmbeddedPostgres database = start();
+        registry.add("spring.datasource.url", () -> database.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQL10Dialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+
+    /**
+     * Empties the tables, for the tests which commit
+     * @param dataSource : datasource of the test context
+     */
+    public static void truncate(final DataSource dataSource) {
+        new JdbcTemplate(dataSource).execute("truncate table user_auth, answer, question_feed, question, users cascade");
+    }
+
+    /**
+     * Waits until a session is blocked on a lock, so that a test can release it knowing the other transaction queued behind
+     * @param dataSource : datasource of the test context
+     */
+    public static void awaitLockWait(final DataSource dataSource) throws InterruptedException {
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (jdbcTemplate.queryForObject("select count(*) from pg_locks where not granted", Long.class) == 0) {
+            if (System.currentTimeMillis() > deadline)
+                throw new IllegalStateException("No session waited on a lock");
+            Thread.sleep(10);
+        }
+    }
+
+    private static synchronized EmbeddedPostgres start() {
+        if (postgres != null)
+            return postgres;
+        try {
+            postgres = EmbeddedPostgres.builder().start();
+            createSchema(postgres.getPostgresDatabase());
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("Failed to start the test database", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                postgres.close();
+            } catch (IOException e) {
+                // the JVM is exiting anyway
+            }
+        }));
+        return postgres;
+    }
+
+    private static void createSchema(final DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("sql/quora.sql"));
+            // quora.sql inserts its admin with an explicit id, keep new users clear of it
+            statement.execute("SELECT setval(pg_get_serial_sequence('users', 'id'), 1024)");
+        }
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:sql/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,69 @@
+package com.upgrad.quora.service;
+
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * Entities for the tests, not saved yet: each test writes them the way it needs, through a DAO in a transaction of its own
+ * or through the TestEntityManager of its test transaction. Uuids, user names and emails are random, so that tests which
+ * commit don't collide.
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    /**
+     * A non admin user
+     * @return UserEntity : not saved
+     */
+    public static UserEntity newUser() {
+        final UserEntity user = new UserEntity();
+        user.setUuid(UUID.randomUUID().toString());
+        user.setFirstName("first");
+        user.setLastName("last");
+        user.setUserName("user-" + user.getUuid().substring(0, 8));
+        user.setEmail(user.getUuid() + "@quora.io");
+        user.setPassword("password");
+        user.setSalt("salt");
+        user.setCountry("India");
+        user.setRole("nonadmin");
+        return user;
+    }
+
+    /**
+     * A question asked now
+     * @param user : author of the question
+     * @param content : content of the question
+     * @return QuestionEntity : not saved
+     */
+    public static QuestionEntity newQuestion(final UserEntity user, final String content) {
+        final QuestionEntity question = new QuestionEntity();
+        question.setUuid(UUID.randomUUID().toString());
+        question.setContent(content);
+        question.setDate(ZonedDateTime.now());
+        question.setUserId(user);
+        return question;
+    }
+
+    /**
+     * An answer given now
+     * @param question : question answered
+     * @param user : author of the answer
+     * @param text : text of the answer
+     * @return AnswerEntity : not saved
+     */
+    public static AnswerEntity newAnswer(final QuestionEntity question, final UserEntity user, final String text) {
+        final AnswerEntity answer = new AnswerEntity();
+        answer.setUuid(UUID.randomUUID().toString());
+        answer.setAnswer(text);
+        answer.setDate(ZonedDateTime.now());
+        answer.setQuestion(question);
+        answer.setUser(user);
+        return answer;
+    }
+}
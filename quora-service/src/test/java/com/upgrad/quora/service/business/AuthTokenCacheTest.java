@@ -0,0 +1,117 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+//Checks that token lookups are served from the cache, and that sign outs and user deletions drop them at once and after commit.
+public class AuthTokenCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void tokenIsLoadedOnceThenServedFromTheCache() {
+        AuthTokenCache cache = new AuthTokenCache(100, 300);
+        UserAuthEntity token = token("t1", "u1");
+
+        assertSame(token, cache.get("t1", loader(token)));
+        assertSame(token, cache.get("t1", loader(token)));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void unknownTokensAreNotCached() {
+        AuthTokenCache cache = new AuthTokenCache(100, 300);
+
+        assertNull(cache.get("t1", loader(null)));
+        assertNull(cache.get("t1", loader(null)));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void signedOutTokenIsReadAgain() {
+        AuthTokenCache cache = new AuthTokenCache(100, 300);
+        cache.get("t1", loader(token("t1", "u1")));
+
+        cache.invalidate("t1");
+        cache.get("t1", loader(token("t1", "u1")));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void deletedUserLosesEveryToken() {
+        AuthTokenCache cache = new AuthTokenCache(100, 300);
+        cache.get("t1", loader(token("t1", "u1")));
+        cache.get("t2", loader(token("t2", "u1")));
+        cache.get("t3", loader(token("t3", "u2")));
+
+        cache.invalidateUser("u1");
+
+        assertEquals(1, cache.size());
+        cache.get("t3", loader(null));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void rowReadBeforeTheSignOutCommitsIsDroppedAfterCommit() {
+        AuthTokenCache cache = new AuthTokenCache(100, 300);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidate("t1");
+        //A concurrent reader still sees the row as signed in until the sign out commits
+        cache.get("t1", loader(token("t1", "u1")));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void zeroMaxSizeReadsEveryTime() {
+        AuthTokenCache cache = new AuthTokenCache(0, 300);
+        UserAuthEntity token = token("t1", "u1");
+
+        cache.get("t1", loader(token));
+        cache.get("t1", loader(token));
+
+        assertEquals(2, loads.get());
+    }
+
+    private Function<String, UserAuthEntity> loader(final UserAuthEntity token) {
+        return accessToken -> {
+            loads.incrementAndGet();
+            return token;
+        };
+    }
+
+    private static UserAuthEntity token(final String accessToken, final String userUuid) {
+        UserEntity user = new UserEntity();
+        user.setUuid(userUuid);
+        UserAuthEntity token = new UserAuthEntity();
+        token.setAccessToken(accessToken);
+        token.setUserid(user);
+        return token;
+    }
+}
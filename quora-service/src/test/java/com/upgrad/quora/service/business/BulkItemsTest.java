@@ -0,0 +1,84 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.BulkItemResult;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+//Checks that a bulk create reports each bad item on its own, in the request order, and only hands the valid ones to the DAO.
+public class BulkItemsTest {
+
+    private final QuestionDao questionDao = mock(QuestionDao.class);
+
+    private final BulkItems bulkItems = new BulkItems();
+
+    private final QuestionBusinessService questionBusinessService = new QuestionBusinessService();
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(bulkItems, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(bulkItems, "maxItems", 3);
+        ReflectionTestUtils.setField(bulkItems, "batchSize", 2);
+        ReflectionTestUtils.setField(questionBusinessService, "questionDao", questionDao);
+        ReflectionTestUtils.setField(questionBusinessService, "bulkItems", bulkItems);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void invalidItemsAreRejectedAndTheOthersCreated() throws InvalidBulkRequestException {
+        char[] tooLong = new char[501];
+        Arrays.fill(tooLong, 'q');
+
+        List<BulkItemResult> results = questionBusinessService.createQuestions(new UserEntity(),
+                Arrays.asList("first?", new String(tooLong), "third?"));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isCreated());
+        assertFalse(results.get(1).isCreated());
+        assertEquals(1, results.get(1).getIndex());
+        assertEquals("QUES-002", results.get(1).getCode());
+        assertTrue(results.get(1).getErrorMessage().startsWith("content "));
+        assertTrue(results.get(2).isCreated());
+
+        ArgumentCaptor<List<QuestionEntity>> created = ArgumentCaptor.forClass(List.class);
+        verify(questionDao).createQuestions(created.capture(), eq(2));
+        List<String> uuids = new ArrayList<>();
+        created.getValue().forEach(question -> uuids.add(question.getUuid()));
+        assertEquals(Arrays.asList(results.get(0).getUuid(), results.get(2).getUuid()), uuids);
+    }
+
+    @Test
+    public void emptyAndOversizedRequestsAreRejectedAsAWhole() {
+        assertRejected(Collections.emptyList());
+        assertRejected(null);
+        assertRejected(Arrays.asList("1", "2", "3", "4"));
+    }
+
+    private void assertRejected(final List<String> items) {
+        try {
+            bulkItems.checkSize(items);
+            fail("The request was accepted");
+        } catch (InvalidBulkRequestException e) {
+            assertEquals("BULK-001", e.getCode());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//Checks which signed tokens the stateless verification authorizes from their claims, and which go to user_auth.
+public class CommonServiceTest {
+
+    private static final String SECRET = "test-signing-key-0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private final UserDao userDao = mock(UserDao.class);
+
+    private final JwtTokenProvider jwtTokenProvider = new JwtTokenProvider("k1", Collections.singletonMap("k1", SECRET));
+
+    private final TokenRevocationList tokenRevocationList = new TokenRevocationList();
+
+    private final CommonService commonService = new CommonService();
+
+    private UserEntity user;
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(tokenRevocationList, "statelessMaxAge", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(commonService, "userDao", userDao);
+        ReflectionTestUtils.setField(commonService, "authTokenCache", new AuthTokenCache(0, 300));
+        ReflectionTestUtils.setField(commonService, "jwtTokenProvider", jwtTokenProvider);
+        ReflectionTestUtils.setField(commonService, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(commonService, "statelessVerification", true);
+        ReflectionTestUtils.setField(commonService, "statelessMaxAge", Duration.ofMinutes(5));
+
+        user = new UserEntity();
+        user.setId(7);
+        user.setUuid(UUID.randomUUID().toString());
+        user.setRole("admin");
+    }
+
+    @Test
+    public void freshTokenIsAuthorizedFromItsClaims() throws AuthorizationFailedException {
+        String token = issue(ZonedDateTime.now());
+
+        UserAuthEntity authorized = commonService.commonProfiles(token);
+
+        assertEquals(user.getUuid(), authorized.getUserid().getUuid());
+        assertEquals(7, authorized.getUserid().getId());
+        assertEquals("admin", authorized.getUserid().getRole());
+        verify(userDao, never()).getUserAuthToken(anyString());
+    }
+
+    @Test
+    public void tokenPastTheStatelessMaxAgeIsReadFromUserAuth() throws AuthorizationFailedException {
+        String token = issue(ZonedDateTime.now().minusMinutes(10));
+        UserAuthEntity stored = storedToken(token);
+        stored.getUserid().setRole("nonadmin");
+        when(userDao.getUserAuthToken(token)).thenReturn(stored);
+
+        assertEquals("nonadmin", commonService.commonProfiles(token).getUserid().getRole());
+    }
+
+    @Test
+    public void signedOutTokenIsReadFromUserAuth() {
+        String token = issue(ZonedDateTime.now());
+        UserAuthEntity stored = storedToken(token);
+        stored.setLogoutAt(ZonedDateTime.now());
+        when(userDao.getUserAuthToken(token)).thenReturn(stored);
+
+        tokenRevocationList.revoke(token);
+
+        assertRejected(token, "ATHR-002");
+    }
+
+    @Test
+    public void tokensOfADeletedUserAreReadFromUserAuth() {
+        String token = issue(ZonedDateTime.now().minusSeconds(1));
+
+        tokenRevocationList.revokeUser(user.getUuid());
+
+        assertRejected(token, "ATHR-001");
+    }
+
+    @Test
+    public void tokenForTheUserAsAudienceIsNotTrusted() {
+        Date now = new Date();
+        String token = JWT.create().withIssuer("https://quora.io").withKeyId("k1").withJWTId(UUID.randomUUID().toString())
+                .withAudience(user.getUuid()).withSubject(user.getUuid()).withClaim(JwtTokenProvider.USER_ID_CLAIM, 7)
+                .withClaim(JwtTokenProvider.ROLE_CLAIM, "admin")
+                .withIssuedAt(now).withExpiresAt(new Date(now.getTime() + 60000))
+                .sign(Algorithm.HMAC512(SECRET.getBytes(StandardCharsets.UTF_8)));
+
+        assertRejected(token, "ATHR-001");
+    }
+
+    @Test
+    public void tokenSignedWithAnotherKeyIsNotTrusted() {
+        JwtTokenProvider otherServer = new JwtTokenProvider("k1",
+                Collections.singletonMap("k1", SECRET.replace('0', 'x')));
+        String token = otherServer.generateToken(UUID.randomUUID().toString(), user, ZonedDateTime.now(),
+                ZonedDateTime.now().plusHours(8));
+
+        assertRejected(token, "ATHR-001");
+    }
+
+    @Test
+    public void withoutStatelessVerificationEveryTokenIsReadFromUserAuth() throws AuthorizationFailedException {
+        ReflectionTestUtils.setField(commonService, "statelessVerification", false);
+        String token = issue(ZonedDateTime.now());
+        when(userDao.getUserAuthToken(token)).thenReturn(null);
+
+        assertNull(commonService.getAuthToken(token));
+        verify(userDao).getUserAuthToken(token);
+    }
+
+    private String issue(final ZonedDateTime issuedAt) {
+        return jwtTokenProvider.generateToken(UUID.randomUUID().toString(), user, issuedAt, issuedAt.plusHours(8));
+    }
+
+    private UserAuthEntity storedToken(final String token) {
+        UserEntity storedUser = new UserEntity();
+        storedUser.setId(user.getId());
+        storedUser.setUuid(user.getUuid());
+        storedUser.setRole(user.getRole());
+        UserAuthEntity stored = new UserAuthEntity();
+        stored.setUserid(storedUser);
+        stored.setAccessToken(token);
+        return stored;
+    }
+
+    private void assertRejected(final String token, final String code) {
+        try {
+            commonService.commonProfiles(token);
+            fail("The token was authorized");
+        } catch (AuthorizationFailedException e) {
+            assertEquals(code, e.getCode());
+        }
+        verify(userDao).getUserAuthToken(token);
+    }
+}
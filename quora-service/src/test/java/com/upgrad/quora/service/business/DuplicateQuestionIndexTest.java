@@ -0,0 +1,237 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.SearchIndexReplay;
+import com.upgrad.quora.service.dao.SearchIndexSync;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//Checks the duplicate question index: shingles and signatures, candidates and the exact check, entries replaced on edit and
+//removed on delete, and the snapshot reloaded with the questions written since its watermark, or rebuilt once too old.
+public class DuplicateQuestionIndexTest {
+
+    private static final String RICE = "How do I cook rice without a cooker?";
+
+    private static final String PASTA = "How do I cook pasta?";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private File snapshot;
+
+    @Before
+    public void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        snapshot = new File(folder.getRoot(), "duplicate-index.bin");
+    }
+
+    @Test
+    public void shinglesAreTheDistinctWordsWhateverTheirCaseAndOrder() {
+        DuplicateQuestionIndex index = open(mock(QuestionDao.class));
+
+        long[] shingles = ReflectionTestUtils.invokeMethod(index, "shingles", "How do I, how DO i cook?");
+        assertEquals(4, shingles.length);
+        for (int i = 1; i < shingles.length; i++) {
+            assertTrue(shingles[i - 1] < shingles[i]);
+        }
+        assertArrayEquals(shingles, ReflectionTestUtils.invokeMethod(index, "shingles", "cook i do how"));
+        assertEquals(0, ((long[]) ReflectionTestUtils.invokeMethod(index, "shingles", "?! ...")).length);
+
+        byte[] signature = ReflectionTestUtils.invokeMethod(index, "signature", shingles);
+        assertEquals(64, signature.length);
+        assertArrayEquals(signature, ReflectionTestUtils.invokeMethod(index, "signature", shingles.clone()));
+        assertFalse(Arrays.equals(signature, ReflectionTestUtils.invokeMethod(index, "signature",
+                (Object) ReflectionTestUtils.invokeMethod(index, "shingles", PASTA))));
+    }
+
+    @Test
+    public void candidatesAreTheQuestionsWithTheSameWords() {
+        DuplicateQuestionIndex index = open(replaying(0));
+
+        assertEquals(Collections.singletonList(1), index.candidates("how do i cook rice without a cooker"));
+        assertEquals(Collections.singletonList(3), index.candidates("Pasta: how do I cook?"));
+        assertTrue(index.candidates("Which guitar should a beginner buy?").isEmpty());
+        assertTrue(index.candidates("?!").isEmpty());
+    }
+
+    @Test
+    public void duplicatesOverlapByTheThreshold() {
+        DuplicateQuestionIndex index = open(mock(QuestionDao.class));
+
+        //7 words in common out of 8
+        assertTrue(index.isDuplicate(RICE, "how do i cook rice without cooker"));
+        assertTrue(index.isDuplicate(RICE, RICE.toUpperCase()));
+        assertFalse(index.isDuplicate(RICE, PASTA));
+        assertFalse(index.isDuplicate("?", "!"));
+    }
+
+    @Test
+    public void editsReplaceTheEntryAndDeletesRemoveIt() {
+        DuplicateQuestionIndex index = open(replaying(0));
+
+        index.questionSaved(1, "uuid-1", "Which violin strings last longest?", 10);
+        assertTrue(index.candidates(RICE).isEmpty());
+        assertEquals(Collections.singletonList(1), index.candidates("which violin strings last longest"));
+        assertEquals(4, (int) ReflectionTestUtils.getField(index, "size"));
+
+        index.questionDeleted(3);
+        index.questionDeleted(3);
+        assertTrue(index.candidates(PASTA).isEmpty());
+        index.userDeleted(11, Arrays.asList(2, 4));
+        assertTrue(index.candidates("What should I make for dinner tonight?").isEmpty());
+        assertEquals(3, (int) ReflectionTestUtils.getField(index, "deleted"));
+
+        //The snapshot is saved compacted
+        index.close();
+        assertEquals(1, (int) ReflectionTestUtils.getField(index, "size"));
+        assertEquals(0, (int) ReflectionTestUtils.getField(index, "deleted"));
+        assertEquals(Collections.singletonList(1), index.candidates("which violin strings last longest"));
+    }
+
+    @Test
+    public void entriesAreFoundByIdThroughGrowthAndDeletes() {
+        DuplicateQuestionIndex index = open(mock(QuestionDao.class));
+        for (int id = 1; id <= 3000; id++) {
+            index.questionSaved(id, "uuid-" + id, "Question number " + id, 10);
+        }
+        for (int id = 1; id <= 3000; id += 2) {
+            index.questionDeleted(id);
+        }
+        for (int id = 2; id <= 3000; id += 2) {
+            index.questionSaved(id, "uuid-" + id, "Edited question number " + id, 10);
+        }
+
+        assertEquals(3000, (int) ReflectionTestUtils.getField(index, "size"));
+        int[] slots = (int[]) ReflectionTestUtils.getField(index, "slots");
+        int[] questionIds = (int[]) ReflectionTestUtils.getField(index, "questionIds");
+        for (int id = 1; id <= 3000; id++) {
+            int entry = slots[(int) ReflectionTestUtils.invokeMethod(index, "slot", id)];
+            assertEquals(String.valueOf(id), id % 2 == 0, entry >= 0);
+            if (entry >= 0)
+                assertEquals(id, questionIds[entry]);
+        }
+        //Questions sharing four words of five may come next
+        assertEquals(42, (int) index.candidates("edited question number 42").get(0));
+    }
+
+    @Test
+    public void snapshotIsReloadedWithTheQuestionsWrittenSinceItsWatermark() throws IOException {
+        DuplicateQuestionIndex first = open(replaying(100));
+        first.close();
+        assertEquals(100, savedWatermark());
+
+        QuestionDao questionDao = mock(QuestionDao.class);
+        when(questionDao.getTransactionWatermark()).thenReturn(200L);
+        when(questionDao.countTransactionsSince(100)).thenReturn(150L);
+        doAnswer(invocation -> {
+            SearchIndexReplay replay = invocation.getArgument(2);
+            replay.questionSaved(2, "uuid-2", "Which violin strings last longest?", 11);
+            replay.questionSaved(5, "uuid-5", "Is a violin harder than a viola?", 10);
+            return null;
+        }).when(questionDao).replayQuestionsWrittenSince(eq(100L), anyInt(), any());
+        DuplicateQuestionIndex second = open(questionDao);
+
+        verify(questionDao, never()).replayQuestions(anyInt(), anyInt(), any());
+        assertEquals(Collections.singletonList(1), second.candidates(RICE));
+        assertEquals(Collections.singletonList(2), second.candidates("which violin strings last longest"));
+        assertEquals(Collections.singletonList(5), second.candidates("is a violin harder than a viola"));
+        assertTrue(second.candidates("What should I make for dinner tonight?").isEmpty());
+
+        //The next snapshot keeps the watermark read before the replay
+        second.close();
+        assertEquals(200, savedWatermark());
+    }
+
+    @Test
+    public void snapshotTooFarBehindIsRebuilt() {
+        open(replaying(100)).close();
+
+        QuestionDao questionDao = mock(QuestionDao.class);
+        when(questionDao.getTransactionWatermark()).thenReturn(300L);
+        when(questionDao.countTransactionsSince(100)).thenReturn((1L << 31) + 1);
+        doAnswer(invocation -> {
+            SearchIndexReplay replay = invocation.getArgument(2);
+            replay.questionSaved(3, "uuid-3", PASTA, 10);
+            return null;
+        }).when(questionDao).replayQuestions(eq(0), anyInt(), any());
+        DuplicateQuestionIndex index = open(questionDao);
+
+        verify(questionDao, never()).replayQuestionsWrittenSince(anyLong(), anyInt(), any());
+        assertTrue(index.candidates(RICE).isEmpty());
+        assertEquals(Collections.singletonList(3), index.candidates(PASTA));
+    }
+
+    /**
+     * A database of four questions, replayed in full, with the given transaction watermark
+     */
+    private static QuestionDao replaying(final long watermark) {
+        QuestionDao questionDao = mock(QuestionDao.class);
+        when(questionDao.getTransactionWatermark()).thenReturn(watermark);
+        doAnswer(invocation -> {
+            SearchIndexReplay replay = invocation.getArgument(2);
+            replay.questionSaved(1, "uuid-1", RICE, 10);
+            replay.questionSaved(2, "uuid-2", "What should I make for dinner tonight?", 11);
+            replay.questionSaved(3, "uuid-3", PASTA, 10);
+            replay.questionSaved(4, "uuid-4", "Which rice grows best in wet fields?", 11);
+            return null;
+        }).when(questionDao).replayQuestions(eq(0), anyInt(), any());
+        return questionDao;
+    }
+
+    private DuplicateQuestionIndex open(final QuestionDao questionDao) {
+        DuplicateQuestionIndex index = new DuplicateQuestionIndex();
+        ReflectionTestUtils.setField(index, "questionDao", questionDao);
+        ReflectionTestUtils.setField(index, "searchIndexSync", mock(SearchIndexSync.class));
+        ReflectionTestUtils.setField(index, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(index, "mode", "warn");
+        ReflectionTestUtils.setField(index, "threshold", 0.8);
+        ReflectionTestUtils.setField(index, "shingleWords", 1);
+        ReflectionTestUtils.setField(index, "hashes", 64);
+        ReflectionTestUtils.setField(index, "bands", 16);
+        ReflectionTestUtils.setField(index, "maxCandidates", 5);
+        ReflectionTestUtils.setField(index, "snapshotPath", snapshot.getPath());
+        ReflectionTestUtils.setField(index, "snapshotInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(index, "fetchSize", 100);
+        index.init();
+        return index;
+    }
+
+    private long savedWatermark() throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot.toPath()))) {
+            //magic, format, hashes and shingle words
+            for (int i = 0; i < 4; i++) {
+                in.readInt();
+            }
+            return in.readLong();
+        }
+    }
+}
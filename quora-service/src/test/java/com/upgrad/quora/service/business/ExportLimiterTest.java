@@ -0,0 +1,132 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.UnexpectedException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//Checks the permits of the exports, given back once however often released, and that each export runs in a bounded
+//read-only transaction cut off at the deadline.
+public class ExportLimiterTest {
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private final ExportLimiter exportLimiter = new ExportLimiter();
+
+    @Before
+    public void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(exportLimiter, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(exportLimiter, "maxConcurrent", 2);
+        ReflectionTestUtils.setField(exportLimiter, "timeout", Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void exportsBeyondTheLimitAreRefusedUntilOneEnds() {
+        exportLimiter.init();
+        ExportLimiter.Permit permit = exportLimiter.acquire();
+        exportLimiter.acquire();
+
+        assertRefused();
+        permit.release();
+        exportLimiter.acquire();
+        assertRefused();
+    }
+
+    @Test
+    public void permitsAreGivenBackOnlyOnce() {
+        exportLimiter.init();
+        ExportLimiter.Permit permit = exportLimiter.acquire();
+
+        permit.release();
+        permit.release();
+
+        exportLimiter.acquire();
+        exportLimiter.acquire();
+        assertRefused();
+    }
+
+    @Test
+    public void exportRunsInAReadOnlyTransactionWithTheTimeout() throws IOException {
+        exportLimiter.init();
+        List<String> written = new ArrayList<>();
+
+        exportLimiter.run(rows -> {
+            rows.write("uuid-1", "first");
+            rows.write("uuid-2", "second");
+        }, (uuid, content) -> written.add(uuid));
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertTrue(definition.getValue().isReadOnly());
+        assertEquals(300, definition.getValue().getTimeout());
+        verify(transactionManager).commit(any());
+        assertEquals(2, written.size());
+    }
+
+    @Test
+    public void exportPastTheDeadlineIsCutOffAndRolledBack() throws IOException {
+        ReflectionTestUtils.setField(exportLimiter, "timeout", Duration.ofMillis(1));
+        exportLimiter.init();
+        List<String> written = new ArrayList<>();
+
+        try {
+            exportLimiter.run(rows -> {
+                rows.write("uuid-1", "first");
+                sleep(20);
+                rows.write("uuid-2", "second");
+            }, (uuid, content) -> written.add(uuid));
+            fail("The export ran past its deadline");
+        } catch (TransactionTimedOutException e) {
+            // expected
+        }
+        assertTrue(written.size() <= 1);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test(expected = IOException.class)
+    public void failingWriterFailsTheExport() throws IOException {
+        exportLimiter.init();
+
+        exportLimiter.run(rows -> rows.write("uuid-1", "first"), (uuid, content) -> {
+            throw new IOException("Broken pipe");
+        });
+    }
+
+    private void assertRefused() {
+        try {
+            exportLimiter.acquire();
+            fail("An export was let in beyond the limit");
+        } catch (UnexpectedException e) {
+            assertEquals("GEN-002", e.getErrorCode().getCode());
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+//Checks the claims and timestamps of the issued tokens, the key rotation by "kid", and the tokens verification turns down.
+public class JwtTokenProviderTest {
+
+    private static final String KEY_1 = "first-signing-key-0123456789abcdef0123456789abcdef0123456789abcdef";
+    private static final String KEY_2 = "second-signing-key-0123456789abcdef0123456789abcdef0123456789abcde";
+
+    private final JwtTokenProvider provider = new JwtTokenProvider("k1", Collections.singletonMap("k1", KEY_1));
+
+    @Test
+    public void tokenCarriesTheUserAndMillisecondTimestamps() {
+        ZonedDateTime issuedAt = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        DecodedJWT token = provider.verifyToken(provider.generateToken("token-id", user(), issuedAt, issuedAt.plusHours(8)));
+
+        assertEquals("k1", token.getKeyId());
+        assertEquals("token-id", token.getId());
+        assertEquals("user-uuid", token.getSubject());
+        assertEquals(Collections.singletonList("quora-api"), token.getAudience());
+        assertEquals(Integer.valueOf(7), token.getClaim(JwtTokenProvider.USER_ID_CLAIM).asInt());
+        assertEquals("admin", token.getClaim(JwtTokenProvider.ROLE_CLAIM).asString());
+        assertEquals(issuedAt.toInstant(), token.getIssuedAt().toInstant());
+        assertEquals(issuedAt.plusHours(8).toInstant(), token.getExpiresAt().toInstant());
+    }
+
+    @Test
+    public void tokensOfTheRetiringKeyStillVerifyAfterRotation() {
+        String oldToken = issue(provider);
+        Map<String, String> keys = new HashMap<>();
+        keys.put("k1", KEY_1);
+        keys.put("k2", KEY_2);
+        JwtTokenProvider rotated = new JwtTokenProvider("k2", keys);
+
+        assertEquals("k1", rotated.verifyToken(oldToken).getKeyId());
+        assertEquals("k2", rotated.verifyToken(issue(rotated)).getKeyId());
+        assertRejected(provider, issue(rotated));
+    }
+
+    @Test
+    public void tokenWithAnUnknownKeyIdIsRejected() {
+        JwtTokenProvider other = new JwtTokenProvider("k9", Collections.singletonMap("k9", KEY_1));
+
+        assertRejected(provider, issue(other));
+    }
+
+    @Test
+    public void tamperedTokenIsRejected() {
+        String[] parts = issue(provider).split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                .replace("\"admin\"", "\"super\"");
+        String tampered = parts[0] + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+
+        assertRejected(provider, tampered);
+    }
+
+    @Test
+    public void unsignedTokenIsRejected() {
+        String unsigned = JWT.create().withKeyId("k1").withIssuer("https://quora.io").withAudience("quora-api")
+                .withSubject("user-uuid").withJWTId("token-id").withClaim(JwtTokenProvider.USER_ID_CLAIM, 7)
+                .sign(Algorithm.none());
+
+        assertRejected(provider, unsigned);
+    }
+
+    @Test(expected = TokenExpiredException.class)
+    public void expiredTokenIsRejected() {
+        ZonedDateTime issuedAt = ZonedDateTime.now().minusHours(9);
+
+        provider.verifyToken(provider.generateToken("token-id", user(), issuedAt, issuedAt.plusHours(8)));
+    }
+
+    @Test
+    public void missingOrShortKeysFailTheStartup() {
+        assertInvalidKey(Collections.singletonMap("k1", "short"));
+        assertInvalidKey(Collections.singletonMap("k1", "${QUORA_JWT_SECRET}"));
+        assertInvalidKey(Collections.singletonMap("k1", null));
+        assertInvalidKey(Collections.singletonMap("k2", KEY_2));
+    }
+
+    private static String issue(final JwtTokenProvider provider) {
+        ZonedDateTime now = ZonedDateTime.now();
+        return provider.generateToken("token-id", user(), now, now.plusHours(8));
+    }
+
+    private static void assertRejected(final JwtTokenProvider provider, final String token) {
+        try {
+            provider.verifyToken(token);
+            fail("The token was verified");
+        } catch (JWTVerificationException e) {
+            // expected
+        }
+    }
+
+    private static void assertInvalidKey(final Map<String, String> keys) {
+        try {
+            new JwtTokenProvider("k1", keys);
+            fail("The keys were accepted");
+        } catch (UnexpectedException e) {
+            // expected
+        }
+    }
+
+    private static UserEntity user() {
+        UserEntity user = new UserEntity();
+        user.setId(7);
+        user.setUuid("user-uuid");
+        user.setRole("admin");
+        return user;
+    }
+}
@@ -0,0 +1,167 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.QuestionSearchResult;
+import com.upgrad.quora.service.common.RankCursor;
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.SearchIndexReplay;
+import com.upgrad.quora.service.dao.SearchIndexSync;
+import org.apache.lucene.search.SearcherManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//Checks the Lucene backend: the index rebuilt from the replayed rows ranks content matches first and pages through rank
+//cursors like the SQL backend, then follows the saves and deletes reported after each commit.
+public class LuceneSearchBackendTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final QuestionDao questionDao = mock(QuestionDao.class);
+
+    private final AnswerDao answerDao = mock(AnswerDao.class);
+
+    private final SearchIndexSync searchIndexSync = mock(SearchIndexSync.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private final LuceneSearchBackend backend = new LuceneSearchBackend();
+
+    @Before
+    public void setUp() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        doAnswer(invocation -> {
+            SearchIndexReplay replay = invocation.getArgument(2);
+            replay.questionSaved(1, "uuid-1", "How do I cook rice without a cooker?", 10);
+            replay.questionSaved(2, "uuid-2", "What should I make for dinner tonight?", 11);
+            replay.questionSaved(3, "uuid-3", "How do I cook pasta?", 10);
+            replay.questionSaved(4, "uuid-4", "Which rice grows best in wet fields?", 11);
+            return null;
+        }).when(questionDao).replayQuestions(eq(0), anyInt(), any());
+        doAnswer(invocation -> {
+            SearchIndexReplay replay = invocation.getArgument(1);
+            replay.answerSaved("answer-1", "Cooking rice takes twenty minutes", 2, 10);
+            replay.answerSaved("answer-2", "Basmati does", 4, 10);
+            return null;
+        }).when(answerDao).replayAnswers(anyInt(), any());
+        ReflectionTestUtils.setField(backend, "questionDao", questionDao);
+        ReflectionTestUtils.setField(backend, "answerDao", answerDao);
+        ReflectionTestUtils.setField(backend, "searchIndexSync", searchIndexSync);
+        ReflectionTestUtils.setField(backend, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(backend, "directory", folder.getRoot().getPath());
+        ReflectionTestUtils.setField(backend, "refreshInterval", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(backend, "rebuildThreads", 2);
+        ReflectionTestUtils.setField(backend, "ramBufferMb", 16.0);
+        ReflectionTestUtils.setField(backend, "fetchSize", 100);
+        backend.open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        backend.close();
+    }
+
+    @Test
+    public void rebuiltIndexRanksContentMatchesBeforeAnswerMatches() {
+        verify(searchIndexSync).addListener(backend);
+
+        List<QuestionSearchResult> results = backend.search("cooking rice", null, 10);
+
+        assertEquals(Arrays.asList(1, 2), ids(results));
+        assertEquals("uuid-1", results.get(0).getUuid());
+        assertEquals("How do I cook rice without a cooker?", results.get(0).getContent());
+        assertTrue(results.get(0).getRank() > results.get(1).getRank());
+        assertTrue(backend.search("the", null, 10).isEmpty());
+    }
+
+    @Test
+    public void pagesReturnEachMatchOnceInRankOrder() throws Exception {
+        for (int id = 5; id < 13; id++) {
+            backend.questionSaved(id, "uuid-" + id, id % 2 == 0 ? "Guitar lessons?" : "Any tips to learn the guitar as an adult?", 10);
+        }
+        backend.answerSaved("answer-3", "A guitar teacher helps", 6, 11);
+        refresh();
+        List<QuestionSearchResult> all = backend.search("guitar", null, 100);
+        assertEquals(8, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            QuestionSearchResult previous = all.get(i - 1);
+            QuestionSearchResult current = all.get(i);
+            assertTrue(previous.getRank() > current.getRank()
+                    || (previous.getRank() == current.getRank() && previous.getId() > current.getId()));
+        }
+
+        List<Integer> walked = new ArrayList<>();
+        RankCursor cursor = null;
+        do {
+            List<QuestionSearchResult> page = backend.search("guitar", cursor, 3);
+            walked.addAll(ids(page));
+            QuestionSearchResult last = page.isEmpty() ? null : page.get(page.size() - 1);
+            cursor = page.size() < 3 ? null : RankCursor.decode(new RankCursor(last.getRank(), last.getId()).encode());
+        } while (cursor != null);
+
+        assertEquals(ids(all), walked);
+    }
+
+    @Test
+    public void savesAndDeletesFollowTheCommittedWrites() throws IOException {
+        backend.questionSaved(3, "uuid-3", "How do I cook rice and pasta together?", 10);
+        refresh();
+        assertEquals(Arrays.asList(1, 2, 3), sorted(ids(backend.search("cooking rice", null, 10))));
+
+        backend.answerDeleted("answer-1");
+        refresh();
+        assertEquals(Arrays.asList(1, 3), sorted(ids(backend.search("cooking rice", null, 10))));
+
+        backend.questionDeleted(1);
+        refresh();
+        assertEquals(Collections.singletonList(3), ids(backend.search("cooking rice", null, 10)));
+
+        //User 10 wrote questions 1 and 3 and the answer to question 4
+        backend.userDeleted(10, Arrays.asList(1, 3));
+        refresh();
+        assertTrue(backend.search("cook", null, 10).isEmpty());
+        assertTrue(backend.search("basmati", null, 10).isEmpty());
+        assertEquals(Collections.singletonList(4), ids(backend.search("rice", null, 10)));
+    }
+
+    /**
+     * Makes the writes visible now instead of at the next background refresh
+     */
+    private void refresh() throws IOException {
+        ((SearcherManager) ReflectionTestUtils.getField(backend, "searcherManager")).maybeRefreshBlocking();
+    }
+
+    private static List<Integer> ids(final List<QuestionSearchResult> results) {
+        List<Integer> ids = new ArrayList<>();
+        results.forEach(result -> ids.add(result.getId()));
+        return ids;
+    }
+
+    private static List<Integer> sorted(final List<Integer> ids) {
+        Collections.sort(ids);
+        return ids;
+    }
+}
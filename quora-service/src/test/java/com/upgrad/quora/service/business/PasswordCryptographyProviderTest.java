@@ -0,0 +1,163 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.UnexpectedException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+//Checks the encoded hash format, both hashers, the legacy hex hashes, the rehash decision and the bounded hashing pool.
+public class PasswordCryptographyProviderTest {
+
+    private PasswordCryptographyProvider provider;
+
+    @After
+    public void tearDown() {
+        if (provider != null)
+            provider.shutdown();
+    }
+
+    @Test
+    public void encodedPasswordRoundTrips() {
+        Map<String, Integer> parameters = new LinkedHashMap<>();
+        parameters.put("i", 1000);
+        parameters.put("l", 512);
+        byte[] hash = {1, 2, 3, 4, 5};
+
+        String formatted = new EncodedPassword("pbkdf2-sha512", parameters, hash).format();
+        EncodedPassword parsed = EncodedPassword.parse(formatted);
+
+        assertEquals("$pbkdf2-sha512$i=1000,l=512$AQIDBAU", formatted);
+        assertEquals("pbkdf2-sha512", parsed.getAlgorithm());
+        assertEquals(parameters, parsed.getParameters());
+        assertArrayEquals(hash, parsed.getHash());
+    }
+
+    @Test
+    public void legacyHexHashIsNotEncoded() {
+        assertNull(EncodedPassword.parse("0A1B2C3D4E5F6071"));
+        assertNull(EncodedPassword.parse(null));
+    }
+
+    @Test
+    public void malformedEncodedHashIsRejected() {
+        for (String malformed : Arrays.asList("$pbkdf2-sha512$AQID", "$pbkdf2-sha512$i1000$AQID", "$pbkdf2-sha512$i=x$AQID")) {
+            try {
+                EncodedPassword.parse(malformed);
+                fail(malformed + " was parsed");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void pbkdf2HashMatchesOnlyItsPassword() {
+        String[] encrypted = provider(Pbkdf2PasswordHasher.ALGORITHM).encrypt("secret");
+
+        assertTrue(encrypted[1].startsWith("$pbkdf2-sha512$i=1000,l=512$"));
+        assertTrue(provider.matches("secret", encrypted[0], encrypted[1]));
+        assertFalse(provider.matches("Secret", encrypted[0], encrypted[1]));
+        assertFalse(provider.needsRehash(encrypted[1]));
+    }
+
+    @Test
+    public void argon2HashMatchesOnlyItsPassword() {
+        String[] encrypted = provider(Argon2PasswordHasher.ALGORITHM).encrypt("secret");
+
+        assertTrue(encrypted[1].startsWith("$argon2id$m=64,t=1,p=1,l=256$"));
+        assertTrue(provider.matches("secret", encrypted[0], encrypted[1]));
+        assertFalse(provider.matches("Secret", encrypted[0], encrypted[1]));
+        assertFalse(provider.needsRehash(encrypted[1]));
+    }
+
+    @Test
+    public void hashesOfOtherSettingsStillMatchButNeedARehash() {
+        String[] pbkdf2 = provider(Pbkdf2PasswordHasher.ALGORITHM).encrypt("secret");
+        provider.shutdown();
+        provider(Argon2PasswordHasher.ALGORITHM);
+
+        assertTrue(provider.matches("secret", pbkdf2[0], pbkdf2[1]));
+        assertTrue(provider.needsRehash(pbkdf2[1]));
+    }
+
+    @Test
+    public void hashOfOtherCostParametersNeedsARehash() {
+        String[] encrypted = provider(Pbkdf2PasswordHasher.ALGORITHM).encrypt("secret");
+
+        assertTrue(provider.needsRehash(encrypted[1].replace("i=1000", "i=2000")));
+        assertTrue(provider.needsRehash("$pbkdf2-sha512$broken"));
+    }
+
+    @Test
+    public void legacyHexHashMatchesAndNeedsARehash() {
+        byte[] salt = new byte[32];
+        String salt64 = Base64.getEncoder().encodeToString(salt);
+        StringBuilder legacy = new StringBuilder();
+        for (byte b : Pbkdf2PasswordHasher.derive("secret".toCharArray(), salt, 1000, 64)) {
+            legacy.append(String.format("%02X", b));
+        }
+
+        provider(Pbkdf2PasswordHasher.ALGORITHM);
+
+        assertTrue(provider.matches("secret", salt64, legacy.toString()));
+        assertFalse(provider.matches("other", salt64, legacy.toString()));
+        assertTrue(provider.needsRehash(legacy.toString()));
+    }
+
+    @Test
+    public void fullHashingPoolRefusesTheRequest() throws InterruptedException {
+        provider(Pbkdf2PasswordHasher.ALGORITHM);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        //Takes the only thread, then the only queue slot
+        provider.encryptInBackground("secret", encrypted -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        provider.encryptInBackground("secret", encrypted -> { });
+
+        try {
+            provider.encrypt("secret");
+            fail("The hashing pool accepted more work than its queue holds");
+        } catch (UnexpectedException e) {
+            assertEquals("GEN-002", e.getErrorCode().getCode());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private PasswordCryptographyProvider provider(final String algorithm) {
+        provider = new PasswordCryptographyProvider();
+        ReflectionTestUtils.setField(provider, "passwordHashers",
+                Arrays.asList(new Pbkdf2PasswordHasher(1000, 512), new Argon2PasswordHasher(64, 1, 1, 256)));
+        ReflectionTestUtils.setField(provider, "algorithm", algorithm);
+        ReflectionTestUtils.setField(provider, "threads", 1);
+        ReflectionTestUtils.setField(provider, "queueCapacity", 1);
+        ReflectionTestUtils.setField(provider, "waitTimeoutMillis", 5000L);
+        provider.init();
+        return provider;
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
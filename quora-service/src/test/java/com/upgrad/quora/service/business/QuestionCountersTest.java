@@ -0,0 +1,116 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//Checks the write-behind view counters: views flushed once in id ordered batches, increments made during a flush left to
+//the next one, and failed batches kept for a retry.
+public class QuestionCountersTest {
+
+    private final QuestionDao questionDao = mock(QuestionDao.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private final QuestionCounters counters = new QuestionCounters();
+
+    //"id:views" of each question written, one list per batch
+    private final List<List<String>> batches = new ArrayList<>();
+
+    private final Answer<Void> record = invocation -> {
+        int[] questionIds = invocation.getArgument(0);
+        long[] views = invocation.getArgument(1);
+        int count = invocation.getArgument(2);
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(questionIds[i] + ":" + views[i]);
+        }
+        batches.add(batch);
+        return null;
+    };
+
+    @Before
+    public void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        doAnswer(record).when(questionDao).addViews(any(), any(), anyInt());
+        ReflectionTestUtils.setField(counters, "questionDao", questionDao);
+        ReflectionTestUtils.setField(counters, "transactionManager", transactionManager);
+        //Flushed by the tests only
+        ReflectionTestUtils.setField(counters, "flushInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(counters, "maxPending", 10000L);
+        ReflectionTestUtils.setField(counters, "batchSize", 2);
+        counters.init();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        counters.close();
+    }
+
+    @Test
+    public void viewsAreFlushedOnceInIdOrder() {
+        counters.questionViewed(7);
+        counters.questionViewed(3);
+        counters.questionViewed(7);
+        counters.questionViewed(5);
+
+        counters.flush();
+        counters.flush();
+
+        assertEquals(Arrays.asList(Arrays.asList("3:1", "5:1"), Collections.singletonList("7:2")), batches);
+    }
+
+    @Test
+    public void incrementsMadeDuringAFlushGoToTheNextOne() {
+        counters.questionViewed(1);
+        doAnswer(invocation -> {
+            //The flush swapped the generation before writing, these land in the new one
+            counters.questionViewed(1);
+            counters.questionViewed(2);
+            return record.answer(invocation);
+        }).doAnswer(record).when(questionDao).addViews(any(), any(), anyInt());
+
+        counters.flush();
+        counters.flush();
+
+        assertEquals(Arrays.asList(Collections.singletonList("1:1"), Arrays.asList("1:1", "2:1")), batches);
+    }
+
+    @Test
+    public void failedBatchesAreKeptForTheNextFlush() {
+        counters.questionViewed(1);
+        counters.questionViewed(1);
+        counters.questionViewed(2);
+        counters.questionViewed(4);
+        doThrow(new IllegalStateException("database down")).doAnswer(record)
+                .when(questionDao).addViews(any(), any(), anyInt());
+
+        counters.flush();
+        assertEquals(Collections.singletonList(Collections.singletonList("4:1")), batches);
+
+        counters.questionViewed(1);
+        counters.flush();
+
+        //The failed batch comes back with the view made since
+        assertEquals(Arrays.asList(Collections.singletonList("4:1"), Arrays.asList("1:3", "2:1")), batches);
+    }
+}
@@ -0,0 +1,63 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.entity.UserEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+//Checks that the region meters count from the caches themselves, without turning on Hibernate statistics.
+public class SecondLevelCacheTest {
+
+    private final SecondLevelCache secondLevelCache = new SecondLevelCache();
+
+    private CacheManager cacheManager;
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(secondLevelCache, "enabled", true);
+        ReflectionTestUtils.setField(secondLevelCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(secondLevelCache, "expireAfterWrite", Duration.ofMinutes(10));
+        secondLevelCache.init();
+        Map<String, Object> properties = new HashMap<>();
+        secondLevelCache.customize(properties);
+        cacheManager = (CacheManager) properties.get(ConfigSettings.CACHE_MANAGER);
+        assertFalse(properties.containsKey(AvailableSettings.GENERATE_STATISTICS));
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    public void hitsAndMissesAreCountedPerRegion() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        secondLevelCache.bindTo(registry);
+        Cache<Object, Object> users = cacheManager.getCache(UserEntity.CACHE_REGION);
+
+        users.get(1);
+        users.put(1, "user");
+        users.get(1);
+        users.get(1);
+
+        assertEquals(2.0, registry.get("cache.gets").tags("cache", UserEntity.CACHE_REGION, "result", "hit")
+                .functionCounter().count(), 0);
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", UserEntity.CACHE_REGION, "result", "miss")
+                .functionCounter().count(), 0);
+        assertEquals(0.0, registry.get("cache.gets").tags("cache", UserEntity.NATURAL_ID_CACHE_REGION, "result", "hit")
+                .functionCounter().count(), 0);
+    }
+}
@@ -0,0 +1,125 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import com.upgrad.quora.service.TestData;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+//Checks on PostgreSQL that sign ups and sign ins hash the password with no connection of the pool held.
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserDao.class, UserBusinessService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserBusinessServiceTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @MockBean
+    private PasswordCryptographyProvider cryptographyProvider;
+
+    @MockBean
+    private AuthTokenCache authTokenCache;
+
+    @MockBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockBean
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private UserBusinessService userBusinessService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    //connections of the pool in use each time a password was hashed
+    private final List<Integer> activeConnections = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        when(cryptographyProvider.encrypt("password")).thenAnswer(invocation -> {
+            activeConnections.add(activeConnections());
+            return new String[]{"salt", "hash"};
+        });
+        when(cryptographyProvider.matches("password", "salt", "hash")).thenAnswer(invocation -> {
+            activeConnections.add(activeConnections());
+            return true;
+        });
+        when(jwtTokenProvider.generateToken(any(), any(), any(), any())).thenReturn("token");
+    }
+
+    @After
+    public void tearDown() {
+        PostgresTestDatabase.truncate(dataSource);
+    }
+
+    @Test
+    public void passwordsAreHashedWithNoConnectionHeld() throws Exception {
+        UserEntity user = userBusinessService.signUp(TestData.newUser());
+        UserAuthEntity userAuth = userBusinessService.signin(user.getUserName(), "password");
+
+        assertEquals(Arrays.asList(0, 0), activeConnections);
+        assertEquals(user.getUuid(), userAuth.getUserid().getUuid());
+        assertEquals("token", new JdbcTemplate(dataSource).queryForObject("select a.access_token from user_auth a " +
+                "join users u on u.id = a.user_id where u.uuid = ?", String.class, user.getUuid()));
+    }
+
+    @Test
+    public void wrongPasswordsAreRefused() throws Exception {
+        UserEntity user = userBusinessService.signUp(TestData.newUser());
+
+        try {
+            userBusinessService.signin(user.getUserName(), "wrong");
+            fail("A wrong password was accepted");
+        } catch (AuthenticationFailedException e) {
+            assertEquals("ATH-002", e.getCode());
+        }
+        assertEquals(0L, (long) new JdbcTemplate(dataSource).queryForObject("select count(*) from user_auth", Long.class));
+    }
+
+    private int activeConnections() throws SQLException {
+        return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections();
+    }
+}
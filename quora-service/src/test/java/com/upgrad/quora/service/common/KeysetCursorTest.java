@@ -0,0 +1,62 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidCursorException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+//Checks that cursor tokens come back as the position they were made from, and that altered tokens answer PAG-001.
+public class KeysetCursorTest {
+
+    @Test
+    public void tokenDecodesToTheSameInstantAndId() throws InvalidCursorException {
+        ZonedDateTime date = ZonedDateTime.of(2020, 2, 29, 23, 59, 58, 123456000, ZoneOffset.ofHours(-7));
+
+        KeysetCursor decoded = KeysetCursor.decode(new KeysetCursor(date, 42).encode());
+
+        assertEquals(date.toInstant(), decoded.getDate().toInstant());
+        assertEquals(ZoneId.systemDefault(), decoded.getDate().getZone());
+        assertEquals(42, decoded.getId());
+    }
+
+    @Test
+    public void tokenIsUrlSafe() {
+        String token = new KeysetCursor(ZonedDateTime.now(), Integer.MAX_VALUE).encode();
+
+        assertFalse(token.contains("+") || token.contains("/") || token.contains("="));
+    }
+
+    @Test
+    public void missingTokenIsTheFirstPage() throws InvalidCursorException {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(""));
+    }
+
+    @Test
+    public void alteredTokensAreRejected() {
+        for (String token : Arrays.asList("not a cursor", "%%%", "AAAA+/", encode("2020-02-29T10:00:00Z"),
+                encode("2020-02-30T10:00:00Z|1"), encode("yesterday|1"), encode("2020-02-29T10:00:00Z|x"),
+                encode("2020-02-29T10:00:00Z|99999999999"), encode("|"))) {
+            try {
+                KeysetCursor.decode(token);
+                fail(token + " was decoded");
+            } catch (InvalidCursorException e) {
+                assertEquals("PAG-001", e.getCode());
+            }
+        }
+    }
+
+    static String encode(final String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
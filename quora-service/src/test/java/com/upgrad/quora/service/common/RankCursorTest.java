@@ -0,0 +1,44 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidCursorException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+//Checks that search cursor tokens keep the exact rank, and that altered tokens answer PAG-001.
+public class RankCursorTest {
+
+    @Test
+    public void tokenDecodesToTheExactRankAndId() throws InvalidCursorException {
+        for (float rank : new float[]{0f, 0.0607927f, 1e-30f, Float.MIN_VALUE, Float.MAX_VALUE, 0.1f + 0.2f}) {
+            RankCursor decoded = RankCursor.decode(new RankCursor(rank, 7).encode());
+
+            assertEquals(Float.floatToIntBits(rank), Float.floatToIntBits(decoded.getRank()));
+            assertEquals(7, decoded.getId());
+        }
+    }
+
+    @Test
+    public void missingTokenIsTheFirstPage() throws InvalidCursorException {
+        assertNull(RankCursor.decode(null));
+        assertNull(RankCursor.decode(""));
+    }
+
+    @Test
+    public void alteredTokensAreRejected() {
+        for (String token : Arrays.asList("not a cursor", "%%%", KeysetCursorTest.encode("0.5"),
+                KeysetCursorTest.encode("NaN|1"), KeysetCursorTest.encode("Infinity|1"), KeysetCursorTest.encode("-Infinity|1"),
+                KeysetCursorTest.encode("0.5|one"), KeysetCursorTest.encode("high|1"), KeysetCursorTest.encode("|"))) {
+            try {
+                RankCursor.decode(token);
+                fail(token + " was decoded");
+            } catch (InvalidCursorException e) {
+                assertEquals("PAG-001", e.getCode());
+            }
+        }
+    }
+}
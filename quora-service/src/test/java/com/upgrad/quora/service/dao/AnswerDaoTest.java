@@ -0,0 +1,97 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.TestData;
+import com.upgrad.quora.service.common.AnswerDetails;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+//Checks with Hibernate statistics that listing the answers of a question costs the same number of selects whatever the number of answers.
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"})
+@Import({AnswerDao.class, QuestionDao.class, SearchIndexSync.class})
+public class AnswerDaoTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void answersOfAQuestionAreReadWithAConstantNumberOfSelects() {
+        UserEntity user = createUser();
+        QuestionEntity fewAnswers = createQuestion(user, 1);
+        QuestionEntity manyAnswers = createQuestion(user, 50);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertEquals(1, listAnswers(fewAnswers.getUuid()).size());
+        long selectsForOneAnswer = statistics.getPrepareStatementCount();
+
+        testEntityManager.clear();
+        assertEquals(50, listAnswers(manyAnswers.getUuid()).size());
+        long selectsForFiftyAnswers = statistics.getPrepareStatementCount();
+
+        //Without the cache, one select to resolve the question uuid to its id, one for the question and one for all its answers,
+        //the answers and their users are not loaded as entities
+        assertEquals(3, selectsForOneAnswer);
+        assertEquals(selectsForOneAnswer, selectsForFiftyAnswers);
+        assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    private List<AnswerDetails> listAnswers(String questionUuid) {
+        statistics.clear();
+        QuestionEntity question = questionDao.getQuestionById(questionUuid);
+        return answerDao.getAllAnswers(question.getId());
+    }
+
+    private UserEntity createUser() {
+        return testEntityManager.persist(TestData.newUser());
+    }
+
+    private QuestionEntity createQuestion(UserEntity user, int answers) {
+        QuestionEntity question = testEntityManager.persist(TestData.newQuestion(user, "database_question_content"));
+        for (int i = 0; i < answers; i++) {
+            testEntityManager.persist(TestData.newAnswer(question, user, "database_answer_" + i));
+        }
+        return question;
+    }
+}
@@ -0,0 +1,186 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import com.upgrad.quora.service.business.SecondLevelCache;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import javax.sql.DataSource;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+//Checks on PostgreSQL with the second-level cache that the bulk inserts write every row across the batch boundaries,
+//detach only their own batches, keep the new rows out of the cache and give the session its cache mode back.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SecondLevelCache.class, UserDao.class, QuestionDao.class, SearchIndexSync.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BatchInserterTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private UserEntity user;
+
+    @Before
+    public void setUp() {
+        user = new UserEntity();
+        user.setUuid(UUID.randomUUID().toString());
+        user.setFirstName("first");
+        user.setLastName("last");
+        user.setUserName("user-" + user.getUuid().substring(0, 8));
+        user.setEmail(user.getUuid() + "@quora.io");
+        user.setPassword("password");
+        user.setSalt("salt-0");
+        user.setCountry("India");
+        user.setRole("nonadmin");
+        new TransactionTemplate(transactionManager).execute(status -> userDao.createUser(user));
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @After
+    public void tearDown() {
+        entityManagerFactory.getCache().evictAll();
+        PostgresTestDatabase.truncate(dataSource);
+    }
+
+    @Test
+    public void batchesAreDetachedAndEntitiesLoadedBeforeStayManaged() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        Session session = entityManager.unwrap(Session.class);
+        try {
+            entityManager.getTransaction().begin();
+            UserEntity author = entityManager.find(UserEntity.class, user.getId());
+            List<QuestionEntity> questions = questions(author, 7);
+
+            BatchInserter.persistAll(entityManager, questions, 3);
+
+            assertTrue(entityManager.contains(author));
+            questions.forEach(question -> assertFalse(entityManager.contains(question)));
+            assertEquals(CacheMode.GET, session.getCacheMode());
+            entityManager.getTransaction().commit();
+
+            assertEquals(CacheMode.NORMAL, session.getCacheMode());
+            Set<Integer> ids = new HashSet<>();
+            for (QuestionEntity question : questions) {
+                ids.add(question.getId());
+                assertFalse(entityManagerFactory.getCache().contains(QuestionEntity.class, question.getId()));
+            }
+            assertEquals(7, ids.size());
+        } finally {
+            entityManager.close();
+        }
+        assertEquals(7, count("question"));
+    }
+
+    @Test
+    public void cacheModeIsGivenBackWhenABatchFails() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        Session session = entityManager.unwrap(Session.class);
+        try {
+            entityManager.getTransaction().begin();
+            List<QuestionEntity> questions = questions(entityManager.find(UserEntity.class, user.getId()), 4);
+            questions.get(3).setUuid(questions.get(0).getUuid());
+            try {
+                BatchInserter.persistAll(entityManager, questions, 2);
+                fail("The duplicate uuid was inserted");
+            } catch (PersistenceException e) {
+                // expected
+            }
+            entityManager.getTransaction().rollback();
+
+            assertEquals(CacheMode.NORMAL, session.getCacheMode());
+        } finally {
+            entityManager.close();
+        }
+        assertEquals(0, count("question"));
+    }
+
+    @Test
+    public void everyQuestionOfEveryBatchIsAddedToTheFeed() {
+        List<QuestionEntity> questions = questions(user, 7);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            questionDao.createQuestions(questions, 3);
+            return null;
+        });
+
+        assertEquals(7, count("question"));
+        assertEquals(7, count("question_feed"));
+    }
+
+    private int count(final String table) {
+        return new JdbcTemplate(dataSource).queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+    private static List<QuestionEntity> questions(final UserEntity author, final int count) {
+        ZonedDateTime now = ZonedDateTime.now();
+        List<QuestionEntity> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            QuestionEntity question = new QuestionEntity();
+            question.setUuid(UUID.randomUUID().toString());
+            question.setContent("question " + i + "?");
+            question.setDate(now);
+            question.setUserId(author);
+            questions.add(question);
+        }
+        return questions;
+    }
+}
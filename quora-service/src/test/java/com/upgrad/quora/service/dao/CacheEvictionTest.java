@@ -0,0 +1,173 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import com.upgrad.quora.service.TestData;
+import com.upgrad.quora.service.business.SecondLevelCache;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//Checks on PostgreSQL with the second-level cache that the native statements drop only the rows they wrote, by id and by uuid,
+//drop them again once committed, and make the cached queries over their tables run again.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SecondLevelCache.class, UserDao.class, AdminDao.class, SearchIndexSync.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CacheEvictionTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private AdminDao adminDao;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @After
+    public void tearDown() {
+        entityManagerFactory.getCache().evictAll();
+        PostgresTestDatabase.truncate(dataSource);
+    }
+
+    @Test
+    public void nativeUpdateDropsOnlyItsRow() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        UserEntity updated = createUser();
+        UserEntity other = createUser();
+        transaction.execute(status -> userDao.getUserById(updated.getUuid()));
+        transaction.execute(status -> userDao.getUserById(other.getUuid()));
+        assertTrue(isCached(updated));
+        assertEquals(2, naturalIdEntries());
+
+        assertTrue(transaction.execute(status -> userDao.updatePassword(updated.getUuid(), "password", "salt-1", "hash-1")));
+
+        assertFalse(isCached(updated));
+        assertTrue(isCached(other));
+        assertEquals(1, naturalIdEntries());
+        assertEquals("hash-1", transaction.execute(status -> userDao.getUserById(updated.getUuid())).getPassword());
+    }
+
+    @Test
+    public void rowPutBackBeforeTheCommitIsDroppedAfterIt() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        UserEntity user = createUser();
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> update = executor.submit(() -> transaction.execute(status -> {
+                boolean result = userDao.updatePassword(user.getUuid(), "password", "salt-1", "hash-1");
+                updated.countDown();
+                await(commit);
+                return result;
+            }));
+            assertTrue(updated.await(10, TimeUnit.SECONDS));
+
+            //A concurrent read still sees the old row and caches it again
+            assertEquals("password", transaction.execute(status -> userDao.getUserById(user.getUuid())).getPassword());
+            assertTrue(isCached(user));
+            commit.countDown();
+            assertTrue(update.get(10, TimeUnit.SECONDS));
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+
+        assertFalse(isCached(user));
+        assertEquals("hash-1", transaction.execute(status -> userDao.getUserById(user.getUuid())).getPassword());
+    }
+
+    @Test
+    public void cachedQueryRunsAgainAfterANativeDelete() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        UserEntity user = createUser();
+        assertEquals(user.getId(), transaction.execute(status -> userDao.searchUserByUsername(user.getUserName())).getId());
+
+        assertTrue(transaction.execute(status -> adminDao.deleteUser(user.getUuid())));
+
+        assertNull(transaction.execute(status -> userDao.searchUserByUsername(user.getUserName())));
+        assertFalse(isCached(user));
+    }
+
+    private boolean isCached(final UserEntity user) {
+        return entityManagerFactory.getCache().contains(UserEntity.class, user.getId());
+    }
+
+    private int naturalIdEntries() {
+        CacheManager cacheManager = (CacheManager) ReflectionTestUtils.getField(secondLevelCache, "cacheManager");
+        int entries = 0;
+        for (Cache.Entry<Object, Object> entry : cacheManager.getCache(UserEntity.NATURAL_ID_CACHE_REGION)) {
+            entries++;
+        }
+        return entries;
+    }
+
+    private UserEntity createUser() {
+        UserEntity user = TestData.newUser();
+        new TransactionTemplate(transactionManager).execute(status -> userDao.createUser(user));
+        //Entities written through Hibernate are cached on commit, start each test from the database
+        entityManagerFactory.getCache().evictAll();
+        return user;
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//Checks on PostgreSQL that no statement of the application is planned with a sequential scan: every named query read from
+//the annotations of the entities, the question_feed statements, and the lookups of the cascades the deletes trigger. Each is
+//prepared on the migrated schema and explained with sample values of the parameter types the planner inferred.
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class NamedQueryPlanTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    private static final Pattern NAMED_PARAMETER = Pattern.compile("(?<![:\\w]):(\\w+)");
+
+    //Read every row on purpose, the ones streamed to the exports and to the search index
+    private static final List<String> FULL_READS = Arrays.asList("streamAnswersForSearch", "streamQuestionsWrittenSince");
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void noStatementIsPlannedWithASequentialScan() throws SQLException {
+        Map<String, String> statements = new LinkedHashMap<>();
+        statements.putAll(namedQueries());
+        statements.put("QuestionFeedRows.LOCK", positional(QuestionFeedRows.LOCK));
+        statements.put("QuestionFeedRows.ANSWERS_DELETED", positional(QuestionFeedRows.ANSWERS_DELETED));
+        statements.put("QuestionFeedRows.VIEWS_ADDED", positional(QuestionFeedRows.VIEWS_ADDED));
+        statements.putAll(cascades());
+
+        List<String> failures = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                //The planner only picks a sequential scan when no index can serve the statement
+                statement.execute("set local enable_seqscan = off");
+                for (Map.Entry<String, String> entry : statements.entrySet()) {
+                    if (FULL_READS.contains(entry.getKey()))
+                        continue;
+                    for (String line : explain(connection, entry.getValue())) {
+                        if (line.contains("Seq Scan"))
+                            failures.add(entry.getKey() + ": " + line.trim());
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+
+        assertEquals(Collections.emptyList(), failures);
+    }
+
+    @Test
+    public void namedQueriesAreReadFromTheEntities() {
+        Map<String, String> namedQueries = namedQueries();
+
+        assertTrue(namedQueries.containsKey("deleteUserById"));
+        assertTrue(namedQueries.containsKey("deleteAnswerIfAllowed"));
+        assertTrue(namedQueries.containsKey("getAllQuestions"));
+        assertTrue(namedQueries.keySet().containsAll(FULL_READS));
+    }
+
+    /**
+     * SQL of the named queries of the entities, by name, with $n parameters. JPQL queries are translated by Hibernate
+     */
+    private Map<String, String> namedQueries() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Map<String, String> queries = new LinkedHashMap<>();
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> type = entity.getJavaType();
+            List<NamedQuery> named = new ArrayList<>();
+            if (type.isAnnotationPresent(NamedQueries.class))
+                Collections.addAll(named, type.getAnnotation(NamedQueries.class).value());
+            if (type.isAnnotationPresent(NamedQuery.class))
+                named.add(type.getAnnotation(NamedQuery.class));
+            for (NamedQuery query : named) {
+                String[] sql = sessionFactory.getQueryPlanCache()
+                        .getHQLQueryPlan(query.query(), false, Collections.emptyMap()).getSqlStrings();
+                queries.put(query.name(), positional(sql[0]));
+            }
+            List<NamedNativeQuery> nativeQueries = new ArrayList<>();
+            if (type.isAnnotationPresent(NamedNativeQueries.class))
+                Collections.addAll(nativeQueries, type.getAnnotation(NamedNativeQueries.class).value());
+            if (type.isAnnotationPresent(NamedNativeQuery.class))
+                nativeQueries.add(type.getAnnotation(NamedNativeQuery.class));
+            for (NamedNativeQuery query : nativeQueries) {
+                queries.put(query.name(), numbered(query.query()));
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Lookups of the rows each ON DELETE CASCADE foreign key deletes along with its parent
+     */
+    private Map<String, String> cascades() {
+        Map<String, String> lookups = new LinkedHashMap<>();
+        String sql = "select cast(c.conrelid as regclass), a.attname from pg_constraint c " +
+                "join pg_attribute a on a.attrelid = c.conrelid and a.attnum = c.conkey[1] " +
+                "where c.contype = 'f' and c.confdeltype = 'c'";
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                lookups.put(rows.getString(1) + "." + rows.getString(2) + " cascade",
+                        "select 1 from " + rows.getString(1) + " where " + rows.getString(2) + " = $1");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        assertTrue(lookups.containsKey("answer.user_id cascade"));
+        return lookups;
+    }
+
+    /**
+     * Prepares the statement, then explains it with a sample value of each parameter type PostgreSQL inferred
+     */
+    private static List<String> explain(final Connection connection, final String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("prepare lookup as " + sql);
+            List<String> values = new ArrayList<>();
+            try (ResultSet types = statement.executeQuery("select unnest(cast(parameter_types as text[])) " +
+                    "from pg_prepared_statements where name = 'lookup'")) {
+                while (types.next()) {
+                    values.add(sample(types.getString(1)));
+                }
+            }
+            String execute = values.isEmpty() ? "lookup" : "lookup(" + String.join(", ", values) + ")";
+            try (ResultSet lines = statement.executeQuery("explain execute " + execute)) {
+                while (lines.next()) {
+                    plan.add(lines.getString(1));
+                }
+            }
+            statement.execute("deallocate lookup");
+        }
+        return plan;
+    }
+
+    private static String sample(final String type) {
+        switch (type) {
+            case "integer":
+            case "bigint":
+            case "real":
+            case "double precision":
+                return "0";
+            case "text":
+            case "character varying":
+                return "'check'";
+            case "timestamp without time zone":
+            case "timestamp with time zone":
+                return "now()";
+            case "boolean":
+                return "false";
+            case "integer[]":
+            case "bigint[]":
+                return "'{0,1}'";
+            default:
+                throw new IllegalArgumentException("No sample value for parameters of type " + type);
+        }
+    }
+
+    /**
+     * Numbers the :name parameters of a native query, a name used twice keeps its number
+     */
+    private static String numbered(final String sql) {
+        Map<String, Integer> numbers = new LinkedHashMap<>();
+        Matcher matcher = NAMED_PARAMETER.matcher(sql);
+        StringBuffer numberedSql = new StringBuffer();
+        while (matcher.find()) {
+            Integer number = numbers.computeIfAbsent(matcher.group(1), name -> numbers.size() + 1);
+            matcher.appendReplacement(numberedSql, "\\$" + number);
+        }
+        matcher.appendTail(numberedSql);
+        return numberedSql.toString();
+    }
+
+    /**
+     * Numbers the ? parameters of a JDBC statement
+     */
+    private static String positional(final String sql) {
+        StringBuilder numberedSql = new StringBuilder();
+        int number = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?')
+                numberedSql.append('$').append(++number);
+            else
+                numberedSql.append(c);
+        }
+        return numberedSql.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import com.upgrad.quora.service.TestData;
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.PersistenceException;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//Checks the keyset pagination of the question listings on PostgreSQL: walking the pages through encoded cursors returns
+//every question once, in order, including questions sharing the same date across a page boundary. Also checks that a
+//failed create is thrown rather than returned as null.
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({QuestionDao.class, SearchIndexSync.class})
+public class QuestionDaoTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Test
+    public void pagesOfAllQuestionsReturnEachQuestionOnceInOrder() throws Exception {
+        UserEntity user = createUser();
+        UserEntity otherUser = createUser();
+        List<QuestionEntity> questions = createQuestions(user, otherUser);
+
+        List<Integer> walked = new ArrayList<>();
+        KeysetCursor cursor = null;
+        do {
+            List<QuestionEntity> page = questionDao.getQuestionPage(cursor, 4);
+            page.forEach(question -> walked.add(question.getId()));
+            cursor = page.size() < 4 ? null : next(page);
+        } while (cursor != null);
+
+        assertEquals(ids(questions), walked);
+    }
+
+    @Test
+    public void pagesOfAUserReturnOnlyItsQuestionsOnceInOrder() throws Exception {
+        UserEntity user = createUser();
+        UserEntity otherUser = createUser();
+        List<QuestionEntity> questions = createQuestions(user, otherUser);
+        questions.removeIf(question -> question.getUserId() != user);
+
+        List<Integer> walked = new ArrayList<>();
+        KeysetCursor cursor = null;
+        do {
+            List<QuestionEntity> page = questionDao.getQuestionPageByUser(user, cursor, 3);
+            page.forEach(question -> walked.add(question.getId()));
+            cursor = page.size() < 3 ? null : next(page);
+        } while (cursor != null);
+
+        assertEquals(ids(questions), walked);
+        assertTrue(walked.size() > 3);
+    }
+
+    @Test(expected = PersistenceException.class)
+    public void failedCreateIsThrown() {
+        UserEntity user = createUser();
+        QuestionEntity question = TestData.newQuestion(user, "first");
+        questionDao.createQuestion(question);
+
+        QuestionEntity sameUuid = TestData.newQuestion(user, "second");
+        sameUuid.setUuid(question.getUuid());
+        questionDao.createQuestion(sameUuid);
+    }
+
+    /**
+     * The cursor of the last question of the page, through its token like a client would send it back
+     */
+    private KeysetCursor next(final List<QuestionEntity> page) throws Exception {
+        QuestionEntity last = page.get(page.size() - 1);
+        //Later pages are read as from a new request, with the dates stored by PostgreSQL
+        testEntityManager.clear();
+        return KeysetCursor.decode(new KeysetCursor(last.getDate(), last.getId()).encode());
+    }
+
+    /**
+     * 17 questions, most of them sharing a handful of dates, alternating between the two users
+     * @return List<QuestionEntity> : the questions newest first
+     */
+    private List<QuestionEntity> createQuestions(final UserEntity user, final UserEntity otherUser) {
+        ZonedDateTime now = ZonedDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        List<QuestionEntity> questions = new ArrayList<>();
+        for (int i = 0; i < 17; i++) {
+            QuestionEntity question = TestData.newQuestion(i % 2 == 0 ? user : otherUser, "question " + i);
+            question.setDate(now.minusMinutes(i / 5));
+            questionDao.createQuestion(question);
+            questions.add(question);
+        }
+        testEntityManager.flush();
+        questions.sort(Comparator.comparing(QuestionEntity::getDate).thenComparing(QuestionEntity::getId).reversed());
+        return questions;
+    }
+
+    private static List<Integer> ids(final List<QuestionEntity> questions) {
+        List<Integer> ids = new ArrayList<>();
+        questions.forEach(question -> ids.add(question.getId()));
+        return ids;
+    }
+
+    private UserEntity createUser() {
+        return testEntityManager.persist(TestData.newUser());
+    }
+}
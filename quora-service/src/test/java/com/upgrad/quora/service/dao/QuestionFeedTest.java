@@ -0,0 +1,251 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import com.upgrad.quora.service.TestData;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//Checks on PostgreSQL that the question_feed rows follow the questions and answers created, the answers deleted and the
+//users deleted, that views are added apart from them, and that a delete waits for the lock of the row and reads the latest
+//answer committed by its holder.
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserDao.class, QuestionDao.class, AnswerDao.class, AdminDao.class, SearchIndexSync.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class QuestionFeedTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private AdminDao adminDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transaction;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @After
+    public void tearDown() {
+        PostgresTestDatabase.truncate(dataSource);
+    }
+
+    @Test
+    public void answersAreCountedInTheTransactionsWhichCreateThem() {
+        UserEntity user = createUser();
+        QuestionEntity question = createQuestion(user);
+        assertEquals("0 null true", feed(question));
+
+        createAnswer(question, user, 10);
+        AnswerEntity latest = createAnswer(question, user, 30);
+        createAnswer(question, user, 20);
+        assertEquals("3 " + latest.getUuid() + " true", feed(question));
+
+        List<AnswerEntity> answers = new ArrayList<>();
+        for (int minutes = 40; minutes <= 60; minutes += 10) {
+            answers.add(newAnswer(question, user, minutes));
+        }
+        transaction.execute(status -> {
+            answerDao.createAnswers(answers, 2);
+            return null;
+        });
+        assertEquals("6 " + answers.get(2).getUuid() + " true", feed(question));
+    }
+
+    @Test
+    public void viewsAreAddedWithoutTouchingTheAnswers() {
+        UserEntity user = createUser();
+        QuestionEntity question = createQuestion(user);
+        AnswerEntity answer = createAnswer(question, user, 10);
+
+        transaction.execute(status -> {
+            questionDao.addViews(new int[]{question.getId(), question.getId() + 1000}, new long[]{3, 5}, 2);
+            return null;
+        });
+        transaction.execute(status -> {
+            questionDao.addViews(new int[]{question.getId()}, new long[]{2}, 1);
+            return null;
+        });
+
+        assertEquals("1 " + answer.getUuid() + " true", feed(question));
+        assertEquals(5L, (long) jdbcTemplate.queryForObject("select view_count from question_feed where question_id = ?", Long.class, question.getId()));
+    }
+
+    @Test
+    public void deletedAnswersAreCountedOffTheirQuestion() {
+        UserEntity user = createUser();
+        UserEntity otherUser = createUser();
+        QuestionEntity question = createQuestion(user);
+        AnswerEntity first = createAnswer(question, user, 10);
+        AnswerEntity latest = createAnswer(question, otherUser, 20);
+        assertEquals("2 " + latest.getUuid() + " true", feed(question));
+
+        assertFalse(transaction.execute(status -> answerDao.deleteAnswer(latest.getUuid(), user)));
+        assertEquals("2 " + latest.getUuid() + " true", feed(question));
+
+        assertTrue(transaction.execute(status -> answerDao.deleteAnswer(latest.getUuid(), otherUser)));
+        assertEquals("1 " + first.getUuid() + " true", feed(question));
+
+        assertTrue(transaction.execute(status -> answerDao.deleteAnswer(first.getUuid(), user)));
+        assertEquals("0 null true", feed(question));
+    }
+
+    @Test
+    public void deletedUsersAreCountedOffTheQuestionsTheyAnswered() {
+        UserEntity user = createUser();
+        UserEntity deletedUser = createUser();
+        QuestionEntity question = createQuestion(user);
+        QuestionEntity deletedQuestion = createQuestion(deletedUser);
+        AnswerEntity kept = createAnswer(question, user, 10);
+        createAnswer(question, deletedUser, 20);
+        createAnswer(question, deletedUser, 30);
+        createAnswer(deletedQuestion, user, 40);
+        assertEquals(3, Integer.parseInt(feed(question).split(" ")[0]));
+
+        assertTrue(transaction.execute(status -> adminDao.deleteUser(deletedUser.getUuid())));
+
+        assertEquals("1 " + kept.getUuid() + " true", feed(question));
+        assertNull(feed(deletedQuestion));
+    }
+
+    @Test
+    public void deleteWaitsForTheRowLockAndReadsWhatItsHolderCommitted() throws Exception {
+        UserEntity user = createUser();
+        QuestionEntity question = createQuestion(user);
+        AnswerEntity deleted = createAnswer(question, user, 10);
+        String added = UUID.randomUUID().toString();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Connection holder = dataSource.getConnection()) {
+            holder.setAutoCommit(false);
+            //Answered as countAnswersInFeed does, which holds the lock of the row until the commit
+            Timestamp date = Timestamp.from(ZonedDateTime.now().plusMinutes(20).toInstant());
+            try (PreparedStatement insert = holder.prepareStatement("insert into answer (uuid, ans, date, user_id, question_id) values (?, 'Added', ?, ?, ?)");
+                 PreparedStatement count = holder.prepareStatement("update question_feed set answer_count = answer_count + 1, " +
+                         "last_answer_at = greatest(last_answer_at, ?), last_activity_at = greatest(last_activity_at, ?) where question_id = ?")) {
+                insert.setString(1, added);
+                insert.setTimestamp(2, date);
+                insert.setInt(3, user.getId());
+                insert.setInt(4, question.getId());
+                insert.executeUpdate();
+                count.setTimestamp(1, date);
+                count.setTimestamp(2, date);
+                count.setInt(3, question.getId());
+                count.executeUpdate();
+            }
+            Future<Boolean> delete = executor.submit(() -> transaction.execute(status -> answerDao.deleteAnswer(deleted.getUuid(), user)));
+            PostgresTestDatabase.awaitLockWait(dataSource);
+            holder.commit();
+
+            assertTrue(delete.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("1 " + added + " true", feed(question));
+    }
+
+    /**
+     * Answer count, uuid of the latest answer and whether the last activity is the later of the question and answer dates,
+     * or null without a feed row
+     */
+    private String feed(final QuestionEntity question) {
+        List<String> rows = jdbcTemplate.query("select f.answer_count, " +
+                        "(select a.uuid from answer a where a.question_id = q.id and a.date = f.last_answer_at) as latest, " +
+                        "f.last_activity_at = greatest(q.date, f.last_answer_at) as current " +
+                        "from question_feed f join question q on q.id = f.question_id where q.id = ?",
+                (row, i) -> row.getInt(1) + " " + row.getString(2) + " " + row.getBoolean(3), question.getId());
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private UserEntity createUser() {
+        return transaction.execute(status -> userDao.createUser(TestData.newUser()));
+    }
+
+    private QuestionEntity createQuestion(final UserEntity user) {
+        return transaction.execute(status -> questionDao.createQuestion(TestData.newQuestion(user, "Which violin strings last longest?")));
+    }
+
+    /**
+     * Creates an answer the given number of minutes after now
+     */
+    private AnswerEntity createAnswer(final QuestionEntity question, final UserEntity user, final int minutes) {
+        AnswerEntity answer = newAnswer(question, user, minutes);
+        transaction.execute(status -> {
+            answerDao.createAnswer(answer);
+            return null;
+        });
+        return answer;
+    }
+
+    private static AnswerEntity newAnswer(final QuestionEntity question, final UserEntity user, final int minutes) {
+        AnswerEntity answer = TestData.newAnswer(question, user, "Steel ones");
+        answer.setDate(ZonedDateTime.now().plusMinutes(minutes));
+        return answer;
+    }
+}
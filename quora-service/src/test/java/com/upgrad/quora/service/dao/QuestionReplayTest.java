@@ -0,0 +1,128 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import com.upgrad.quora.service.TestData;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//Checks on PostgreSQL that the questions replayed since a transaction watermark are those inserted or edited by the
+//transactions committed after it was read, and that the transactions since the watermark are counted.
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserDao.class, QuestionDao.class, SearchIndexSync.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class QuestionReplayTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transaction;
+
+    @Before
+    public void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @After
+    public void tearDown() {
+        PostgresTestDatabase.truncate(dataSource);
+    }
+
+    @Test
+    public void questionsWrittenSinceTheWatermarkAreReplayed() {
+        UserEntity user = createUser();
+        createQuestion(user, "Which violin strings last longest?");
+        QuestionEntity edited = createQuestion(user, "Is a violin harder than a viola?");
+        long watermark = transaction.execute(status -> questionDao.getTransactionWatermark());
+        assertTrue(replayed(watermark).isEmpty());
+
+        QuestionEntity created = createQuestion(user, "How do I tune a violin?");
+        transaction.execute(status -> questionDao.editQuestion(questionDao.getQuestionById(edited.getUuid()), "Is a viola harder than a violin?"));
+
+        List<String> replayed = replayed(watermark);
+        Collections.sort(replayed);
+        List<String> expected = new ArrayList<>(Arrays.asList(
+                edited.getId() + " " + edited.getUuid() + " Is a viola harder than a violin? " + user.getId(),
+                created.getId() + " " + created.getUuid() + " How do I tune a violin? " + user.getId()));
+        Collections.sort(expected);
+        assertEquals(expected, replayed);
+        assertTrue(replayed(transaction.execute(status -> questionDao.getTransactionWatermark())).isEmpty());
+
+        long since = transaction.execute(status -> questionDao.countTransactionsSince(watermark));
+        assertTrue(String.valueOf(since), since >= 2 && since < 100);
+    }
+
+    private List<String> replayed(final long watermark) {
+        List<String> rows = new ArrayList<>();
+        transaction.execute(status -> {
+            questionDao.replayQuestionsWrittenSince(watermark, 10, new SearchIndexReplay() {
+                @Override
+                public void questionSaved(final int id, final String uuid, final String content, final int userId) {
+                    rows.add(id + " " + uuid + " " + content + " " + userId);
+                }
+
+                @Override
+                public void answerSaved(final String uuid, final String answer, final int questionId, final int userId) {
+                }
+            });
+            return null;
+        });
+        return rows;
+    }
+
+    private UserEntity createUser() {
+        return transaction.execute(status -> userDao.createUser(TestData.newUser()));
+    }
+
+    private QuestionEntity createQuestion(final UserEntity user, final String content) {
+        return transaction.execute(status -> questionDao.createQuestion(TestData.newQuestion(user, content)));
+    }
+}
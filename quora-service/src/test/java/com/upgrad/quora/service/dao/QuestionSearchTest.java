@@ -0,0 +1,150 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import com.upgrad.quora.service.TestData;
+import com.upgrad.quora.service.common.QuestionSearchResult;
+import com.upgrad.quora.service.common.RankCursor;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//Checks the full-text search of the questions on PostgreSQL: matches through the content or the answers with every word,
+//stemmed, content matches ranked first, vectors kept current on edit, and pages walked through encoded rank cursors.
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({QuestionDao.class, AnswerDao.class, SearchIndexSync.class})
+public class QuestionSearchTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    private UserEntity user;
+
+    @Before
+    public void setUp() {
+        user = testEntityManager.persist(TestData.newUser());
+    }
+
+    @Test
+    public void questionsMatchThroughTheirContentOrTheirAnswers() {
+        QuestionEntity byContent = createQuestion("How do I cook rice without a cooker?");
+        QuestionEntity byAnswer = createQuestion("What should I make for dinner tonight?");
+        createAnswer(byAnswer, "Cooking rice takes twenty minutes");
+        createQuestion("How do I cook pasta?");
+        QuestionEntity unrelated = createQuestion("Which rice grows best in wet fields?");
+        createAnswer(unrelated, "Basmati does");
+        testEntityManager.flush();
+
+        List<QuestionSearchResult> results = questionDao.searchQuestions("cooking rice", null, 10);
+
+        assertEquals(Arrays.asList(byContent.getId(), byAnswer.getId()), ids(results));
+        assertEquals(byContent.getUuid(), results.get(0).getUuid());
+        assertEquals(byContent.getContent(), results.get(0).getContent());
+        assertTrue(results.get(0).getRank() > results.get(1).getRank());
+    }
+
+    @Test
+    public void editedContentIsSearchedForItsNewWords() {
+        QuestionEntity question = createQuestion("Where can I learn painting?");
+        testEntityManager.flush();
+
+        questionDao.editQuestion(question, "Where can I learn sculpture?");
+        testEntityManager.flush();
+
+        assertEquals(Collections.singletonList(question.getId()), ids(questionDao.searchQuestions("sculpture", null, 10)));
+        assertTrue(questionDao.searchQuestions("painting", null, 10).isEmpty());
+    }
+
+    @Test
+    public void stopWordsAloneMatchNothing() {
+        createQuestion("What is the best way to learn the guitar?");
+        testEntityManager.flush();
+
+        assertTrue(questionDao.searchQuestions("the", null, 10).isEmpty());
+    }
+
+    @Test
+    public void pagesReturnEachMatchOnceInRankOrder() throws Exception {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            //Ranks tie between questions of the same text, the ids break the ties
+            QuestionEntity question = createQuestion(i % 2 == 0 ? "Guitar lessons?" : "Any tips to learn the guitar as an adult beginner?");
+            if (i % 3 == 0)
+                createAnswer(question, "A guitar teacher helps");
+        }
+        testEntityManager.flush();
+        expected.addAll(ids(questionDao.searchQuestions("guitar", null, 100)));
+        assertEquals(8, expected.size());
+
+        List<Integer> walked = new ArrayList<>();
+        RankCursor cursor = null;
+        do {
+            List<QuestionSearchResult> page = questionDao.searchQuestions("guitar", cursor, 3);
+            walked.addAll(ids(page));
+            QuestionSearchResult last = page.isEmpty() ? null : page.get(page.size() - 1);
+            cursor = page.size() < 3 ? null : RankCursor.decode(new RankCursor(last.getRank(), last.getId()).encode());
+        } while (cursor != null);
+
+        assertEquals(expected, walked);
+        List<QuestionSearchResult> all = questionDao.searchQuestions("guitar", null, 100);
+        for (int i = 1; i < all.size(); i++) {
+            QuestionSearchResult previous = all.get(i - 1);
+            QuestionSearchResult current = all.get(i);
+            assertTrue(previous.getRank() > current.getRank()
+                    || (previous.getRank() == current.getRank() && previous.getId() > current.getId()));
+        }
+    }
+
+    private QuestionEntity createQuestion(final String content) {
+        return questionDao.createQuestion(TestData.newQuestion(user, content));
+    }
+
+    private void createAnswer(final QuestionEntity question, final String text) {
+        answerDao.createAnswer(TestData.newAnswer(question, user, text));
+    }
+
+    private static List<Integer> ids(final List<QuestionSearchResult> results) {
+        List<Integer> ids = new ArrayList<>();
+        results.forEach(result -> ids.add(result.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,62 @@
+package com.upgrad.quora.service.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+//Checks on two in-memory databases that read-only transactions go to the replica, and to the primary when the replica is down.
+public class ReadOnlyRoutingDataSourceTest {
+
+    private DataSource primary;
+
+    private DataSource replica;
+
+    @Before
+    public void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+    }
+
+    @Test
+    public void readOnlyTransactionsReadFromTheReplica() {
+        final DataSource dataSource = route(primary, replica);
+
+        assertEquals("replica", name(dataSource, true));
+        assertEquals("primary", name(dataSource, false));
+        assertEquals("primary", new JdbcTemplate(dataSource).queryForObject("select name from source", String.class));
+    }
+
+    @Test
+    public void readOnlyTransactionsFallBackToThePrimary() {
+        final DataSource unavailable = new DriverManagerDataSource("jdbc:h2:mem:missing;IFEXISTS=TRUE", "sa", "");
+
+        assertEquals("primary", name(route(primary, unavailable), true));
+    }
+
+    private static DataSource route(final DataSource primary, final DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReadOnlyRoutingDataSource(primary, replica));
+    }
+
+    private static String name(final DataSource dataSource, final boolean readOnly) {
+        final TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> new JdbcTemplate(dataSource).queryForObject("select name from source", String.class));
+    }
+
+    private static DataSource database(final String name) {
+        final DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table source(name varchar(20))");
+        jdbcTemplate.update("insert into source values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,210 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import com.upgrad.quora.service.TestData;
+import com.upgrad.quora.service.business.SecondLevelCache;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//Checks on PostgreSQL that the committed saves and deletes of questions, answers and users reach the search index
+//listeners once, after the commit, that rolled back ones never do, and that the SQL search drops what was deleted.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SecondLevelCache.class, UserDao.class, QuestionDao.class, AnswerDao.class, AdminDao.class, SearchIndexSync.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SearchIndexSyncTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    //Listeners stay registered for the life of the context, which the test methods share
+    private static final List<String> EVENTS = Collections.synchronizedList(new ArrayList<>());
+
+    private static boolean registered;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private AdminDao adminDao;
+
+    @Autowired
+    private SearchIndexSync searchIndexSync;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transaction;
+
+    @Before
+    public void setUp() {
+        if (!registered) {
+            searchIndexSync.addListener(new RecordingListener());
+            registered = true;
+        }
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @After
+    public void tearDown() {
+        EVENTS.clear();
+        entityManagerFactory.getCache().evictAll();
+        PostgresTestDatabase.truncate(dataSource);
+    }
+
+    @Test
+    public void committedSavesAreReportedAndRolledBackOnesAreNot() {
+        UserEntity user = createUser();
+        QuestionEntity question = createQuestion(user, "How do I tune a violin?");
+        AnswerEntity answer = createAnswer(question, user, "Start with the A string");
+        assertEquals(Arrays.asList("questionSaved " + question.getId() + " " + user.getId(),
+                "answerSaved " + answer.getUuid() + " " + question.getId()), EVENTS);
+        EVENTS.clear();
+
+        transaction.execute(status -> {
+            questionDao.editQuestion(questionDao.getQuestionById(question.getUuid()), "How do I tune a cello?");
+            status.setRollbackOnly();
+            return null;
+        });
+        assertTrue(EVENTS.isEmpty());
+
+        transaction.execute(status -> questionDao.editQuestion(questionDao.getQuestionById(question.getUuid()), "How do I tune a cello?"));
+        assertEquals(Collections.singletonList("questionSaved " + question.getId() + " " + user.getId()), EVENTS);
+    }
+
+    @Test
+    public void deletesAreReportedOnceCommittedAndLeaveTheSearch() {
+        UserEntity user = createUser();
+        UserEntity otherUser = createUser();
+        QuestionEntity question = createQuestion(user, "Which violin strings last longest?");
+        AnswerEntity answer = createAnswer(question, otherUser, "Steel violin strings");
+        QuestionEntity otherQuestion = createQuestion(otherUser, "Is a violin harder than a viola?");
+        createAnswer(otherQuestion, user, "The violin is smaller");
+        EVENTS.clear();
+
+        transaction.execute(status -> {
+            answerDao.deleteAnswer(answer.getUuid(), otherUser);
+            status.setRollbackOnly();
+            return null;
+        });
+        assertTrue(EVENTS.isEmpty());
+
+        assertTrue(transaction.execute(status -> answerDao.deleteAnswer(answer.getUuid(), otherUser)));
+        assertEquals(Collections.singletonList("answerDeleted " + answer.getUuid()), EVENTS);
+        assertTrue(search("steel").isEmpty());
+        assertEquals(2, search("violin").size());
+
+        assertTrue(transaction.execute(status -> questionDao.deleteQuestion(question.getUuid(), user)));
+        assertEquals("questionDeleted " + question.getId(), EVENTS.get(1));
+        assertEquals(Collections.singletonList(otherQuestion.getId()), search("violin"));
+
+        assertTrue(transaction.execute(status -> adminDao.deleteUser(otherUser.getUuid())));
+        assertEquals("userDeleted " + otherUser.getId() + " " + Collections.singletonList(otherQuestion.getId()), EVENTS.get(2));
+        assertEquals(3, EVENTS.size());
+        assertTrue(search("violin").isEmpty());
+    }
+
+    private List<Integer> search(final String terms) {
+        return transaction.execute(status -> {
+            List<Integer> ids = new ArrayList<>();
+            questionDao.searchQuestions(terms, null, 10).forEach(result -> ids.add(result.getId()));
+            return ids;
+        });
+    }
+
+    private UserEntity createUser() {
+        return transaction.execute(status -> userDao.createUser(TestData.newUser()));
+    }
+
+    private QuestionEntity createQuestion(final UserEntity user, final String content) {
+        return transaction.execute(status -> questionDao.createQuestion(TestData.newQuestion(user, content)));
+    }
+
+    private AnswerEntity createAnswer(final QuestionEntity question, final UserEntity user, final String text) {
+        AnswerEntity answer = TestData.newAnswer(question, user, text);
+        transaction.execute(status -> {
+            answerDao.createAnswer(answer);
+            return null;
+        });
+        return answer;
+    }
+
+    private static final class RecordingListener implements SearchIndexListener {
+
+        @Override
+        public void questionSaved(final int id, final String uuid, final String content, final int userId) {
+            EVENTS.add("questionSaved " + id + " " + userId);
+        }
+
+        @Override
+        public void answerSaved(final String uuid, final String answer, final int questionId, final int userId) {
+            EVENTS.add("answerSaved " + uuid + " " + questionId);
+        }
+
+        @Override
+        public void questionDeleted(final int id) {
+            EVENTS.add("questionDeleted " + id);
+        }
+
+        @Override
+        public void answerDeleted(final String uuid) {
+            EVENTS.add("answerDeleted " + uuid);
+        }
+
+        @Override
+        public void userDeleted(final int userId, final Collection<Integer> questionIds) {
+            EVENTS.add("userDeleted " + userId + " " + new ArrayList<>(questionIds));
+        }
+    }
+}
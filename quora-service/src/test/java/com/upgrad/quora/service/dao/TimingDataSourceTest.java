@@ -0,0 +1,108 @@
+package com.upgrad.quora.service.dao;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+//Checks that the statements run through the timing DataSource are reported once each, with their SQL, DAO method and rows.
+public class TimingDataSourceTest {
+
+    private final List<String> reports = new ArrayList<>();
+
+    private TimingDataSource dataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource = new TimingDataSource(h2, (operation, sql, rows, durationNanos) -> {
+            assertTrue(durationNanos >= 0);
+            reports.add(operation + "|" + sql + "|" + rows);
+        });
+        try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table item (id int primary key)");
+        }
+    }
+
+    @Test
+    public void queryIsReportedWithItsRowsOnceClosed() throws Exception {
+        String enclosing = TimingDataSource.enterOperation("ItemDao.getItems");
+        try (Connection connection = dataSource.getConnection()) {
+            insert(connection, 3);
+            reports.clear();
+            try (PreparedStatement statement = connection.prepareStatement("select id from item where id > ?")) {
+                statement.setInt(1, 0);
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    // read every row
+                }
+                assertTrue(reports.isEmpty());
+                resultSet.close();
+                resultSet.close();
+            }
+        } finally {
+            TimingDataSource.exitOperation(enclosing);
+        }
+
+        assertEquals(1, reports.size());
+        assertEquals("ItemDao.getItems|select id from item where id > ?|3", reports.get(0));
+    }
+
+    @Test
+    public void updatesAndBatchesAreReportedWithTheirCounts() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            insert(connection, 4);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("delete from item where id <= 2");
+            }
+        }
+
+        assertEquals("null|insert into item (id) values (?)|4", reports.get(0));
+        assertEquals("null|delete from item where id <= 2|2", reports.get(1));
+    }
+
+    @Test
+    public void operationsNestAndEnd() {
+        String outer = TimingDataSource.enterOperation("QuestionDao.deleteQuestion");
+        String inner = TimingDataSource.enterOperation("AnswerDao.deleteAnswers");
+        assertEquals("QuestionDao.deleteQuestion", inner);
+        TimingDataSource.exitOperation(inner);
+        TimingDataSource.exitOperation(outer);
+
+        assertNull(outer);
+        assertNull(TimingDataSource.enterOperation("UserDao.getUser"));
+        TimingDataSource.exitOperation(null);
+    }
+
+    @Test
+    public void wrappedObjectsKeepTheirIdentityAndUnwrap() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            assertEquals(connection, connection);
+            assertEquals(connection.hashCode(), connection.hashCode());
+            assertSame(org.h2.jdbc.JdbcConnection.class, connection.unwrap(org.h2.jdbc.JdbcConnection.class).getClass());
+        }
+    }
+
+    private static void insert(final Connection connection, final int items) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement("insert into item (id) values (?)")) {
+            for (int id = 1; id <= items; id++) {
+                statement.setInt(1, id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.PostgresTestDatabase;
+import com.upgrad.quora.service.TestData;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//Checks that the password upgrade only replaces the hash it was computed from, even when two upgrades race on PostgreSQL.
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserDao.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UserDaoTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage
+    @EntityScan("com.upgrad.quora.service.entity")
+    static class TestConfiguration {
+    }
+
+    @DynamicPropertySource
+    static void database(final DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @After
+    public void tearDown() {
+        PostgresTestDatabase.truncate(dataSource);
+    }
+
+    @Test
+    public void upgradeFromAnOutdatedHashIsRefused() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        String uuid = createUser("old-hash");
+
+        assertTrue(transaction.execute(status -> userDao.updatePassword(uuid, "old-hash", "salt-1", "hash-1")));
+        assertFalse(transaction.execute(status -> userDao.updatePassword(uuid, "old-hash", "salt-2", "hash-2")));
+
+        assertEquals("hash-1", storedPassword(uuid));
+    }
+
+    @Test
+    public void upgradeLosingTheRaceLeavesTheWinnersHash() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        String uuid = createUser("old-hash");
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = executor.submit(() -> transaction.execute(status -> {
+                boolean result = userDao.updatePassword(uuid, "old-hash", "salt-1", "hash-1");
+                updated.countDown();
+                await(commit);
+                return result;
+            }));
+            assertTrue(updated.await(10, TimeUnit.SECONDS));
+            //Read the same old hash before the first upgrade committed, then waits on its row lock
+            Future<Boolean> second = executor.submit(() ->
+                    transaction.execute(status -> userDao.updatePassword(uuid, "old-hash", "salt-2", "hash-2")));
+            PostgresTestDatabase.awaitLockWait(dataSource);
+            commit.countDown();
+
+            assertTrue(first.get(10, TimeUnit.SECONDS));
+            assertFalse(second.get(10, TimeUnit.SECONDS));
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals("hash-1", storedPassword(uuid));
+    }
+
+    private String createUser(final String password) {
+        UserEntity user = TestData.newUser();
+        user.setPassword(password);
+        new TransactionTemplate(transactionManager).execute(status -> userDao.createUser(user));
+        return user.getUuid();
+    }
+
+    private String storedPassword(final String uuid) {
+        return new JdbcTemplate(dataSource).queryForObject("select password from users where uuid = ?", String.class, uuid);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}